@@ -5,6 +5,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.InetAddress;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -20,6 +21,8 @@ import org.apache.logging.log4j.Logger;
 import nl.tudelft.mavensecrets.config.Config;
 import nl.tudelft.mavensecrets.config.YamlConfig;
 import nl.tudelft.mavensecrets.resolver.DefaultResolver;
+import nl.tudelft.mavensecrets.selection.CursorSelector;
+import nl.tudelft.mavensecrets.selection.DistributedSelector;
 import nl.tudelft.mavensecrets.selection.PackageSelector;
 import nl.tudelft.mavensecrets.selection.StratifiedSampleSelector;
 
@@ -40,14 +43,41 @@ public class App {
         }
         LOGGER.info("Extractors: {}", config.getExtractors());
         LOGGER.info("Threadpool size: {}", config.getThreads());
+        LOGGER.info("Stages: {}", config.getStages());
+        LOGGER.info("Concurrency: {}", config.getConcurrency());
+        LOGGER.info("Timeouts: {}", config.getTimeouts());
+        LOGGER.info("Retry: {}", config.getRetry());
+        LOGGER.info("Metrics: {}", config.getMetrics());
+        LOGGER.info("Writer: {}", config.getWriter());
+        LOGGER.info("Limits: {}", config.getLimits());
         LOGGER.info("Database configuration: {}", config.getDatabaseConfig());
         LOGGER.info("Index files: {}", config.getIndexFiles());
         LOGGER.info("Local repository: {}", config.getLocalRepository().getAbsolutePath());
         LOGGER.info("Seed: {}", config.getSeed());
         LOGGER.info("Sample percent: {}%", config.getSamplePercent());
+        LOGGER.info("Resume: {}", config.isResume());
+        LOGGER.info("Distributed: {}", config.getDistributed());
 
         long startTime = System.currentTimeMillis();
 
+        // Offline profiling
+        if (args.length > 0 && args[0].equals("profile")) {
+            if (args.length < 2) {
+                LOGGER.error("Usage: profile <directory>");
+                return;
+            }
+            try {
+                Profiler.profile(config, Paths.get(args[1]), System.out);
+            } catch (IOException exception) {
+                LOGGER.error("Could not profile {}", args[1], exception);
+            } catch (InterruptedException exception) {
+                LOGGER.warn("Profiling interrupted");
+                Thread.currentThread().interrupt();
+            }
+            LOGGER.info("Elapsed time: {}ms", System.currentTimeMillis() - startTime);
+            return;
+        }
+
         // Database
         Database db;
         try {
@@ -67,23 +97,88 @@ public class App {
             return;
         }
 
-        PackageSelector selector = new StratifiedSampleSelector(db, config.getSeed(), config.getSamplePercent());
+        // Pages are identified by index, so the key covers everything that determines them
+        String run = "sample:" + config.getSeed() + ':' + config.getSamplePercent() + ':' + PAGE_SIZE;
+        var distributed = config.getDistributed();
+        var sample = new StratifiedSampleSelector(db, config.getSeed(), config.getSamplePercent());
+        if (config.isResume() && !distributed.isEnabled()) {
+            try {
+                resumeSelection(sample, db, run);
+            } catch (SQLException exception) {
+                LOGGER.error("Could not look up checkpoints of run '{}'", run, exception);
+                return;
+            }
+        }
+        var fetchSize = config.getDatabaseConfig().getFetchSize();
+        PackageSelector selector = sample;
+        if (distributed.isEnabled()) {
+            selector = new DistributedSelector(db, selector, run, distributed.getWorker(), distributed.getLease());
+        } else if (fetchSize > 0) {
+            // Batches are leased out of order, so only a single process can stream
+            selector = new CursorSelector(db, sample, fetchSize);
+        }
         LOGGER.info("Package selector: {}", selector);
 
         var resolver = new DefaultResolver(config.getLocalRepository());
-        var builder = extractors(config, new RunnerBuilder());
-        var maven = new Maven(resolver);
+        var limits = config.getLimits();
+        var stages = config.getStages();
+        var timeouts = config.getTimeouts();
+        var retry = config.getRetry();
+        var writer = config.getWriter();
+        var metrics = new Metrics();
+        var metricsConfig = config.getMetrics();
+        if (metricsConfig.isJmx()) {
+            metrics.registerMBeans();
+        }
+        MetricsServer server = null;
+        if (metricsConfig.getPort() > 0) {
+            try {
+                server = MetricsServer.start(metrics, metricsConfig.getAddress() == null ? null : InetAddress.getByName(metricsConfig.getAddress()), metricsConfig.getPort());
+            } catch (IOException exception) {
+                LOGGER.warn("Could not serve metrics on port {}", metricsConfig.getPort(), exception);
+            }
+        }
+        var builder = extractors(config, new RunnerBuilder())
+                .setStageConcurrency(new Runner.StageConcurrency(stages.getResolve(), stages.getOpen(), stages.getExtract(), stages.getPersist(), stages.getQueueSize()))
+                .setParallelExtractThreshold(stages.getParallelExtractThreshold())
+                .setLongestFirst(stages.isLongestFirst())
+                .setDiskThrottle(new Throttle("disk", limits.getDisk()))
+                .setDatabaseThrottle(new Throttle("database", limits.getDatabase()))
+                .setArchiveBudget(limits.getArchiveBytes())
+                .setDefaultTimeout(timeouts.getDefault())
+                .setCircuitBreaker(timeouts.getBreakerWindow(), timeouts.getBreakerThreshold(), timeouts.getBreakerCooldown())
+                .setShutdownGrace(timeouts.getShutdown())
+                .setRetry(retry.getAttempts(), retry.getBaseDelay(), retry.getMaxDelay(), retry.getWorkers())
+                .setBatching(writer.getBatchSize(), writer.getFlushInterval())
+                .setWriteBehind(writer.getQueueSize())
+                .setMetrics(metrics);
+        timeouts.getExtractors().forEach(builder::setTimeout);
+        // The work queue keeps track of completed batches itself
+        if (!distributed.isEnabled()) {
+            builder.setCheckpoint(run, config.isResume());
+        }
+        var concurrency = config.getConcurrency();
+        if (concurrency.isAdaptive()) {
+            builder.setAdaptiveConcurrency(concurrency.getMin(), concurrency.getMax(), concurrency.getInterval());
+        }
+        var maven = new Maven(resolver, new Throttle("network", limits.getNetwork()), metrics);
 
         try (var runner = builder.build(db)) {
-            Collection<? extends ArtifactId> artifacts;
-            for (int i = 0; (artifacts = selector.getArtifacts(i, PAGE_SIZE)).size() > 0; i++) {
-                runner.run(maven, artifacts, config.getThreads());
-            }
+            runner.run(maven, selector, PAGE_SIZE);
         } catch (IOException | SQLException exception) {
             LOGGER.error("Runner failed with exception", exception);
         } catch (InterruptedException exception) {
             LOGGER.warn("Run interrupted");
             Thread.currentThread().interrupt();
+        } finally {
+            if (selector instanceof DistributedSelector shared) {
+                shared.close();
+            } else if (selector instanceof CursorSelector cursor) {
+                cursor.close();
+            }
+            if (server != null) {
+                server.close();
+            }
         }
 
         long endTime = System.currentTimeMillis();
@@ -92,6 +187,28 @@ public class App {
         LOGGER.info("Elapsed time: {}ms", elapsedTime);
     }
 
+    /**
+     * Attach to the selection of a run that is resumed, rather than generating it again.
+     * Checkpoints refer to pages by index, so a regenerated selection could shift artifacts into pages that are skipped as completed.
+     *
+     * @param sample The selector.
+     * @param db Database.
+     * @param run Run key.
+     * @throws SQLException If a database error occurs.
+     */
+    static void resumeSelection(StratifiedSampleSelector sample, Database db, String run) throws SQLException {
+        if (db.getCheckpoints(run).isEmpty()) {
+            return;
+        }
+        if (db.countSelectedPkgs() == 0) {
+            LOGGER.warn("Run '{}' has checkpoints but no selection, generating it again", run);
+            return;
+        }
+
+        LOGGER.info("Resuming run '{}' on its existing selection", run);
+        sample.attach();
+    }
+
     private static void runIndexerReader(Collection<? extends String> indices, String[] args, Database db) throws SQLException {
         Objects.requireNonNull(indices);
         Objects.requireNonNull(args);
@@ -188,7 +305,7 @@ public class App {
         Objects.requireNonNull(config);
 
         // Not sanitized
-        return Database.connect("jdbc:postgresql://" + config.getHostname() + ':' + config.getPort() + '/' + config.getName(), config.getUsername(), config.getPassword());
+        return Database.connect("jdbc:postgresql://" + config.getHostname() + ':' + config.getPort() + '/' + config.getName(), config.getUsername(), config.getPassword(), config.getPoolSize());
     }
 
     /**
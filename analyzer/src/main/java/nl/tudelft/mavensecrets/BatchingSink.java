@@ -0,0 +1,222 @@
+package nl.tudelft.mavensecrets;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A {@link ResultSink} collecting rows and writing them to the <code>packages</code> and <code>unresolved_packages</code> tables with multi-row statements.
+ * A batch is written once it holds the batch size in rows, once its oldest row has waited the flush interval, or when flushed explicitly.
+ * Every batch is written in one transaction; if that fails, its rows are written one at a time, so a single bad row does not take the others down with it.
+ */
+final class BatchingSink implements ResultSink {
+
+    private static final Logger LOGGER = LogManager.getLogger(BatchingSink.class);
+
+    private final Database db;
+    private final Throttle database;
+    private final int batchSize;
+    private final long flushInterval;
+    private final Metrics metrics;
+    private final ScheduledExecutorService timer;
+    // Held while taking and writing a batch, so a flush returns only once earlier batches are written
+    private final Object flushLock = new Object();
+    private Batch batch = new Batch();
+
+    /**
+     * Create a sink and start its flush timer.
+     *
+     * @param db Database.
+     * @param database Throttle the flush timer takes a permit of, as the writing threads do.
+     * @param batchSize Rows per batch.
+     * @param flushInterval Milliseconds a row may wait for its batch to fill up.
+     * @param metrics Metrics to record flushes in.
+     */
+    BatchingSink(Database db, Throttle database, int batchSize, long flushInterval, Metrics metrics) {
+        this.db = Objects.requireNonNull(db);
+        this.database = Objects.requireNonNull(database);
+        if (batchSize <= 0 || flushInterval <= 0) {
+            throw new IllegalArgumentException("Invalid batch size or flush interval: " + batchSize + '/' + flushInterval);
+        }
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.metrics = Objects.requireNonNull(metrics);
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sink-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        var tick = Math.max(1, flushInterval / 4);
+        timer.scheduleWithFixedDelay(this::flushExpired, tick, tick, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void prepare(Field[] fields) throws SQLException {
+        db.updateSchema(fields);
+    }
+
+    @Override
+    public void write(ArtifactId id, Field[] fields, Object[] values) throws SQLException {
+        Objects.requireNonNull(id);
+        Objects.requireNonNull(fields);
+        Objects.requireNonNull(values);
+
+        boolean full;
+        while (true) {
+            synchronized (this) {
+                if (batch.accepts(fields)) {
+                    batch.write(id, fields, values);
+                    full = batch.size() >= batchSize;
+                    break;
+                }
+            }
+            // Rows of a batch share their columns, so the others go first
+            flush();
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    @Override
+    public void unresolved(ArtifactId id, String reason) throws SQLException {
+        Objects.requireNonNull(id);
+
+        boolean full;
+        synchronized (this) {
+            batch.unresolved(id, reason);
+            full = batch.size() >= batchSize;
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    @Override
+    public void flush() throws SQLException {
+        synchronized (flushLock) {
+            Batch taken;
+            synchronized (this) {
+                if (batch.size() == 0) {
+                    return;
+                }
+                taken = batch;
+                batch = new Batch();
+            }
+            metrics.time("sink.flush", () -> write(taken));
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        timer.shutdownNow();
+        flush();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchingSink[batchSize=" + batchSize + ", flushInterval=" + flushInterval + ']';
+    }
+
+    private void flushExpired() {
+        synchronized (this) {
+            if (batch.size() == 0 || System.nanoTime() - batch.started < TimeUnit.MILLISECONDS.toNanos(flushInterval)) {
+                return;
+            }
+        }
+        try {
+            database.run(this::flush);
+        } catch (SQLException | RuntimeException exception) { // Keep the timer alive
+            LOGGER.error("Could not flush results", exception);
+        }
+    }
+
+    private void write(Batch batch) {
+        try {
+            db.transaction(() -> {
+                if (!batch.ids.isEmpty()) {
+                    db.upsert(batch.fields, batch.ids, batch.rows, true);
+                }
+                if (!batch.unresolvedIds.isEmpty()) {
+                    db.batchUpdateUnresolvedTable(batch.unresolvedIds, batch.reasons);
+                }
+            });
+            LOGGER.trace("Wrote {} rows and {} unresolved packages", batch.ids.size(), batch.unresolvedIds.size());
+            return;
+        } catch (SQLException exception) {
+            LOGGER.warn("Could not write a batch of {} rows, writing them one at a time", batch.size(), exception);
+        }
+
+        for (var i = 0; i < batch.ids.size(); i++) {
+            var id = batch.ids.get(i);
+            try {
+                db.update(id, batch.fields, batch.rows.get(i), true);
+            } catch (SQLException exception) {
+                LOGGER.error("Could not write fields of {}", id, exception);
+                writeUnresolved(id, exception.toString());
+            }
+        }
+        for (var i = 0; i < batch.unresolvedIds.size(); i++) {
+            writeUnresolved(batch.unresolvedIds.get(i), batch.reasons.get(i));
+        }
+    }
+
+    private void writeUnresolved(ArtifactId id, String reason) {
+        try {
+            db.updateUnresolvedTable(id, reason);
+        } catch (SQLException exception) {
+            LOGGER.error("Could not write failure of {} to database", id, exception);
+        }
+    }
+
+    /**
+     * Rows waiting to be written.
+     */
+    private static final class Batch {
+
+        private long started = 0;
+        private final List<ArtifactId> ids = new ArrayList<>();
+        private final List<Object[]> rows = new ArrayList<>();
+        private final List<ArtifactId> unresolvedIds = new ArrayList<>();
+        private final List<String> reasons = new ArrayList<>();
+        private Field[] fields = null;
+
+        boolean accepts(Field[] fields) {
+            return this.fields == null || this.fields == fields || Arrays.equals(this.fields, fields);
+        }
+
+        void write(ArtifactId id, Field[] fields, Object[] values) {
+            if (fields.length != values.length) {
+                throw new IllegalArgumentException("number of fields and values is different");
+            }
+            begin();
+            this.fields = fields;
+            ids.add(id);
+            rows.add(values);
+        }
+
+        void unresolved(ArtifactId id, String reason) {
+            begin();
+            unresolvedIds.add(id);
+            reasons.add(reason);
+        }
+
+        int size() {
+            return ids.size() + unresolvedIds.size();
+        }
+
+        private void begin() {
+            if (size() == 0) {
+                started = System.nanoTime();
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package nl.tudelft.mavensecrets;
+
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A cap on the total size of the archives held open at once.
+ * Reservations are admitted in arrival order, so a large archive is not starved by a stream of small ones.
+ * An archive larger than the whole budget is admitted once nothing else is reserved.
+ */
+final class ByteBudget {
+
+    private final String name;
+    private final long capacity;
+    private long used = 0;
+    private long peak = 0;
+    private long nextTicket = 0;
+    private long serving = 0;
+    // Tickets of waiters that were interrupted before their turn
+    private final Set<Long> abandoned = new HashSet<>();
+
+    /**
+     * Create a budget.
+     *
+     * @param name Budget name.
+     * @param capacity Total number of bytes.
+     */
+    ByteBudget(String name, long capacity) {
+        this.name = Objects.requireNonNull(name);
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Reserve bytes, blocking until they fit.
+     *
+     * @param bytes Number of bytes.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    synchronized void acquire(long bytes) throws InterruptedException {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("Invalid size: " + bytes);
+        }
+
+        var ticket = nextTicket++;
+        try {
+            while (ticket != serving || (used > 0 && used + bytes > capacity)) {
+                wait();
+            }
+        } catch (InterruptedException exception) {
+            // Give up the turn without holding up the others
+            if (ticket == serving) {
+                next();
+            } else {
+                abandoned.add(ticket);
+            }
+            notifyAll();
+            throw exception;
+        }
+
+        next();
+        used += bytes;
+        peak = Math.max(peak, used);
+        notifyAll();
+    }
+
+    /**
+     * Return reserved bytes.
+     *
+     * @param bytes Number of bytes.
+     */
+    synchronized void release(long bytes) {
+        if (bytes < 0 || bytes > used) {
+            throw new IllegalArgumentException("Invalid size: " + bytes);
+        }
+
+        used -= bytes;
+        notifyAll();
+    }
+
+    synchronized long getUsed() {
+        return used;
+    }
+
+    synchronized long getPeak() {
+        return peak;
+    }
+
+    long getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return name + "[used=" + used + '/' + capacity + ", peak=" + peak + ']';
+    }
+
+    private void next() {
+        do {
+            serving++;
+        } while (abandoned.remove(serving));
+    }
+}
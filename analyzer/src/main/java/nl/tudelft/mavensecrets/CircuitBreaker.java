@@ -0,0 +1,123 @@
+package nl.tudelft.mavensecrets;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A circuit breaker disabling an extractor whose recent runs time out too often.
+ * Once the fraction of timeouts in a full window reaches the threshold, the breaker opens and the extractor is skipped.
+ * After the cooldown a single trial run is let through: if it finishes in time the breaker closes, otherwise the cooldown starts over.
+ */
+final class CircuitBreaker {
+
+    private static final Logger LOGGER = LogManager.getLogger(CircuitBreaker.class);
+
+    private final String name;
+    private final boolean[] window;
+    private final double threshold;
+    private final long cooldown;
+    private int next = 0;
+    private int count = 0;
+    private int timeouts = 0;
+    private boolean open = false;
+    private boolean trial = false;
+    private long opened = 0;
+
+    /**
+     * Create a closed circuit breaker.
+     *
+     * @param name Name of the guarded extractor.
+     * @param window Number of recent runs to look at.
+     * @param threshold Fraction of timed out runs at which the breaker opens.
+     * @param cooldown Milliseconds the breaker stays open.
+     */
+    CircuitBreaker(String name, int window, double threshold, long cooldown) {
+        this.name = Objects.requireNonNull(name);
+        if (window <= 0) {
+            throw new IllegalArgumentException("Invalid window: " + window);
+        }
+        if (!(threshold > 0 && threshold <= 1)) {
+            throw new IllegalArgumentException("Invalid threshold: " + threshold);
+        }
+        if (cooldown < 0) {
+            throw new IllegalArgumentException("Invalid cooldown: " + cooldown);
+        }
+        this.window = new boolean[window];
+        this.threshold = threshold;
+        this.cooldown = TimeUnit.MILLISECONDS.toNanos(cooldown);
+    }
+
+    /**
+     * Check if the extractor may run.
+     * Every permitted run must be followed by a call to {@link #record(boolean)}.
+     *
+     * @return If the extractor may run.
+     */
+    synchronized boolean allow() {
+        if (!open) {
+            return true;
+        }
+        if (trial || System.nanoTime() - opened < cooldown) {
+            return false;
+        }
+
+        trial = true;
+        return true;
+    }
+
+    /**
+     * Record the outcome of a run.
+     *
+     * @param timedOut If the run timed out.
+     */
+    synchronized void record(boolean timedOut) {
+        if (open) {
+            // Runs started before the breaker opened do not count
+            if (!trial) {
+                return;
+            }
+
+            trial = false;
+            if (timedOut) {
+                opened = System.nanoTime();
+                LOGGER.warn("Extractor {} still times out, keeping it disabled", name);
+            } else {
+                open = false;
+                next = count = timeouts = 0;
+                LOGGER.info("Extractor {} recovered, enabling it again", name);
+            }
+            return;
+        }
+
+        if (count == window.length) {
+            if (window[next]) {
+                timeouts--;
+            }
+        } else {
+            count++;
+        }
+        window[next] = timedOut;
+        if (timedOut) {
+            timeouts++;
+        }
+        next = (next + 1) % window.length;
+
+        if (count == window.length && timeouts >= threshold * window.length) {
+            open = true;
+            opened = System.nanoTime();
+            LOGGER.warn("Extractor {} timed out in {} of its last {} runs, disabling it", name, timeouts, count);
+        }
+    }
+
+    synchronized boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return name + '[' + (open ? "open" : "closed") + ", timeouts=" + timeouts + '/' + count + ']';
+    }
+}
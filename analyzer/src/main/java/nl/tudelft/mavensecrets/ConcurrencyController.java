@@ -0,0 +1,148 @@
+package nl.tudelft.mavensecrets;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * An additive increase, multiplicative decrease limit on the number of packages in flight.
+ * Every interval the controller compares the completed packages per second and their mean latency with what it saw before.
+ * As long as the limit is reached and latency stays close to the best seen, the limit grows by its square root.
+ * If latency climbs without a matching gain in throughput, something is saturated and the limit shrinks by a quarter.
+ */
+final class ConcurrencyController {
+
+    private static final Logger LOGGER = LogManager.getLogger(ConcurrencyController.class);
+    // Latency over the best seen by this factor counts as congestion
+    private static final double LATENCY_TOLERANCE = 2.0;
+    // Throughput gain needed to accept a higher latency
+    private static final double THROUGHPUT_GAIN = 1.05;
+    private static final double DECREASE_FACTOR = 0.75;
+    // Fraction of the limit that must have been used to grow it
+    private static final double UTILIZATION = 0.9;
+    // Lets the best latency follow a workload that became slower
+    private static final double BASELINE_DRIFT = 1.05;
+
+    private final int min;
+    private final int max;
+    private final LongSupplier clock;
+    private int limit;
+    private int inFlight = 0;
+    private int peakInFlight = 0;
+    private long completed = 0;
+    private long latencies = 0;
+    private long tick;
+    private double lastThroughput = 0;
+    private double bestLatency = Double.MAX_VALUE / BASELINE_DRIFT;
+
+    /**
+     * Create a controller starting at the minimum limit.
+     *
+     * @param min Minimum number of packages in flight.
+     * @param max Maximum number of packages in flight.
+     */
+    ConcurrencyController(int min, int max) {
+        this(min, max, System::nanoTime);
+    }
+
+    /**
+     * Create a controller starting at the minimum limit.
+     *
+     * @param min Minimum number of packages in flight.
+     * @param max Maximum number of packages in flight.
+     * @param clock Nanosecond clock.
+     */
+    ConcurrencyController(int min, int max, LongSupplier clock) {
+        if (min <= 0 || max < min) {
+            throw new IllegalArgumentException("Invalid concurrency bounds: " + min + '-' + max);
+        }
+        this.min = min;
+        this.max = max;
+        this.limit = min;
+        this.clock = Objects.requireNonNull(clock);
+        this.tick = clock.getAsLong();
+    }
+
+    /**
+     * Admit a package, blocking while the limit is reached.
+     *
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    synchronized void acquire() throws InterruptedException {
+        while (inFlight >= limit) {
+            wait();
+        }
+        inFlight++;
+        peakInFlight = Math.max(peakInFlight, inFlight);
+    }
+
+    /**
+     * Record the completion of an admitted package.
+     *
+     * @param latency Nanoseconds from admission to completion.
+     */
+    synchronized void release(long latency) {
+        if (inFlight == 0) {
+            throw new IllegalStateException("Nothing in flight");
+        }
+        inFlight--;
+        completed++;
+        latencies += latency;
+        notifyAll();
+    }
+
+    /**
+     * Adjust the limit based on the packages completed since the previous adjustment.
+     */
+    synchronized void adjust() {
+        var now = clock.getAsLong();
+        var seconds = (now - tick) / (double) TimeUnit.SECONDS.toNanos(1);
+        if (completed == 0 || seconds <= 0) {
+            LOGGER.debug("Concurrency limit {}: nothing completed, holding", limit);
+            return;
+        }
+
+        var throughput = completed / seconds;
+        var latency = latencies / (double) completed / TimeUnit.MILLISECONDS.toNanos(1);
+        bestLatency = Math.min(bestLatency * BASELINE_DRIFT, latency);
+        var saturated = peakInFlight >= limit * UTILIZATION;
+
+        var previous = limit;
+        String reason;
+        if (latency > bestLatency * LATENCY_TOLERANCE && throughput < lastThroughput * THROUGHPUT_GAIN) {
+            limit = Math.max(min, (int) (limit * DECREASE_FACTOR));
+            reason = "latency up without throughput gain";
+        } else if (saturated) {
+            limit = Math.min(max, limit + Math.max(1, (int) Math.sqrt(limit)));
+            reason = "limit reached";
+        } else {
+            reason = "limit not reached";
+        }
+
+        LOGGER.info("Concurrency limit {} -> {} ({}): {} packages/s, mean latency {} ms (best {} ms), peak in flight {}",
+                previous, limit, reason, String.format("%.1f", throughput), Math.round(latency), Math.round(bestLatency), peakInFlight);
+
+        lastThroughput = throughput;
+        completed = 0;
+        latencies = 0;
+        peakInFlight = inFlight;
+        tick = now;
+        notifyAll();
+    }
+
+    synchronized int getLimit() {
+        return limit;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "concurrency[limit=" + limit + " (" + min + '-' + max + "), inFlight=" + inFlight + ']';
+    }
+}
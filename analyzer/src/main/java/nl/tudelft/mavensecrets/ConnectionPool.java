@@ -0,0 +1,208 @@
+package nl.tudelft.mavensecrets;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A fixed-size pool of database connections, opened when first needed.
+ * A connection that has been idle for a while is validated before it is handed out, and replaced if it turns out to be broken.
+ * Every connection has a {@link StatementCache} of its own, closed together with it.
+ */
+final class ConnectionPool implements Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger(ConnectionPool.class);
+    private static final int VALIDATION_TIMEOUT_S = 5;
+
+    private final Throttle.Call<Connection, SQLException> connector;
+    private final int size;
+    private final long validationInterval;
+    private final int statementCacheSize;
+    private final Semaphore permits;
+    // Most recently used first, so a lightly loaded pool keeps using the same few connections
+    private final Deque<Idle> idle = new ConcurrentLinkedDeque<>();
+    private final Map<Connection, StatementCache> statements = new ConcurrentHashMap<>();
+    private final AtomicInteger open = new AtomicInteger();
+    private volatile boolean closed = false;
+
+    /**
+     * Create a pool.
+     *
+     * @param connector Opens a connection.
+     * @param size Maximum number of connections.
+     * @param validationInterval Milliseconds a connection may be idle before it is validated again.
+     * @param statementCacheSize Maximum number of prepared statements kept open per connection.
+     */
+    ConnectionPool(Throttle.Call<Connection, SQLException> connector, int size, long validationInterval, int statementCacheSize) {
+        this.connector = Objects.requireNonNull(connector);
+        if (size <= 0 || validationInterval < 0 || statementCacheSize <= 0) {
+            throw new IllegalArgumentException("Invalid pool size, validation interval or statement cache size: " + size + '/' + validationInterval + '/' + statementCacheSize);
+        }
+        this.size = size;
+        this.validationInterval = validationInterval;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(size, true);
+    }
+
+    /**
+     * Take a connection, waiting for one to be released if all are in use.
+     * It must be given back with {@link #release(Connection)} or {@link #discard(Connection)}.
+     *
+     * @return The connection.
+     * @throws SQLException If no connection could be opened.
+     */
+    Connection acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        // Uninterruptible like the throttles, since most callers cannot propagate an InterruptedException
+        permits.acquireUninterruptibly();
+        try {
+            Idle entry;
+            while ((entry = idle.pollFirst()) != null) {
+                if (System.nanoTime() - entry.since() < TimeUnit.MILLISECONDS.toNanos(validationInterval) || valid(entry.connection())) {
+                    return entry.connection();
+                }
+                LOGGER.warn("Discarding a broken database connection");
+                close(entry.connection());
+            }
+            var connection = connector.call();
+            open.incrementAndGet();
+            statements.put(connection, new StatementCache(connection, statementCacheSize));
+            return connection;
+        } catch (SQLException | RuntimeException exception) {
+            permits.release();
+            throw exception;
+        }
+    }
+
+    /**
+     * Give back a connection for reuse.
+     *
+     * @param connection The connection.
+     */
+    void release(Connection connection) {
+        Objects.requireNonNull(connection);
+
+        if (closed) {
+            close(connection);
+        } else {
+            idle.offerFirst(new Idle(connection, System.nanoTime()));
+            // Closed in the meantime, so make sure it does not linger
+            if (closed && idle.remove(new Idle(connection, 0))) {
+                close(connection);
+            }
+        }
+        permits.release();
+    }
+
+    /**
+     * Give back a connection that should not be reused, closing it.
+     *
+     * @param connection The connection.
+     */
+    void discard(Connection connection) {
+        Objects.requireNonNull(connection);
+
+        close(connection);
+        permits.release();
+    }
+
+    /**
+     * Get the statement cache of a connection taken from this pool.
+     * It may only be used while holding the connection.
+     *
+     * @param connection The connection.
+     * @return The cache.
+     */
+    StatementCache statements(Connection connection) {
+        var cache = statements.get(Objects.requireNonNull(connection));
+        if (cache == null) {
+            throw new IllegalArgumentException("Connection is not part of this pool");
+        }
+        return cache;
+    }
+
+    /**
+     * Get the maximum number of connections.
+     *
+     * @return The size.
+     */
+    int getSize() {
+        return size;
+    }
+
+    /**
+     * Get the number of connections currently open.
+     *
+     * @return The number of connections.
+     */
+    int getOpen() {
+        return open.get();
+    }
+
+    /**
+     * Close the idle connections; connections in use are closed once they are given back.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Idle entry;
+        while ((entry = idle.pollFirst()) != null) {
+            close(entry.connection());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool[size=" + size + ", open=" + open.get() + ", idle=" + idle.size() + ']';
+    }
+
+    private static boolean valid(Connection connection) {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_S);
+        } catch (SQLException exception) {
+            return false;
+        }
+    }
+
+    private void close(Connection connection) {
+        open.decrementAndGet();
+        var cache = statements.remove(connection);
+        if (cache != null) {
+            cache.close();
+        }
+        try {
+            connection.close();
+        } catch (SQLException exception) {
+            LOGGER.debug("Could not close database connection", exception);
+        }
+    }
+
+    /**
+     * A connection waiting to be reused, equal to others of the same connection.
+     */
+    private static record Idle(Connection connection, long since) {
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Idle other && other.connection == connection;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(connection);
+        }
+    }
+}
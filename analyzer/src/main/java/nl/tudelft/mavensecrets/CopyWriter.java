@@ -0,0 +1,120 @@
+package nl.tudelft.mavensecrets;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Objects;
+
+import org.postgresql.copy.CopyIn;
+
+/**
+ * Writes rows to a <code>COPY ... FROM STDIN</code> in PostgreSQL's text format.
+ * Rows are buffered, so the driver is handed a few large writes rather than one per row.
+ */
+final class CopyWriter implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final CopyIn copy;
+    private final StringBuilder row = new StringBuilder();
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int length = 0;
+    private long rows = 0;
+
+    /**
+     * Create a writer.
+     *
+     * @param copy The copy operation to write to.
+     */
+    CopyWriter(CopyIn copy) {
+        this.copy = Objects.requireNonNull(copy);
+    }
+
+    /**
+     * Write a row.
+     *
+     * @param columns Column values, <code>null</code> for SQL <code>NULL</code>.
+     * @throws SQLException If a database error occurs.
+     */
+    void write(String... columns) throws SQLException {
+        row.setLength(0);
+        for (var i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                row.append('\t');
+            }
+            escape(columns[i], row);
+        }
+        row.append('\n');
+
+        var bytes = row.toString().getBytes(StandardCharsets.UTF_8);
+        if (length + bytes.length > buffer.length) {
+            flush();
+        }
+        if (bytes.length > buffer.length) {
+            copy.writeToCopy(bytes, 0, bytes.length);
+        } else {
+            System.arraycopy(bytes, 0, buffer, length, bytes.length);
+            length += bytes.length;
+        }
+        rows++;
+    }
+
+    /**
+     * Get the number of rows written so far.
+     *
+     * @return The number of rows.
+     */
+    long getRows() {
+        return rows;
+    }
+
+    /**
+     * Write the remaining rows and complete the copy.
+     *
+     * @return The number of rows the server received.
+     * @throws SQLException If a database error occurs.
+     */
+    long finish() throws SQLException {
+        flush();
+        return copy.endCopy();
+    }
+
+    /**
+     * Cancel the copy if it has not been completed, discarding the rows.
+     */
+    @Override
+    public void close() throws SQLException {
+        if (copy.isActive()) {
+            copy.cancelCopy();
+        }
+    }
+
+    private void flush() throws SQLException {
+        if (length > 0) {
+            copy.writeToCopy(buffer, 0, length);
+            length = 0;
+        }
+    }
+
+    /**
+     * Append a value in text format, escaping the characters that delimit columns and rows.
+     *
+     * @param value The value, <code>null</code> for SQL <code>NULL</code>.
+     * @param out Destination.
+     */
+    static void escape(String value, StringBuilder out) {
+        if (value == null) {
+            out.append("\\N");
+            return;
+        }
+        for (var i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '\t' -> out.append("\\t");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                default -> out.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package nl.tudelft.mavensecrets;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * A local directory of archives and POMs to run the extractors on, without a database or network.
+ * Files laid out like a local repository (<code>group/artifact/version/artifact-version.ext</code>) are recognized by their path.
+ * Other POMs are identified by their coordinates, other archives by the POM Maven embeds under <code>META-INF/maven</code>.
+ * If there are such loose files, every file is linked into a staging directory in the repository layout, so they can be resolved like any other artifact.
+ */
+final class Corpus {
+
+    private static final Logger LOGGER = LogManager.getLogger(Corpus.class);
+    private static final Set<String> ARCHIVES = Set.of("jar", "war", "ear", "aar", "hpi", "jpi");
+    private static final Pattern EMBEDDED_POM = Pattern.compile("META-INF/maven/[^/]+/[^/]+/pom\\.xml");
+
+    private final File repository;
+    private final List<ArtifactId> artifacts;
+
+    private Corpus(File repository, List<ArtifactId> artifacts) {
+        this.repository = repository;
+        this.artifacts = artifacts;
+    }
+
+    /**
+     * Get the directory to resolve the artifacts from, in the local repository layout.
+     *
+     * @return The repository.
+     */
+    File getRepository() {
+        return repository;
+    }
+
+    /**
+     * Get the artifacts, ordered by their coordinates.
+     * An artifact with an archive has the archive's extension, others are POM-only.
+     *
+     * @return The artifacts.
+     */
+    List<ArtifactId> getArtifacts() {
+        return artifacts;
+    }
+
+    /**
+     * Scan a directory.
+     *
+     * @param dir The directory.
+     * @param staging Empty directory to link loose files into.
+     * @return The corpus.
+     * @throws IOException If an I/O error occurs.
+     */
+    static Corpus scan(Path dir, Path staging) throws IOException {
+        Objects.requireNonNull(dir);
+        Objects.requireNonNull(staging);
+        if (!Files.isDirectory(dir)) {
+            throw new IOException("Not a directory: " + dir);
+        }
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(dir)) {
+            files = stream
+                    .filter(Files::isRegularFile)
+                    .filter(path -> extension(path).filter(ext -> ext.equals("pom") || ARCHIVES.contains(ext)).isPresent())
+                    .sorted()
+                    .toList();
+        }
+
+        // Files by coordinates, then by extension
+        Map<PackageId, Map<String, Path>> laidOut = new HashMap<>();
+        Map<PackageId, Map<String, Path>> loose = new HashMap<>();
+        for (var file : files) {
+            var ext = extension(file).orElseThrow();
+            var id = fromLayout(dir, file, ext);
+            if (id.isPresent()) {
+                laidOut.computeIfAbsent(id.get(), key -> new LinkedHashMap<>()).put(ext, file);
+                continue;
+            }
+
+            try {
+                if (ext.equals("pom")) {
+                    loose.computeIfAbsent(coordinates(readPom(file)), key -> new LinkedHashMap<>()).putIfAbsent(ext, file);
+                } else {
+                    var embedded = embeddedPom(file);
+                    if (embedded.isEmpty()) {
+                        LOGGER.warn("Skipping {}: no embedded POM", file);
+                        continue;
+                    }
+                    var map = loose.computeIfAbsent(coordinates(embedded.get()), key -> new LinkedHashMap<>());
+                    map.putIfAbsent(ext, file);
+                    // Marks the POM to be taken from the archive if there is no loose one
+                    map.putIfAbsent("pom", file);
+                }
+            } catch (IOException | XmlPullParserException | IllegalArgumentException exception) {
+                LOGGER.warn("Skipping {}", file, exception);
+            }
+        }
+
+        var repository = dir;
+        if (!loose.isEmpty()) {
+            LOGGER.info("Linking {} loose and {} laid out artifacts into {}", loose.size(), laidOut.size(), staging);
+            for (var entry : laidOut.entrySet()) {
+                for (var file : entry.getValue().entrySet()) {
+                    stage(staging, entry.getKey(), file.getKey(), file.getValue());
+                }
+            }
+            for (var entry : loose.entrySet()) {
+                for (var file : entry.getValue().entrySet()) {
+                    stage(staging, entry.getKey(), file.getKey(), file.getValue());
+                }
+            }
+            repository = staging;
+        }
+
+        Map<PackageId, Map<String, Path>> all = new HashMap<>(laidOut);
+        loose.forEach((id, map) -> all.merge(id, map, (a, b) -> {
+            Map<String, Path> merged = new LinkedHashMap<>(a);
+            b.forEach(merged::putIfAbsent);
+            return merged;
+        }));
+
+        List<ArtifactId> artifacts = new ArrayList<>();
+        for (var entry : all.entrySet()) {
+            var id = entry.getKey();
+            var extensions = entry.getValue().keySet();
+            if (!extensions.contains("pom")) {
+                LOGGER.warn("Skipping {}: no POM", id);
+                continue;
+            }
+            var ext = extensions.stream().filter(ARCHIVES::contains).findFirst().orElse("pom");
+            artifacts.add(new ArtifactId(id.group(), id.artifact(), id.version(), ext));
+        }
+        artifacts.sort((a, b) -> a.toString().compareTo(b.toString()));
+
+        return new Corpus(repository.toFile(), Collections.unmodifiableList(artifacts));
+    }
+
+    /**
+     * Get the coordinates of a file in the local repository layout.
+     * Files with a classifier are not recognized.
+     */
+    private static Optional<PackageId> fromLayout(Path dir, Path file, String ext) {
+        var relative = dir.relativize(file);
+        var count = relative.getNameCount();
+        if (count < 4) {
+            return Optional.empty();
+        }
+
+        var version = relative.getName(count - 2).toString();
+        var artifact = relative.getName(count - 3).toString();
+        if (!relative.getFileName().toString().equals(artifact + '-' + version + '.' + ext)) {
+            return Optional.empty();
+        }
+
+        List<String> group = new ArrayList<>();
+        relative.subpath(0, count - 3).forEach(part -> group.add(part.toString()));
+        return Optional.of(new PackageId(String.join(".", group), artifact, version));
+    }
+
+    /**
+     * Link a file into the staging repository, copying it if links are not supported.
+     * A POM marked to be taken from an archive is extracted from it.
+     */
+    private static void stage(Path staging, PackageId id, String ext, Path source) throws IOException {
+        var target = staging
+                .resolve(id.group().replace('.', File.separatorChar))
+                .resolve(id.artifact())
+                .resolve(id.version())
+                .resolve(id.artifact() + '-' + id.version() + '.' + ext);
+        if (Files.exists(target)) {
+            return;
+        }
+        Files.createDirectories(target.getParent());
+
+        if (ext.equals("pom") && !extension(source).orElseThrow().equals("pom")) {
+            try (var jar = new JarFile(source.toFile())) {
+                var entry = findEmbeddedPom(jar, source).orElseThrow(() -> new IOException("No embedded POM in " + source));
+                try (InputStream in = jar.getInputStream(entry)) {
+                    Files.copy(in, target);
+                }
+            }
+            return;
+        }
+
+        try {
+            Files.createSymbolicLink(target, source.toAbsolutePath());
+        } catch (UnsupportedOperationException | IOException exception) {
+            Files.copy(source, target);
+        }
+    }
+
+    private static Optional<Model> embeddedPom(Path archive) throws IOException, XmlPullParserException {
+        try (var jar = new JarFile(archive.toFile())) {
+            var entry = findEmbeddedPom(jar, archive);
+            if (entry.isEmpty()) {
+                return Optional.empty();
+            }
+            try (InputStream in = jar.getInputStream(entry.get())) {
+                return Optional.of(new MavenXpp3Reader().read(in, false));
+            }
+        }
+    }
+
+    /**
+     * Find the POM Maven embedded in an archive.
+     * A shaded archive embeds several; the one whose artifact id matches the file name is used.
+     */
+    private static Optional<JarEntry> findEmbeddedPom(JarFile jar, Path archive) {
+        List<JarEntry> candidates = jar.stream()
+                .filter(entry -> EMBEDDED_POM.matcher(entry.getName()).matches())
+                .toList();
+        if (candidates.size() == 1) {
+            return Optional.of(candidates.get(0));
+        }
+
+        var name = archive.getFileName().toString();
+        return candidates.stream()
+                .filter(entry -> name.startsWith(entry.getName().split("/")[3] + '-'))
+                .findFirst();
+    }
+
+    private static Model readPom(Path pom) throws IOException, XmlPullParserException {
+        try (InputStream in = Files.newInputStream(pom)) {
+            return new MavenXpp3Reader().read(in, false);
+        }
+    }
+
+    /**
+     * Get the coordinates of a POM, inheriting the group id and version from its parent.
+     */
+    private static PackageId coordinates(Model model) {
+        var parent = model.getParent();
+        var group = model.getGroupId() != null ? model.getGroupId() : parent == null ? null : parent.getGroupId();
+        var version = model.getVersion() != null ? model.getVersion() : parent == null ? null : parent.getVersion();
+        if (group == null || model.getArtifactId() == null || version == null) {
+            throw new IllegalArgumentException("Incomplete coordinates: " + group + ':' + model.getArtifactId() + ':' + version);
+        }
+        return new PackageId(group, model.getArtifactId(), version);
+    }
+
+    private static Optional<String> extension(Path file) {
+        var name = file.getFileName().toString();
+        var dot = name.lastIndexOf('.');
+        return dot < 0 ? Optional.empty() : Optional.of(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+}
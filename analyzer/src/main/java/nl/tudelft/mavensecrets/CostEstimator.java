@@ -0,0 +1,78 @@
+package nl.tudelft.mavensecrets;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Orders artifacts by their expected processing cost, most expensive first.
+ * The cost of an artifact is the size of its archive in the local repository or, failing that, as recorded by an earlier run of the size extractor.
+ * Artifacts of unknown size still have to be downloaded and are considered the most expensive.
+ */
+final class CostEstimator {
+
+    private static final Logger LOGGER = LogManager.getLogger(CostEstimator.class);
+    private static final long UNKNOWN = Long.MAX_VALUE;
+
+    private final Maven mvn;
+    private final Database db;
+
+    /**
+     * Create an estimator instance.
+     *
+     * @param mvn Maven instance, used to look up local archives.
+     * @param db Database, used to look up recorded sizes.
+     */
+    CostEstimator(Maven mvn, Database db) {
+        this.mvn = Objects.requireNonNull(mvn);
+        this.db = Objects.requireNonNull(db);
+    }
+
+    /**
+     * Sort artifacts by descending expected cost.
+     * Artifacts of equal cost keep their relative order.
+     *
+     * @param artifacts Artifacts.
+     * @return The sorted artifacts.
+     */
+    List<ArtifactId> order(Collection<? extends ArtifactId> artifacts) {
+        Objects.requireNonNull(artifacts);
+
+        Map<ArtifactId, Long> costs = new HashMap<>();
+        List<PackageId> missing = new ArrayList<>();
+        for (var id : artifacts) {
+            var size = mvn.getLocalArchiveSize(id);
+            costs.put(id, size < 0 ? UNKNOWN : size);
+            if (size < 0) {
+                missing.add(new PackageId(id.group(), id.artifact(), id.version()));
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            try {
+                Map<PackageId, Long> recorded = db.getArchiveSizes(missing);
+                for (var id : artifacts) {
+                    var size = recorded.get(new PackageId(id.group(), id.artifact(), id.version()));
+                    if (size != null) {
+                        costs.put(id, size);
+                    }
+                }
+            } catch (SQLException exception) {
+                LOGGER.warn("Could not look up recorded archive sizes", exception);
+            }
+        }
+
+        List<ArtifactId> ordered = new ArrayList<>(artifacts);
+        // List.sort is stable
+        ordered.sort(Comparator.comparingLong((ArtifactId id) -> costs.get(id)).reversed());
+        return ordered;
+    }
+}
@@ -2,12 +2,16 @@ package nl.tudelft.mavensecrets;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.postgresql.PGConnection;
+
+import nl.tudelft.mavensecrets.events.StatementEvent;
 
 import java.io.Closeable;
 import java.io.IOException;
 import java.sql.*;
 import java.sql.Date;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 // PackageId PKEY, Field 1, Value 1, Field 2, Value 2, etc
 public class Database implements Closeable {
@@ -19,9 +23,17 @@ public class Database implements Closeable {
     private static final String EXTENSION_TABLE = "extensions";
     private static final String UNRESOLVED_PACKAGES = "unresolved_packages";
     private static final String TEMP_TABLE = "package_list_distinct";
+    private static final String INDEX_STAGING_TABLE = "package_list_staging";
+    private static final String CHECKPOINT_TABLE = "checkpoints";
+    private static final String WORK_QUEUE_TABLE = "work_queue";
     private static final int BACKOFF_TIME_MS = 1000;
     private static final int BACKOFF_BASE = 2;
     private static final int BACKOFF_RETRIES = 3;
+    private static final int VALIDATION_INTERVAL_MS = 30000;
+    // Prepared statements kept open per connection
+    private static final int STATEMENT_CACHE_SIZE = 128;
+    // Bind parameters PostgreSQL accepts in one statement
+    private static final int MAX_PARAMETERS = 0xFFFF;
 
     static {
         // Legacy driver registring because Maven shade does funny things
@@ -32,18 +44,44 @@ public class Database implements Closeable {
         }
     }
 
-    private final Connection conn;
+    private final ConnectionPool pool;
+    // Connection of the transaction or session a thread is in, so its statements all run on it
+    private final ThreadLocal<Connection> bound = new ThreadLocal<>();
+    private final Map<Upsert, String> upserts = new ConcurrentHashMap<>();
+    // Tables and the types of their columns, loaded once and kept up to date by the DDL issued here
+    private volatile Map<String, Map<String, String>> catalog = null;
 
-    private Database(Connection conn) {
-        this.conn = conn;
+    private Database(ConnectionPool pool) {
+        this.pool = pool;
     }
 
     public static Database connect(String url, String user, String pass) throws SQLException {
+        return connect(url, user, pass, 1);
+    }
+
+    /**
+     * Connect to a database through a pool of connections, so threads do not wait for each other's statements.
+     * The first connection is opened right away, the others when they are needed.
+     *
+     * @param url JDBC url.
+     * @param user Username or <code>null</code>.
+     * @param pass Password or <code>null</code>.
+     * @param poolSize Maximum number of connections.
+     * @return The database.
+     * @throws SQLException If no connection could be opened.
+     */
+    public static Database connect(String url, String user, String pass, int poolSize) throws SQLException {
+        var pool = new ConnectionPool(() -> open(url, user, pass), poolSize, VALIDATION_INTERVAL_MS, STATEMENT_CACHE_SIZE);
+        pool.release(pool.acquire());
+        return new Database(pool);
+    }
+
+    private static Connection open(String url, String user, String pass) throws SQLException {
         LOGGER.trace("Attempting to connect to {}", url);
         var sleep = BACKOFF_TIME_MS;
         for (var i = 1;; i++) {
             try {
-                return new Database(DriverManager.getConnection(url, user, pass));
+                return DriverManager.getConnection(url, user, pass);
             } catch (SQLException ex) {
                 LOGGER.warn("Failed to connect to the database (attempt {})", i, ex);
                 if (i > BACKOFF_RETRIES)
@@ -97,10 +135,22 @@ public class Database implements Closeable {
         if (!tableExists(PACKAGES_TABLE))
             createTable(PACKAGES_TABLE);
 
-        Set<String> cols = listColumns(PACKAGES_TABLE);
-        for (var field : fields)
-            if (!cols.contains(field.name()))
+        var cols = catalog().getOrDefault(PACKAGES_TABLE, Map.of());
+        for (var field : fields) {
+            if (!field.isColumn()) {
+                createNewExtensionTable();
+                continue;
+            }
+
+            if (!cols.containsKey(field.name()))
                 createColumn(field, PACKAGES_TABLE);
+            else if (field.isArray() && !"ARRAY".equals(cols.get(field.name())))
+                convertColumn(field, PACKAGES_TABLE);
+
+            // Lets queries look for an element instead of scanning every row
+            if (field.isArray())
+                execute("CREATE INDEX IF NOT EXISTS " + PACKAGES_TABLE + "_" + field.name() + "_gin ON " + PACKAGES_TABLE + " USING GIN (" + field.name() + ")");
+        }
     }
 
     public void updateExtensionSchema(Field[] fields) throws SQLException{
@@ -112,34 +162,94 @@ public class Database implements Closeable {
     }
 
     private boolean tableExists(String name) throws SQLException {
-        var result = queryScalar("SELECT EXISTS(SELECT * FROM information_schema.tables WHERE table_name = '" + name + "')");
-        if (result instanceof Boolean)
-            return (Boolean) result;
+        if (catalog().containsKey(name))
+            return true;
+
+        // Another process may have created it since the catalog was loaded
+        refresh(name);
+        return catalog().containsKey(name);
+    }
+
+    /**
+     * Get the tables and their columns, loading them on first use.
+     * Tables created by other processes afterwards are looked up when they are missed, their columns are not.
+     */
+    private Map<String, Map<String, String>> catalog() throws SQLException {
+        var tables = catalog;
+        if (tables != null)
+            return tables;
+
+        synchronized (this) {
+            if (catalog == null) {
+                Map<String, Map<String, String>> loaded = new ConcurrentHashMap<>();
+                query("SELECT t.table_name, c.column_name, c.data_type FROM information_schema.tables t " +
+                        "LEFT JOIN information_schema.columns c ON c.table_schema = t.table_schema AND c.table_name = t.table_name " +
+                        "WHERE t.table_schema NOT IN ('pg_catalog', 'information_schema') AND t.table_schema NOT LIKE 'pg\\_temp\\_%'", new Object[0], results -> {
+                    while (results.next()) {
+                        var columns = loaded.computeIfAbsent(results.getString(1), key -> new ConcurrentHashMap<>());
+                        if (results.getString(2) != null)
+                            columns.put(results.getString(2), results.getString(3));
+                    }
+                    return null;
+                });
+                LOGGER.debug("Loaded the schema of {} tables", loaded.size());
+                catalog = loaded;
+            }
+            return catalog;
+        }
+    }
 
-        throw new RuntimeException("query didn't result in boolean");
+    /**
+     * Execute a statement changing the definition of a table and update its entry in the catalog, if that has been loaded.
+     *
+     * @param table The table.
+     * @param sql Statement.
+     * @throws SQLException If a database error occurs.
+     */
+    private void alter(String table, String sql) throws SQLException {
+        execute(sql);
+        if (catalog != null)
+            refresh(table);
+    }
+
+    private void refresh(String table) throws SQLException {
+        var tables = catalog();
+
+        Map<String, String> columns = new ConcurrentHashMap<>();
+        query("SELECT column_name, data_type FROM information_schema.columns WHERE table_name = ?", new Object[] {table}, results -> {
+            while (results.next())
+                columns.put(results.getString(1), results.getString(2));
+
+            return null;
+        });
+        // Every table created here has columns, so one without them has been dropped
+        if (columns.isEmpty())
+            tables.remove(table);
+        else
+            tables.put(table, columns);
     }
 
     private void createUnresolvedTable0() throws SQLException {
-        execute("CREATE TABLE " + UNRESOLVED_PACKAGES + "(groupid VARCHAR, artifactid VARCHAR, version VARCHAR, error VARCHAR, PRIMARY KEY (groupid, artifactid, version))");
+        alter(UNRESOLVED_PACKAGES, "CREATE TABLE IF NOT EXISTS " + UNRESOLVED_PACKAGES + "(groupid VARCHAR, artifactid VARCHAR, version VARCHAR, error VARCHAR, PRIMARY KEY (groupid, artifactid, version))");
     }
 
     private void createExtensionTable() throws SQLException {
-        conn.prepareStatement("CREATE TABLE " + EXTENSION_TABLE + "(id varchar(128)," +
+        alter(EXTENSION_TABLE, "CREATE TABLE IF NOT EXISTS " + EXTENSION_TABLE + "(id varchar(128)," +
                 "extension varchar(128)," +
                 "count BIGINT," +
                 "size BIGINT," +
                 "min BIGINT," +
                 "max BIGINT," +
                 "median BIGINT," +
-                "primary key (id, extension))").execute();
+                "primary key (id, extension))");
     }
 
     private void createTable(String tableName) throws SQLException {
-        execute("CREATE TABLE " + tableName + "(groupid VARCHAR, artifactid VARCHAR, version VARCHAR, updated TIMESTAMP NOT NULL DEFAULT NOW(), PRIMARY KEY (groupid, artifactid, version))");
+        alter(tableName, "CREATE TABLE IF NOT EXISTS " + tableName + "(groupid VARCHAR, artifactid VARCHAR, version VARCHAR, updated TIMESTAMP NOT NULL DEFAULT NOW(), PRIMARY KEY (groupid, artifactid, version))");
     }
 
     private void createIndexTable() throws SQLException {
-        execute("CREATE TABLE " + PACKAGE_INDEX_TABLE + "(groupid varchar," +
+        alter(PACKAGE_INDEX_TABLE, "CREATE TABLE IF NOT EXISTS " + PACKAGE_INDEX_TABLE + "(groupid varchar," +
                 "artifactid varchar," +
                 "version    varchar," +
                 "lastmodified date," +
@@ -148,7 +258,7 @@ public class Database implements Closeable {
     }
 
     private void createIndexTableWithPackaging() throws SQLException {
-        execute("CREATE TABLE " + PACKAGE_INDEX_TABLE_WITH_ALL_PACKAGING + "(groupid varchar," +
+        alter(PACKAGE_INDEX_TABLE_WITH_ALL_PACKAGING, "CREATE TABLE IF NOT EXISTS " + PACKAGE_INDEX_TABLE_WITH_ALL_PACKAGING + "(groupid varchar," +
             "artifactid varchar," +
             "version    varchar," +
             "lastmodified date," +
@@ -157,8 +267,8 @@ public class Database implements Closeable {
     }
 
     public void createSelectedTable() throws SQLException {
-        conn.prepareStatement("DROP TABLE IF EXISTS " + SELECTED_INDEX_TABLE).execute();
-        conn.prepareStatement(
+        alter(SELECTED_INDEX_TABLE, "DROP TABLE IF EXISTS " + SELECTED_INDEX_TABLE);
+        alter(SELECTED_INDEX_TABLE,
                 "create table " + SELECTED_INDEX_TABLE + """
                 (
                 groupid       varchar not null,
@@ -169,21 +279,25 @@ public class Database implements Closeable {
                 primary key (groupid, artifactid, version)
                 );
                 """
-        ).execute();
+        );
     }
 
     private Set<String> listColumns(String tableName) throws SQLException {
-        try (var results = query("SELECT column_name FROM information_schema.columns WHERE table_name = '" + tableName + "'")) {
-            var columns = new HashSet<String>();
-            while (results.next())
-                columns.add(results.getString(1));
+        var columns = catalog().get(tableName);
+        return columns == null ? Set.of() : Collections.unmodifiableSet(columns.keySet());
+    }
 
-            return columns;
-        }
+    /**
+     * Convert a column of comma-separated values, possibly in brackets, to the array type of a field.
+     */
+    private void convertColumn(Field field, String tableName) throws SQLException {
+        LOGGER.info("Converting column {} of {} to {}", field.name(), tableName, field.type());
+        alter(tableName, "ALTER TABLE " + tableName + " ALTER COLUMN " + field.name() + " TYPE " + field.type() +
+                " USING regexp_split_to_array(NULLIF(btrim(" + field.name() + ", '[]'), ''), ',\\s*')");
     }
 
     private void createColumn(Field field, String tableName) throws SQLException {
-        execute("ALTER TABLE " + tableName + " ADD COLUMN " + field.name() + " " + field.type() + " NULL");
+        alter(tableName, "ALTER TABLE " + tableName + " ADD COLUMN IF NOT EXISTS " + field.name() + " " + field.type() + " NULL");
     }
 
     // Don't call it without being sure of schema
@@ -191,78 +305,335 @@ public class Database implements Closeable {
         if (fields.length != values.length)
             throw new IllegalArgumentException("number of fields and values is different");
 
-        StringBuilder names = new StringBuilder("groupid,artifactid,version");
-        StringBuilder qe = new StringBuilder("?,?,?");
-        StringBuilder upd = new StringBuilder();
-        for (var field : fields) {
-            names.append(",").append(field.name());
-            qe.append(",?");
-            if (!upd.isEmpty())
-                upd.append(",");
-
-            upd.append(field.name()).append("=?");
+        if (updatePackageTable && !isColumns(fields)) {
+            transaction(() -> {
+                update(id, columns(fields), columns(fields, values), true);
+                insertExtensions(fields, List.of(id), List.<Object[]>of(values));
+            });
+            return;
         }
 
-        Object[] arguments = new Object[fields.length * 2 + 3];
+        Object[] arguments = new Object[fields.length + 3];
         arguments[0] = id.group();
         arguments[1] = id.artifact();
         arguments[2] = id.version();
-        for (var i = 0; i < fields.length; i++)
-            arguments[i + fields.length + 3] = arguments[i + 3] = values[i];
+        System.arraycopy(values, 0, arguments, 3, values.length);
+
+        execute(upsertStatement(updatePackageTable ? PACKAGES_TABLE : EXTENSION_TABLE, fields, 1), arguments, id);
+    }
+
+    /**
+     * Insert or update the rows of several packages with multi-row statements.
+     * Every value is bound once; on conflict the columns are set from <code>EXCLUDED</code>.
+     * If a package occurs more than once, its last row wins.
+     * Run it in a {@link #transaction(Throttle.Action)} to write all rows or none.
+     *
+     * @param fields Fields, the same for every row.
+     * @param ids Package ids.
+     * @param values Values of every package, one per field.
+     * @param updatePackageTable Whether to write to the packages table rather than the extensions table.
+     * @throws SQLException If a database error occurs.
+     */
+    void upsert(Field[] fields, List<? extends PackageId> ids, List<Object[]> values, boolean updatePackageTable) throws SQLException {
+        if (ids.size() != values.size())
+            throw new IllegalArgumentException("number of ids and rows is different");
+
+        if (updatePackageTable && !isColumns(fields)) {
+            List<Object[]> rows = new ArrayList<>(values.size());
+            for (var row : values) {
+                if (row.length != fields.length)
+                    throw new IllegalArgumentException("number of fields and values is different");
+
+                rows.add(columns(fields, row));
+            }
+            transaction(() -> {
+                upsert(columns(fields), ids, rows, true);
+                insertExtensions(fields, ids, values);
+            });
+            return;
+        }
+
+        // A statement may not update a row twice
+        Map<PackageId, Object[]> rows = new LinkedHashMap<>();
+        for (var i = 0; i < ids.size(); i++) {
+            var id = ids.get(i);
+            if (values.get(i).length != fields.length)
+                throw new IllegalArgumentException("number of fields and values is different");
+
+            var key = new PackageId(id.group(), id.artifact(), id.version());
+            rows.remove(key);
+            rows.put(key, values.get(i));
+        }
 
         var table = updatePackageTable ? PACKAGES_TABLE : EXTENSION_TABLE;
-        execute("INSERT INTO " + table + "(" + names + ") VALUES (" + qe + ") ON CONFLICT(groupid,artifactid,version) DO UPDATE SET updated = DEFAULT," + upd, arguments);
+        var width = fields.length + 3;
+        var chunk = MAX_PARAMETERS / width;
+        List<Map.Entry<PackageId, Object[]>> entries = new ArrayList<>(rows.entrySet());
+        for (var from = 0; from < entries.size(); from += chunk) {
+            var part = entries.subList(from, Math.min(from + chunk, entries.size()));
+            Object[] arguments = new Object[part.size() * width];
+            var i = 0;
+            for (var entry : part) {
+                arguments[i++] = entry.getKey().group();
+                arguments[i++] = entry.getKey().artifact();
+                arguments[i++] = entry.getKey().version();
+                System.arraycopy(entry.getValue(), 0, arguments, i, fields.length);
+                i += fields.length;
+            }
+            execute(upsertStatement(table, fields, part.size()), arguments, null, part.size());
+        }
+    }
+
+    private static boolean isColumns(Field[] fields) {
+        return Arrays.stream(fields).allMatch(Field::isColumn);
+    }
+
+    private static Field[] columns(Field[] fields) {
+        return Arrays.stream(fields).filter(Field::isColumn).toArray(Field[]::new);
+    }
+
+    private static Object[] columns(Field[] fields, Object[] values) {
+        List<Object> columns = new ArrayList<>(fields.length);
+        for (var i = 0; i < fields.length; i++)
+            if (fields[i].isColumn())
+                columns.add(values[i]);
+
+        return columns.toArray();
+    }
+
+    /**
+     * Write the extension statistics held by the values of several packages in one statement.
+     */
+    @SuppressWarnings("unchecked")
+    private void insertExtensions(Field[] fields, List<? extends PackageId> ids, List<Object[]> values) throws SQLException {
+        List<String> packages = new ArrayList<>();
+        List<ExtensionStats> extensions = new ArrayList<>();
+        for (var i = 0; i < ids.size(); i++) {
+            for (var j = 0; j < fields.length; j++) {
+                if (fields[j].isColumn() || values.get(i)[j] == null)
+                    continue;
+
+                for (var stats : (Collection<ExtensionStats>) values.get(i)[j]) {
+                    packages.add(ids.get(i).toString());
+                    extensions.add(stats);
+                }
+            }
+        }
+        insertExtensions(packages, extensions);
+    }
+
+    /**
+     * Get the statement upserting a number of rows, built once per table, fields and row count.
+     */
+    private String upsertStatement(String table, Field[] fields, int rows) {
+        return upserts.computeIfAbsent(new Upsert(table, Arrays.stream(fields).map(Field::name).toList(), rows), key -> {
+            StringJoiner names = new StringJoiner(",", "(", ")").add("groupid").add("artifactid").add("version");
+            StringJoiner row = new StringJoiner(",", "(", ")").add("?").add("?").add("?");
+            StringBuilder upd = new StringBuilder("updated = DEFAULT");
+            for (var name : key.columns()) {
+                names.add(name);
+                row.add("?");
+                upd.append(",").append(name).append("=EXCLUDED.").append(name);
+            }
+
+            StringJoiner placeholders = new StringJoiner(",");
+            for (var i = 0; i < key.rows(); i++)
+                placeholders.add(row.toString());
+
+            return "INSERT INTO " + key.table() + names + " VALUES " + placeholders + " ON CONFLICT(groupid,artifactid,version) DO UPDATE SET " + upd;
+        });
     }
 
     void updateIndexTable(String groupId, String artifactId, String version, Date lastModified, String packagingType) throws SQLException {
         execute("INSERT INTO " + PACKAGE_INDEX_TABLE + "(groupid, artifactid, version, lastmodified, packagingtype) VALUES(?,?,?,?,?) ON CONFLICT DO NOTHING", new Object[]{groupId, artifactId, version, lastModified, packagingType});
     }
 
-    // TODO UPDATE THIS
-    void batchUpdateIndexTable(List<String[]> indexedInfo) throws SQLException {
-       PreparedStatement query =  conn.prepareStatement("INSERT INTO " + PACKAGE_INDEX_TABLE + " "
-               + "(groupid, artifactid, version, lastmodified, packagingtype) VALUES (?,?,?,?,?)");
-       for (String[] info : indexedInfo) {
-           query.setString(1, info[0]);
-           query.setString(2, info[1]);
-           query.setString(3, info[2]);
-           query.setDate(4, new Date(Long.parseLong(info[3])));
-           query.setString(5, info[4]);
-           query.addBatch();
-       }
-       query.executeBatch();
-    }
-
-    public void batchUpdateIndexTableWithPackaging(List<String[]> indexInfo) throws SQLException {
-        PreparedStatement query =  conn.prepareStatement("INSERT INTO " + PACKAGE_INDEX_TABLE_WITH_ALL_PACKAGING + " "
-            + "(groupid, artifactid, version, lastmodified, packagingtype) VALUES (?,?,?,?,?)");
-        for (String[] info : indexInfo) {
-            query.setString(1, info[0]);
-            query.setString(2, info[1]);
-            query.setString(3, info[2]);
-            query.setDate(4, new Date(Long.parseLong(info[3])));
-            query.setString(5, info[4]);
-            query.addBatch();
+    /**
+     * Bulk load index rows with <code>COPY</code>.
+     * Rows are streamed into an unlogged staging table as they are read and merged into the index tables at the end, skipping packages already in them.
+     * A package listed more than once keeps its most recently modified row.
+     *
+     * @param rows Rows of group id, artifact id, version, last modified time in epoch milliseconds and packaging type.
+     * @return The number of rows loaded.
+     * @throws SQLException If a database error occurs.
+     */
+    // One at a time, since loads share the staging table
+    synchronized long loadIndex(Iterator<String[]> rows) throws SQLException {
+        Objects.requireNonNull(rows);
+
+        createIndexesTable(false);
+        createIndexesTableWithAllPackaging(false);
+        // Staging rows need not survive a crash, so they skip the write-ahead log
+        execute("DROP TABLE IF EXISTS " + INDEX_STAGING_TABLE);
+        execute("CREATE UNLOGGED TABLE " + INDEX_STAGING_TABLE + "(groupid varchar, artifactid varchar, version varchar, lastmodified bigint, packagingtype varchar)");
+
+        var sql = "COPY " + INDEX_STAGING_TABLE + "(groupid, artifactid, version, lastmodified, packagingtype) FROM STDIN";
+        var event = new StatementEvent();
+        event.begin();
+        long loaded = 0;
+        try {
+            loaded = connected(connection -> {
+                try (var writer = new CopyWriter(connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql))) {
+                    while (rows.hasNext()) {
+                        writer.write(rows.next());
+                    }
+                    return writer.finish();
+                }
+            });
+        } catch (SQLException ex) {
+            event.failed = true;
+            LOGGER.error("Query {} failed", sql, ex);
+            throw ex;
+        } finally {
+            commit(event, sql, 0, null, (int) Math.min(loaded, Integer.MAX_VALUE));
         }
-        query.executeBatch();
+
+        // The session time zone is the JVM's, so dates match those of java.sql.Date
+        var select = " SELECT DISTINCT ON (%s) groupid, artifactid, version, to_timestamp(lastmodified / 1000.0)::date, packagingtype FROM " + INDEX_STAGING_TABLE
+                + " ORDER BY %<s, lastmodified DESC NULLS LAST ON CONFLICT DO NOTHING";
+        transaction(() -> {
+            execute("INSERT INTO " + PACKAGE_INDEX_TABLE + "(groupid, artifactid, version, lastmodified, packagingtype)"
+                    + String.format(select, "groupid, artifactid, version"));
+            execute("INSERT INTO " + PACKAGE_INDEX_TABLE_WITH_ALL_PACKAGING + "(groupid, artifactid, version, lastmodified, packagingtype)"
+                    + String.format(select, "groupid, artifactid, version, packagingtype"));
+            execute("DROP TABLE " + INDEX_STAGING_TABLE);
+        });
+        return loaded;
     }
 
     void updateUnresolvedTable(ArtifactId id, String error) throws SQLException {
         execute("INSERT INTO " + UNRESOLVED_PACKAGES + "(groupid,artifactid,version, error) VALUES(?,?,?,?) ON CONFLICT DO NOTHING",
-                new Object[] { id.group(), id.artifact(), id.version(), error });
+                new Object[] { id.group(), id.artifact(), id.version(), error }, id);
+    }
+
+    /**
+     * Record why several packages could not be processed with multi-row statements.
+     * Packages that already have a reason keep it.
+     *
+     * @param ids Package ids.
+     * @param errors Reasons, one per package.
+     * @throws SQLException If a database error occurs.
+     */
+    void batchUpdateUnresolvedTable(List<? extends PackageId> ids, List<String> errors) throws SQLException {
+        if (ids.size() != errors.size())
+            throw new IllegalArgumentException("number of ids and errors is different");
+
+        var chunk = MAX_PARAMETERS / 4;
+        for (var from = 0; from < ids.size(); from += chunk) {
+            var to = Math.min(from + chunk, ids.size());
+            StringJoiner placeholders = new StringJoiner(",");
+            Object[] arguments = new Object[(to - from) * 4];
+            var i = 0;
+            for (var j = from; j < to; j++) {
+                var id = ids.get(j);
+                placeholders.add("(?,?,?,?)");
+                arguments[i++] = id.group();
+                arguments[i++] = id.artifact();
+                arguments[i++] = id.version();
+                arguments[i++] = errors.get(j);
+            }
+            execute("INSERT INTO " + UNRESOLVED_PACKAGES + "(groupid,artifactid,version,error) VALUES " + placeholders + " ON CONFLICT DO NOTHING", arguments, null, to - from);
+        }
+    }
+
+    /**
+     * Run statements in a single transaction, committing if they all succeed and rolling back otherwise.
+     * The statements run on a connection of their own, so statements of other threads do not end up in the transaction.
+     * A transaction inside another one is part of it.
+     *
+     * @param action The statements.
+     * @throws SQLException If a database error occurs.
+     */
+    void transaction(Throttle.Action<SQLException> action) throws SQLException {
+        connected(connection -> {
+            if (!connection.getAutoCommit()) {
+                action.run();
+                return null;
+            }
+
+            connection.setAutoCommit(false);
+            try {
+                action.run();
+                connection.commit();
+            } catch (SQLException | RuntimeException exception) {
+                try {
+                    connection.rollback();
+                } catch (SQLException exception1) {
+                    exception.addSuppressed(exception1);
+                }
+                throw exception;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Run statements on one connection, for statements that depend on session state such as temporary tables and session-level locks.
+     * Sessions and transactions inside the session share its connection.
+     *
+     * @param <E> Exception type.
+     * @param action The statements.
+     * @throws SQLException If a database error occurs.
+     * @throws E If the action fails.
+     */
+    public <E extends Exception> void session(Statements<E> action) throws SQLException, E {
+        Objects.requireNonNull(action);
+
+        connected(connection -> {
+            action.run();
+            return null;
+        });
     }
 
     public void updateExtensionTable(String id, String extension, long count, long size, long min, long max, long median) throws SQLException {
-        PreparedStatement query = conn.prepareStatement("INSERT INTO " + EXTENSION_TABLE +
-                "(id, extension, count, size, min, max, median) VALUES(?,?,?,?,?,?,?) ON CONFLICT DO NOTHING");
-        query.setString(1, id);
-        query.setString(2, extension);
-        query.setLong(3, count);
-        query.setLong(4, size);
-        query.setLong(5, min);
-        query.setLong(6, max);
-        query.setLong(7, median);
-        query.execute();
+        updateExtensionTable(id, List.of(new ExtensionStats(extension, count, size, min, max, median)));
+    }
+
+    /**
+     * Write the statistics of all extensions of a package in one statement.
+     *
+     * @param id Package id.
+     * @param extensions Statistics per extension.
+     * @throws SQLException If a database error occurs.
+     */
+    public void updateExtensionTable(String id, Collection<ExtensionStats> extensions) throws SQLException {
+        insertExtensions(Collections.nCopies(extensions.size(), id), extensions);
+    }
+
+    /**
+     * Write extension statistics of any number of packages in one statement.
+     * The rows are passed as one array per column, so the statement is the same for any number of rows and stays prepared.
+     *
+     * @param ids Package id of every row.
+     * @param extensions Statistics of every row.
+     * @throws SQLException If a database error occurs.
+     */
+    private void insertExtensions(List<String> ids, Collection<ExtensionStats> extensions) throws SQLException {
+        if (extensions.isEmpty())
+            return;
+
+        var packages = ids.toArray(String[]::new);
+        var names = new String[extensions.size()];
+        var counts = new long[names.length];
+        var sizes = new long[names.length];
+        var mins = new long[names.length];
+        var maxs = new long[names.length];
+        var medians = new long[names.length];
+        var i = 0;
+        for (var stats : extensions) {
+            names[i] = stats.extension();
+            counts[i] = stats.count();
+            sizes[i] = stats.size();
+            mins[i] = stats.min();
+            maxs[i] = stats.max();
+            medians[i] = stats.median();
+            i++;
+        }
+        execute("INSERT INTO " + EXTENSION_TABLE + "(id, extension, count, size, min, max, median) " +
+                "SELECT * FROM unnest(?::varchar[], ?::varchar[], ?::bigint[], ?::bigint[], ?::bigint[], ?::bigint[], ?::bigint[]) ON CONFLICT DO NOTHING",
+                new Object[] {packages, names, counts, sizes, mins, maxs, medians});
     }
 
 
@@ -270,49 +641,375 @@ public class Database implements Closeable {
      * @return list of package ids of packages to be fed to the runner
      */
     public List<ArtifactId> getArtifactIds(int page, int pageSize) throws SQLException {
-        List<ArtifactId> artifacts = new LinkedList<>();
-        if (!tableExists(PACKAGE_INDEX_TABLE))
+        return getPage(PACKAGE_INDEX_TABLE, null, (long) pageSize * page, pageSize);
+    }
+
+    /**
+     * Get the page of packages following a given package, in primary key order.
+     * Unlike an offset, the key is looked up in the index, so a page costs the same however far into the table it is.
+     *
+     * @param after Last package of the previous page or <code>null</code> for the first page.
+     * @param pageSize Page size.
+     * @return The packages.
+     */
+    public List<ArtifactId> getArtifactIds(PackageId after, int pageSize) throws SQLException {
+        return getPage(PACKAGE_INDEX_TABLE, after, 0, pageSize);
+    }
+
+    public List<ArtifactId> getSelectedPkgs(int page, int pageSize) throws SQLException {
+        return getPage(SELECTED_INDEX_TABLE, null, (long) pageSize * page, pageSize);
+    }
+
+    /**
+     * Get the page of selected packages following a given package, in primary key order.
+     *
+     * @param after Last package of the previous page or <code>null</code> for the first page.
+     * @param pageSize Page size.
+     * @return The packages.
+     * @see #getArtifactIds(PackageId, int)
+     */
+    public List<ArtifactId> getSelectedPkgs(PackageId after, int pageSize) throws SQLException {
+        return getPage(SELECTED_INDEX_TABLE, after, 0, pageSize);
+    }
+
+    /**
+     * Stream all packages in primary key order through a server-side cursor.
+     *
+     * @param fetchSize Rows fetched from the server at a time.
+     * @return The cursor.
+     * @see #streamSelectedPkgs(int)
+     */
+    public ArtifactCursor streamArtifactIds(int fetchSize) throws SQLException {
+        return stream(PACKAGE_INDEX_TABLE, fetchSize);
+    }
+
+    /**
+     * Stream the selected packages in primary key order through a server-side cursor.
+     * The cursor holds a connection of its own, outside autocommit, until it is exhausted or closed; the pool has one connection less meanwhile.
+     * Only a fetch of rows is held in memory at a time, and the query is planned and run once rather than once per page.
+     *
+     * @param fetchSize Rows fetched from the server at a time.
+     * @return The cursor.
+     */
+    public ArtifactCursor streamSelectedPkgs(int fetchSize) throws SQLException {
+        return stream(SELECTED_INDEX_TABLE, fetchSize);
+    }
+
+    private ArtifactCursor stream(String table, int fetchSize) throws SQLException {
+        if (fetchSize <= 0)
+            throw new IllegalArgumentException("Invalid fetch size: " + fetchSize);
+
+        if (!tableExists(table))
+            return new ArtifactCursor(null, null, null);
+
+        var sql = "SELECT groupid, artifactid, version, packagingtype FROM " + table + " ORDER BY groupid, artifactid, version";
+        var event = new StatementEvent();
+        event.begin();
+        var connection = pool.acquire();
+        PreparedStatement statement = null;
+        try {
+            // The driver only fetches through a cursor outside autocommit
+            connection.setAutoCommit(false);
+            statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            var cursor = new ArtifactCursor(connection, statement, statement.executeQuery());
+            LOGGER.trace("Streaming {} with fetch size {}", table, fetchSize);
+            return cursor;
+        } catch (SQLException ex) {
+            event.failed = true;
+            LOGGER.error("Query {} failed", sql, ex);
+            if (statement != null) {
+                try {
+                    statement.close();
+                } catch (SQLException ex1) {
+                    ex.addSuppressed(ex1);
+                }
+            }
+            release(connection, ex);
+            throw ex;
+        } finally {
+            commit(event, sql, 0, null, 1);
+        }
+    }
+
+    /**
+     * Give back a connection that was taken outside {@link #connected(ConnectionCall)}, ending its transaction.
+     */
+    private void release(Connection connection, SQLException failure) {
+        try {
+            connection.rollback();
+            connection.setAutoCommit(true);
+        } catch (SQLException ex) {
+            if (failure != null)
+                failure.addSuppressed(ex);
+
+            pool.discard(connection);
+            return;
+        }
+
+        if (failure != null && isBroken(connection, failure))
+            pool.discard(connection);
+        else
+            pool.release(connection);
+    }
+
+    private List<ArtifactId> getPage(String table, PackageId after, long offset, int pageSize) throws SQLException {
+        List<ArtifactId> artifacts = new ArrayList<>(pageSize);
+        // A later page implies the table exists
+        if (after == null && !tableExists(table))
             return artifacts;
 
-        try (var results = query("SELECT groupid, artifactid, version, packagingtype FROM " + PACKAGE_INDEX_TABLE + " ORDER BY groupid, artifactid, version LIMIT " + pageSize + " OFFSET " + pageSize * page)) {
+        String sql;
+        Object[] arguments;
+        if (after == null) {
+            sql = "SELECT groupid, artifactid, version, packagingtype FROM " + table + " ORDER BY groupid, artifactid, version LIMIT ? OFFSET ?";
+            arguments = new Object[] {pageSize, offset};
+        } else {
+            sql = "SELECT groupid, artifactid, version, packagingtype FROM " + table + " WHERE (groupid, artifactid, version) > (?, ?, ?) ORDER BY groupid, artifactid, version LIMIT ?";
+            arguments = new Object[] {after.group(), after.artifact(), after.version(), pageSize};
+        }
+        query(sql, arguments, results -> {
             while (results.next()) {
                 artifacts.add(new ArtifactId(results.getString("groupid"),
                         results.getString("artifactid"),
                         results.getString("version"),
                         results.getString("packagingtype")));
             }
-        }
+            return null;
+        });
 
         return artifacts;
     }
 
-
-    public List<ArtifactId> getSelectedPkgs(int page, int pageSize) throws SQLException {
-        List<ArtifactId> artifacts = new LinkedList<>();
-        if (!tableExists(SELECTED_INDEX_TABLE))
-            return artifacts;
-
-        try (var results = query("SELECT groupid, artifactid, version, packagingtype FROM " + SELECTED_INDEX_TABLE + " ORDER BY groupid, artifactid, version LIMIT " + pageSize + " OFFSET " + pageSize * page)) {
-
+    /**
+     * Get the archive sizes recorded by earlier runs of the size extractor.
+     *
+     * @param ids Package ids.
+     * @return The recorded sizes, only containing packages that have one.
+     */
+    Map<PackageId, Long> getArchiveSizes(Collection<? extends PackageId> ids) throws SQLException {
+        Map<PackageId, Long> sizes = new HashMap<>();
+        if (ids.isEmpty() || !tableExists(PACKAGES_TABLE) || !listColumns(PACKAGES_TABLE).contains("size"))
+            return sizes;
+
+        Object[] arguments = new Object[ids.size() * 3];
+        var sql = "SELECT groupid, artifactid, version, size FROM " + PACKAGES_TABLE + " WHERE size IS NOT NULL AND (groupid, artifactid, version) IN (" + keys(ids, arguments) + ")";
+        query(sql, arguments, results -> {
             while (results.next()) {
-                artifacts.add(new ArtifactId(results.getString("groupid"),
+                sizes.put(new PackageId(results.getString("groupid"),
                         results.getString("artifactid"),
-                        results.getString("version"),
-                        results.getString("packagingtype")));
+                        results.getString("version")),
+                        results.getLong("size"));
             }
+            return null;
+        });
+
+        return sizes;
+    }
+
+    /**
+     * Get which packages already have a row in the packages table or the unresolved packages table.
+     *
+     * @param ids Package ids.
+     * @return The processed packages among the ids.
+     */
+    Set<PackageId> getProcessed(Collection<? extends PackageId> ids) throws SQLException {
+        Set<PackageId> processed = new HashSet<>();
+        if (ids.isEmpty())
+            return processed;
+
+        for (var table : List.of(PACKAGES_TABLE, UNRESOLVED_PACKAGES)) {
+            if (!tableExists(table))
+                continue;
+
+            Object[] arguments = new Object[ids.size() * 3];
+            query("SELECT groupid, artifactid, version FROM " + table + " WHERE (groupid, artifactid, version) IN (" + keys(ids, arguments) + ")", arguments, results -> {
+                while (results.next()) {
+                    processed.add(new PackageId(results.getString("groupid"),
+                            results.getString("artifactid"),
+                            results.getString("version")));
+                }
+                return null;
+            });
         }
-        return artifacts;
+
+        return processed;
+    }
+
+    void createCheckpointTable() throws SQLException {
+        if (!tableExists(CHECKPOINT_TABLE))
+            alter(CHECKPOINT_TABLE, "CREATE TABLE IF NOT EXISTS " + CHECKPOINT_TABLE + "(run VARCHAR, page INTEGER, artifacts INTEGER, completed TIMESTAMP NOT NULL DEFAULT NOW(), PRIMARY KEY (run, page))");
+    }
+
+    /**
+     * Get the pages of a run whose artifacts have all been written.
+     *
+     * @param run Run key.
+     * @return The page indices.
+     */
+    Set<Integer> getCheckpoints(String run) throws SQLException {
+        Set<Integer> pages = new HashSet<>();
+        if (!tableExists(CHECKPOINT_TABLE))
+            return pages;
+
+        query("SELECT page FROM " + CHECKPOINT_TABLE + " WHERE run = ?", new Object[] {run}, results -> {
+            while (results.next())
+                pages.add(results.getInt("page"));
+
+            return null;
+        });
+
+        return pages;
+    }
+
+    /**
+     * Record that all artifacts of a page have been written.
+     *
+     * @param run Run key.
+     * @param page Page index.
+     * @param artifacts Number of artifacts written.
+     */
+    void checkpoint(String run, int page, int artifacts) throws SQLException {
+        execute("INSERT INTO " + CHECKPOINT_TABLE + "(run, page, artifacts) VALUES(?,?,?) ON CONFLICT(run, page) DO UPDATE SET artifacts = EXCLUDED.artifacts, completed = DEFAULT",
+                new Object[] {run, page, artifacts});
+    }
+
+    void clearCheckpoints(String run) throws SQLException {
+        execute("DELETE FROM " + CHECKPOINT_TABLE + " WHERE run = ?", new Object[] {run});
+    }
+
+    public long countArtifactIds() throws SQLException {
+        if (!tableExists(PACKAGE_INDEX_TABLE))
+            return 0;
+
+        return ((Number) queryScalar("SELECT COUNT(*) FROM " + PACKAGE_INDEX_TABLE)).longValue();
+    }
+
+    public long countSelectedPkgs() throws SQLException {
+        if (!tableExists(SELECTED_INDEX_TABLE))
+            return 0;
+
+        return ((Number) queryScalar("SELECT COUNT(*) FROM " + SELECTED_INDEX_TABLE)).longValue();
+    }
+
+    public void createWorkQueueTable() throws SQLException {
+        if (!tableExists(WORK_QUEUE_TABLE))
+            alter(WORK_QUEUE_TABLE, "CREATE TABLE IF NOT EXISTS " + WORK_QUEUE_TABLE + "(run VARCHAR, batch INTEGER, status VARCHAR NOT NULL DEFAULT 'pending', worker VARCHAR, lease_until TIMESTAMP, attempts INTEGER NOT NULL DEFAULT 0, artifacts INTEGER, completed TIMESTAMP, PRIMARY KEY (run, batch))");
+    }
+
+    /**
+     * Take a session-level lock on the work queue of a run, blocking until it is available.
+     * Used to set up the queue exactly once when several processes start together.
+     *
+     * @param run Run key.
+     */
+    public void lockWorkQueue(String run) throws SQLException {
+        execute("SELECT pg_advisory_lock(hashtext(?))", new Object[] {WORK_QUEUE_TABLE + ':' + run});
+    }
+
+    public void unlockWorkQueue(String run) throws SQLException {
+        execute("SELECT pg_advisory_unlock(hashtext(?))", new Object[] {WORK_QUEUE_TABLE + ':' + run});
+    }
+
+    /**
+     * Add batches to the work queue of a run.
+     *
+     * @param run Run key.
+     * @param batches Number of batches, numbered from <code>0</code>.
+     */
+    public void enqueueBatches(String run, int batches) throws SQLException {
+        execute("INSERT INTO " + WORK_QUEUE_TABLE + "(run, batch) SELECT ?, generate_series(0, ? - 1) ON CONFLICT DO NOTHING", new Object[] {run, batches});
+    }
+
+    /**
+     * Lease the first batch that is pending or whose lease expired.
+     * Batches locked by a concurrent claim are skipped rather than waited for.
+     *
+     * @param run Run key.
+     * @param worker Worker name.
+     * @param leaseSeconds Lease duration.
+     * @return The batch wrapped in an {@link OptionalInt}, empty if there is none.
+     */
+    public OptionalInt claimBatch(String run, String worker, int leaseSeconds) throws SQLException {
+        return query("UPDATE " + WORK_QUEUE_TABLE + " SET status = 'leased', worker = ?, lease_until = NOW() + ? * INTERVAL '1 second', attempts = attempts + 1 " +
+                "WHERE run = ? AND batch = (SELECT batch FROM " + WORK_QUEUE_TABLE + " WHERE run = ? AND (status = 'pending' OR (status = 'leased' AND lease_until < NOW())) " +
+                "ORDER BY batch LIMIT 1 FOR UPDATE SKIP LOCKED) RETURNING batch", new Object[] {worker, leaseSeconds, run, run},
+                results -> results.next() ? OptionalInt.of(results.getInt("batch")) : OptionalInt.empty());
+    }
+
+    /**
+     * Extend the leases of all batches a worker holds.
+     *
+     * @param run Run key.
+     * @param worker Worker name.
+     * @param leaseSeconds Lease duration from now.
+     */
+    public void renewLeases(String run, String worker, int leaseSeconds) throws SQLException {
+        execute("UPDATE " + WORK_QUEUE_TABLE + " SET lease_until = NOW() + ? * INTERVAL '1 second' WHERE run = ? AND worker = ? AND status = 'leased'",
+                new Object[] {leaseSeconds, run, worker});
+    }
+
+    /**
+     * Mark a leased batch as done.
+     * Nothing happens if the lease expired and another worker claimed the batch in the meantime.
+     *
+     * @param run Run key.
+     * @param batch Batch.
+     * @param worker Worker name.
+     * @param artifacts Number of artifacts written.
+     */
+    public void completeBatch(String run, int batch, String worker, int artifacts) throws SQLException {
+        execute("UPDATE " + WORK_QUEUE_TABLE + " SET status = 'done', artifacts = ?, completed = NOW(), lease_until = NULL WHERE run = ? AND batch = ? AND worker = ?",
+                new Object[] {artifacts, run, batch, worker});
+    }
+
+    /**
+     * Count the batches of a run by status.
+     *
+     * @param run Run key.
+     * @return The number of batches by status.
+     */
+    public Map<String, Long> getWorkQueueStatus(String run) throws SQLException {
+        Map<String, Long> counts = new TreeMap<>();
+        query("SELECT status, COUNT(*) FROM " + WORK_QUEUE_TABLE + " WHERE run = ? GROUP BY status", new Object[] {run}, results -> {
+            while (results.next())
+                counts.put(results.getString(1), results.getLong(2));
+
+            return null;
+        });
+
+        return counts;
+    }
+
+    /**
+     * Count the batches each worker completed.
+     *
+     * @param run Run key.
+     * @return The number of completed batches by worker.
+     */
+    public Map<String, Long> getWorkQueueProgress(String run) throws SQLException {
+        Map<String, Long> counts = new TreeMap<>();
+        query("SELECT worker, COUNT(*) FROM " + WORK_QUEUE_TABLE + " WHERE run = ? AND status = 'done' GROUP BY worker", new Object[] {run}, results -> {
+            while (results.next())
+                counts.put(results.getString(1), results.getLong(2));
+
+            return null;
+        });
+
+        return counts;
     }
 
     public Map<Integer, Integer> getYearCounts() throws SQLException {
         String sql = "SELECT date_part('year', lastmodified) AS year, COUNT(*)"
                 + "FROM " + PACKAGE_INDEX_TABLE
                 + " group by year ";
-        ResultSet rs = query(sql);
         Map<Integer, Integer> yearCounts = new HashMap<>();
-        while (rs.next()) {
-           yearCounts.put(rs.getInt(1), rs.getInt(2)) ;
-        }
+        query(sql, new Object[0], rs -> {
+            while (rs.next()) {
+               yearCounts.put(rs.getInt(1), rs.getInt(2)) ;
+            }
+            return null;
+        });
         return yearCounts;
     }
 
@@ -332,36 +1029,130 @@ public class Database implements Closeable {
 
     @Override
     public void close() throws IOException {
+        pool.close();
+    }
+
+    /**
+     * Create the placeholders of a <code>(groupid, artifactid, version) IN (...)</code> list.
+     *
+     * @param ids Package ids.
+     * @param arguments Array to write the arguments to, three per id.
+     * @return The placeholders.
+     */
+    private static String keys(Collection<? extends PackageId> ids, Object[] arguments) {
+        StringJoiner placeholders = new StringJoiner(",");
+        var i = 0;
+        for (var id : ids) {
+            placeholders.add("(?,?,?)");
+            arguments[i++] = id.group();
+            arguments[i++] = id.artifact();
+            arguments[i++] = id.version();
+        }
+
+        return placeholders.toString();
+    }
+
+    /**
+     * Run statements on the connection of the transaction or session this thread is in, or else on a connection from the pool.
+     * The connection is bound to the thread while they run, and is discarded instead of reused if it turns out to be broken.
+     */
+    private <T, E extends Exception> T connected(ConnectionCall<T, E> call) throws SQLException, E {
+        var connection = bound.get();
+        if (connection != null)
+            return call.call(connection);
+
+        connection = pool.acquire();
+        bound.set(connection);
+        var broken = false;
         try {
-            conn.close();
-        } catch (SQLException e) {
-            throw new IOException(e);
+            return call.call(connection);
+        } catch (SQLException ex) {
+            broken = isBroken(connection, ex);
+            throw ex;
+        } finally {
+            bound.remove();
+            if (broken) {
+                LOGGER.warn("Discarding broken database connection");
+                pool.discard(connection);
+            } else {
+                pool.release(connection);
+            }
         }
     }
 
-    private PreparedStatement prepare(String sql, Object[] arguments) throws SQLException {
-        var statement = conn.prepareStatement(sql);
-        for (var i = 0; i < arguments.length; i++)
-            statement.setObject(i + 1, arguments[i]);
+    private static boolean isBroken(Connection connection, SQLException ex) {
+        // Class 08 is a connection exception
+        if (ex.getSQLState() != null && ex.getSQLState().startsWith("08"))
+            return true;
 
-        return statement;
+        try {
+            return connection.isClosed();
+        } catch (SQLException ex1) {
+            return true;
+        }
     }
 
-    private ResultSet query(String sql) throws SQLException {
-        return query(sql, new Object[0]);
+    /**
+     * Run a statement, reusing the prepared statement of its connection if it has parameters.
+     * Statements without parameters are mostly DDL or have their values inlined, so they are not worth keeping.
+     *
+     * @param sql Statement.
+     * @param arguments Arguments.
+     * @param call Runs the prepared statement.
+     * @return What the call returned.
+     * @throws SQLException If a database error occurs.
+     */
+    private <T> T statement(String sql, Object[] arguments, StatementCall<T> call) throws SQLException {
+        return connected(connection -> {
+            if (arguments.length == 0) {
+                try (var statement = connection.prepareStatement(sql)) {
+                    return call.call(statement);
+                }
+            }
+
+            var statement = pool.statements(connection).prepare(sql);
+            try {
+                for (var i = 0; i < arguments.length; i++)
+                    statement.setObject(i + 1, arguments[i]);
+
+                return call.call(statement);
+            } finally {
+                // Do not hold on to the values until the statement is used again
+                if (!statement.isClosed())
+                    statement.clearParameters();
+            }
+        });
     }
 
-    private ResultSet query(String sql, Object[] arguments) throws SQLException {
-        ResultSet results;
+    /**
+     * Run a query and read its results before its connection is given back.
+     *
+     * @param sql Query.
+     * @param arguments Arguments.
+     * @param reader Reads the results.
+     * @return What the reader returned.
+     * @throws SQLException If a database error occurs.
+     */
+    private <T> T query(String sql, Object[] arguments, ResultReader<T> reader) throws SQLException {
+        var event = new StatementEvent();
+        event.begin();
+        T value;
         try {
-            results = prepare(sql, arguments).executeQuery();
+            value = statement(sql, arguments, statement -> {
+                try (var results = statement.executeQuery()) {
+                    return reader.read(results);
+                }
+            });
         } catch (SQLException ex) {
+            event.failed = true;
             LOGGER.error("Query {} failed", stringify(sql, arguments), ex);
             throw ex;
+        } finally {
+            commit(event, sql, arguments.length, null, 1);
         }
 
         LOGGER.trace("Queried {}", stringify(sql, arguments));
-        return results;
+        return value;
     }
 
     private Object queryScalar(String sql) throws SQLException {
@@ -369,20 +1160,16 @@ public class Database implements Closeable {
     }
 
     private Object queryScalar(String sql, Object[] arguments) throws SQLException {
-        Object value;
-        try {
-            try (ResultSet results = prepare(sql, arguments).executeQuery()) {
-                if (!results.next())
-                    throw new RuntimeException("query didn't return any rows");
+        var value = query(sql, arguments, results -> {
+            if (!results.next())
+                throw new RuntimeException("query didn't return any rows");
 
-                value = results.getObject(1);
-                if (results.next())
-                    throw new RuntimeException("query returned too many rows");
-            }
-        } catch (SQLException ex) {
-            LOGGER.error("Query {} failed", stringify(sql, arguments), ex);
-            throw ex;
-        }
+            var first = results.getObject(1);
+            if (results.next())
+                throw new RuntimeException("query returned too many rows");
+
+            return first;
+        });
 
         LOGGER.trace("Query {} returned '{}': {}", stringify(sql, arguments), value, value.getClass().getName());
         return value;
@@ -393,18 +1180,199 @@ public class Database implements Closeable {
     }
 
     private void execute(String sql, Object[] arguments) throws SQLException {
+        execute(sql, arguments, null);
+    }
+
+    /**
+     * Execute a statement.
+     *
+     * @param sql Statement.
+     * @param arguments Arguments.
+     * @param id Artifact the statement concerns, if any, for profiling.
+     * @throws SQLException If a database error occurs.
+     */
+    private void execute(String sql, Object[] arguments, PackageId id) throws SQLException {
+        execute(sql, arguments, id, 1);
+    }
+
+    /**
+     * Execute a statement writing one or more rows.
+     *
+     * @param sql Statement.
+     * @param arguments Arguments.
+     * @param id Artifact the statement concerns, if any, for profiling.
+     * @param rows Number of rows the statement writes, for profiling.
+     * @throws SQLException If a database error occurs.
+     */
+    private void execute(String sql, Object[] arguments, PackageId id, int rows) throws SQLException {
+        var event = new StatementEvent();
+        event.begin();
         try {
-            try (var statement = prepare(sql, arguments)) {
-                statement.execute();
-            }
+            statement(sql, arguments, statement -> {
+                if (statement.execute())
+                    statement.getResultSet().close();
+
+                return null;
+            });
         } catch (SQLException ex) {
+            event.failed = true;
             LOGGER.error("Query {} failed", stringify(sql, arguments), ex);
             throw ex;
+        } finally {
+            commit(event, sql, arguments.length, id, rows);
         }
 
         LOGGER.trace("Executed {}", stringify(sql, arguments));
     }
 
+    /**
+     * Commit a statement event if it is recorded, filling in its fields only then.
+     */
+    private static void commit(StatementEvent event, String sql, int parameters, PackageId id, int batch) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.sql = sql;
+            event.artifact = id == null ? null : id.toString();
+            event.parameters = parameters;
+            event.batch = batch;
+            event.commit();
+        }
+    }
+
+    /**
+     * Statements run in a session, which may fail with another exception as well.
+     */
+    @FunctionalInterface
+    public static interface Statements<E extends Exception> {
+
+        void run() throws SQLException, E;
+    }
+
+    /**
+     * Statements run on a connection.
+     */
+    @FunctionalInterface
+    private static interface ConnectionCall<T, E extends Exception> {
+
+        T call(Connection connection) throws SQLException, E;
+    }
+
+    /**
+     * Runs a prepared statement.
+     */
+    @FunctionalInterface
+    private static interface StatementCall<T> {
+
+        T call(PreparedStatement statement) throws SQLException;
+    }
+
+    /**
+     * Reads the results of a query.
+     */
+    @FunctionalInterface
+    private static interface ResultReader<T> {
+
+        T read(ResultSet results) throws SQLException;
+    }
+
+    /**
+     * Packages streamed from a server-side cursor, in primary key order.
+     * The connection goes back to the pool once the cursor is exhausted or closed.
+     * A cursor may only be used by one thread at a time.
+     */
+    public final class ArtifactCursor implements Closeable {
+
+        private Connection connection;
+        private PreparedStatement statement;
+        private ResultSet results;
+
+        private ArtifactCursor(Connection connection, PreparedStatement statement, ResultSet results) {
+            this.connection = connection;
+            this.statement = statement;
+            this.results = results;
+        }
+
+        /**
+         * Read the next packages.
+         *
+         * @param count Maximum number of packages.
+         * @return The packages, fewer than the count only at the end.
+         * @throws SQLException If a database error occurs.
+         */
+        public List<ArtifactId> next(int count) throws SQLException {
+            List<ArtifactId> artifacts = new ArrayList<>(count);
+            if (results == null)
+                return artifacts;
+
+            try {
+                while (artifacts.size() < count && results.next()) {
+                    artifacts.add(new ArtifactId(results.getString("groupid"),
+                            results.getString("artifactid"),
+                            results.getString("version"),
+                            results.getString("packagingtype")));
+                }
+            } catch (SQLException ex) {
+                LOGGER.error("Streaming packages failed", ex);
+                close(ex);
+                throw ex;
+            }
+
+            if (artifacts.size() < count)
+                close(null);
+
+            return artifacts;
+        }
+
+        /**
+         * Check whether the cursor is exhausted or closed.
+         *
+         * @return If no packages are left.
+         */
+        public boolean isClosed() {
+            return results == null;
+        }
+
+        @Override
+        public void close() {
+            close(null);
+        }
+
+        private void close(SQLException failure) {
+            if (connection == null)
+                return;
+
+            try {
+                results.close();
+                statement.close();
+            } catch (SQLException ex) {
+                LOGGER.debug("Could not close cursor", ex);
+            }
+            release(connection, failure);
+            connection = null;
+            statement = null;
+            results = null;
+        }
+    }
+
+    /**
+     * Size statistics of the files with one extension in a package.
+     *
+     * @param extension The extension.
+     * @param count Number of files.
+     * @param size Total compressed size.
+     * @param min Smallest compressed size.
+     * @param max Largest compressed size.
+     * @param median Median compressed size.
+     */
+    public static record ExtensionStats(String extension, long count, long size, long min, long max, long median) {
+    }
+
+    /**
+     * Key of a cached upsert statement.
+     */
+    private static record Upsert(String table, List<String> columns, int rows) {
+    }
+
     private static String stringify(String sql, Object[] arguments) {
         if (arguments.length == 0)
             return "`" + sql + "`";
@@ -0,0 +1,36 @@
+package nl.tudelft.mavensecrets;
+
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * A {@link ResultSink} writing to the <code>packages</code> and <code>unresolved_packages</code> tables.
+ */
+final class DatabaseSink implements ResultSink {
+
+    private final Database db;
+
+    DatabaseSink(Database db) {
+        this.db = Objects.requireNonNull(db);
+    }
+
+    @Override
+    public void prepare(Field[] fields) throws SQLException {
+        db.updateSchema(fields);
+    }
+
+    @Override
+    public void write(ArtifactId id, Field[] fields, Object[] values) throws SQLException {
+        db.update(id, fields, values, true);
+    }
+
+    @Override
+    public void unresolved(ArtifactId id, String reason) throws SQLException {
+        db.updateUnresolvedTable(id, reason);
+    }
+
+    @Override
+    public String toString() {
+        return "DatabaseSink";
+    }
+}
@@ -0,0 +1,95 @@
+package nl.tudelft.mavensecrets;
+
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.client.HttpResponseException;
+import org.apache.maven.model.building.ModelBuildingException;
+import org.apache.maven.model.io.ModelParseException;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
+import org.eclipse.aether.transfer.ArtifactTransferException;
+import org.eclipse.aether.transfer.ChecksumFailureException;
+
+/**
+ * Sorts resolution failures into transient ones, worth retrying, and permanent ones.
+ * Missing artifacts and broken POMs are permanent; timeouts, dropped connections, throttling and server errors are transient.
+ * Anything not recognized is considered permanent, so unknown failures are not retried forever.
+ */
+final class FailureClassifier {
+
+    private FailureClassifier() {
+        // Nothing
+    }
+
+    /**
+     * Check if a failure is transient.
+     *
+     * @param failure The failure.
+     * @return If retrying may succeed.
+     */
+    static boolean isTransient(Throwable failure) {
+        Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        var verdict = classify(failure, seen);
+        return verdict == Verdict.TRANSIENT;
+    }
+
+    private static Verdict classify(Throwable failure, Set<Throwable> seen) {
+        if (failure == null || !seen.add(failure)) {
+            return Verdict.UNKNOWN;
+        }
+
+        // Permanent causes win over transient ones further down
+        if (failure instanceof ArtifactNotFoundException || failure instanceof ModelParseException || failure instanceof ModelBuildingException) {
+            return Verdict.PERMANENT;
+        }
+        if (failure instanceof HttpResponseException response) {
+            var status = response.getStatusCode();
+            return status == 408 || status == 429 || status >= 500 ? Verdict.TRANSIENT : Verdict.PERMANENT;
+        }
+        if (failure instanceof InterruptedIOException // Includes socket timeouts
+                || failure instanceof ConnectException
+                || failure instanceof NoRouteToHostException
+                || failure instanceof UnknownHostException
+                || failure instanceof SocketException
+                || failure instanceof NoHttpResponseException
+                || failure instanceof ChecksumFailureException) {
+            return Verdict.TRANSIENT;
+        }
+
+        var verdict = Verdict.UNKNOWN;
+        if (failure instanceof ArtifactResolutionException resolution) {
+            for (ArtifactResult result : resolution.getResults()) {
+                for (var exception : result.getExceptions()) {
+                    verdict = verdict.and(classify(exception, seen));
+                }
+            }
+        }
+        verdict = verdict.and(classify(failure.getCause(), seen));
+        for (var suppressed : failure.getSuppressed()) {
+            verdict = verdict.and(classify(suppressed, seen));
+        }
+
+        // A transfer failure that is not a missing artifact is most likely the network
+        if (verdict == Verdict.UNKNOWN && failure instanceof ArtifactTransferException) {
+            return Verdict.TRANSIENT;
+        }
+        return verdict;
+    }
+
+    private static enum Verdict {
+        UNKNOWN, TRANSIENT, PERMANENT;
+
+        Verdict and(Verdict other) {
+            return values()[Math.max(ordinal(), other.ordinal())];
+        }
+    }
+}
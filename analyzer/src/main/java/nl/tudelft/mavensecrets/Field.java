@@ -1,5 +1,28 @@
 package nl.tudelft.mavensecrets;
 
 public record Field(String name, String type) {
-    // Nothing
+
+    /**
+     * Type of a field whose value is a collection of {@link Database.ExtensionStats}.
+     * They are written to the extension table together with the package's row, rather than to a column.
+     */
+    public static final String EXTENSION_STATS = "EXTENSION_STATS";
+
+    /**
+     * Check whether this field is a column of the packages table.
+     *
+     * @return If it is a column.
+     */
+    public boolean isColumn() {
+        return !EXTENSION_STATS.equals(type);
+    }
+
+    /**
+     * Check whether values of this field are arrays, written as <code>String[]</code> and stored as a PostgreSQL array.
+     *
+     * @return If the type is an array type.
+     */
+    public boolean isArray() {
+        return type.endsWith("[]");
+    }
 }
@@ -5,11 +5,14 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.*;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.apache.maven.index.reader.ChunkReader;
 
 public class IndexerReader {
 
-    private static final int BATCH_SIZE = 1 << 11;
+    private static final Logger LOGGER = LogManager.getLogger(IndexerReader.class);
     private final Database db;
 
     public IndexerReader(Database db) {
@@ -19,40 +22,64 @@ public class IndexerReader {
     public void indexerReader(File file) throws IOException, SQLException {
         Objects.requireNonNull(file);
 
-        db.createIndexesTable(false);
-        db.createIndexesTableWithAllPackaging(false);
-
-        List<String[]> indexInfo = new ArrayList<>();
-
+        long start = System.currentTimeMillis();
+        long rows;
         try (FileInputStream fileInputStream = new FileInputStream(file);
             ChunkReader reader = new ChunkReader("index", fileInputStream)) {
-            for (Map<String, String> chunk : reader) {
-                if (chunk.get("u") != null) {
-                    String[] tokens = (chunk.get("u").split("\\|"));
-                    String[] arti = (chunk.get("i").split("\\|"));
-                    String[] newList = new String[5];
-                    System.arraycopy(tokens, 0, newList, 0, 3);
-                    String epochDate = chunk.get("m");
-                    newList[3] = epochDate;
-                    newList[4] = arti[arti.length - 1];
-                    if (!newList[4].contains(".") && tokens[3].equals("NA")) {
-                        indexInfo.add(newList);
-                    }
-                    // Insert batch into database
-                    if (indexInfo.size() == BATCH_SIZE) {
-                        db.batchUpdateIndexTable(indexInfo);
-                        db.batchUpdateIndexTableWithPackaging(indexInfo);
-                        indexInfo.clear();
-                    }
+            // Rows are read while they are copied, so the index is never held in memory
+            rows = db.loadIndex(rows(reader.iterator()));
+        }
+        LOGGER.info("Loaded {} index rows from {} in {}ms", rows, file.getName(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Lazily convert index chunks to rows, skipping chunks that do not describe a main artifact.
+     *
+     * @param chunks Index chunks.
+     * @return Rows of group id, artifact id, version, last modified time and packaging type.
+     */
+    static Iterator<String[]> rows(Iterator<Map<String, String>> chunks) {
+        Objects.requireNonNull(chunks);
+
+        return new Iterator<>() {
+
+            private String[] next = null;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && chunks.hasNext()) {
+                    next = row(chunks.next());
                 }
+                return next != null;
             }
-        }
 
-        // Remainder that is not part of a batch
-        db.batchUpdateIndexTable(indexInfo);
-        db.batchUpdateIndexTableWithPackaging(indexInfo);
+            @Override
+            public String[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String[] row = next;
+                next = null;
+                return row;
+            }
+        };
     }
 
-}
-
+    private static String[] row(Map<String, String> chunk) {
+        if (chunk.get("u") == null) {
+            return null;
+        }
+        String[] tokens = (chunk.get("u").split("\\|"));
+        String[] arti = (chunk.get("i").split("\\|"));
+        String[] newList = new String[5];
+        System.arraycopy(tokens, 0, newList, 0, 3);
+        String epochDate = chunk.get("m");
+        newList[3] = epochDate;
+        newList[4] = arti[arti.length - 1];
+        if (!newList[4].contains(".") && tokens[3].equals("NA")) {
+            return newList;
+        }
+        return null;
+    }
 
+}
@@ -9,6 +9,9 @@ public final class JarUtils {
             return Optional.empty();
 
         var split = path.split("/");
-        return Arrays.stream(split).limit(split.length - 1).reduce((i, j) -> i + "." + j);
+        if (split.length < 2)
+            return Optional.empty();
+
+        return Optional.of(String.join(".", Arrays.asList(split).subList(0, split.length - 1)));
     }
 }
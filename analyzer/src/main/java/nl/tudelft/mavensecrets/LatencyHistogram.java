@@ -0,0 +1,140 @@
+package nl.tudelft.mavensecrets;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with log-linear buckets, in the style of HdrHistogram.
+ * Every power of two is split into 32 buckets, so a reported percentile is at most about 3% above the recorded value, from nanoseconds up to centuries.
+ * Recording is a few atomic increments, cheap enough to do for every operation.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Values below this have a bucket of their own
+    private static final int LINEAR = SUB_BUCKETS << 1;
+    private static final int BUCKETS = index(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos Latency in nanoseconds, negative values are recorded as <code>0</code>.
+     */
+    void record(long nanos) {
+        var value = Math.max(0, nanos);
+        counts.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Get the sum of the recorded latencies.
+     *
+     * @return The sum in nanoseconds.
+     */
+    long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Get the largest recorded latency.
+     *
+     * @return The maximum in nanoseconds, <code>0</code> if nothing was recorded.
+     */
+    long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Get the mean of the recorded latencies.
+     *
+     * @return The mean in nanoseconds, <code>0</code> if nothing was recorded.
+     */
+    double getMean() {
+        var n = getCount();
+        return n == 0 ? 0 : (double) getSum() / n;
+    }
+
+    /**
+     * Get a percentile of the recorded latencies.
+     * Concurrent recording may or may not be taken into account.
+     *
+     * @param percentile Percentile between <code>0</code> and <code>100</code>.
+     * @return The upper bound of the bucket holding the percentile in nanoseconds, capped at the maximum, or <code>0</code> if nothing was recorded.
+     */
+    long getPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Invalid percentile: " + percentile);
+        }
+
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (var i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        var rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (var i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%.1fms, p50=%.1fms, p90=%.1fms, p99=%.1fms, max=%.1fms",
+                getCount(), getMean() / 1e6, getPercentile(50) / 1e6, getPercentile(90) / 1e6, getPercentile(99) / 1e6, getMax() / 1e6);
+    }
+
+    /**
+     * Get the bucket of a value.
+     *
+     * @param value Non-negative value.
+     * @return The bucket index.
+     */
+    static int index(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+
+        // Keep the highest SUB_BUCKET_BITS + 1 bits
+        var shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * Get the largest value in a bucket.
+     *
+     * @param index The bucket index.
+     * @return The upper bound.
+     */
+    static long upperBound(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+
+        var shift = (index >> SUB_BUCKET_BITS) - 1;
+        var top = (long) (index & (SUB_BUCKETS - 1)) + SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+}
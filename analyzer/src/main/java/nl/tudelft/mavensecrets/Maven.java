@@ -14,46 +14,125 @@ import org.eclipse.aether.resolution.ArtifactResolutionException;
 import org.eclipse.aether.util.artifact.SubArtifact;
 
 import nl.tudelft.mavensecrets.resolver.Resolver;
+import nl.tudelft.mavensecrets.resolver.ThrottledResolver;
 
 public class Maven {
 
     private static final Logger LOGGER = LogManager.getLogger(Maven.class);
 
     private final Resolver resolver;
+    private final Throttle network;
+    private final Metrics metrics;
 
     public Maven(Resolver resolver) {
         this.resolver = Objects.requireNonNull(resolver);
+        this.network = Throttle.unlimited("network");
+        this.metrics = new Metrics();
+    }
+
+    /**
+     * Create an instance whose resolutions share a network limit.
+     *
+     * @param resolver Resolver.
+     * @param network Network throttle, also applied to {@link #getResolver()}.
+     */
+    public Maven(Resolver resolver, Throttle network) {
+        this(resolver, network, new Metrics());
+    }
+
+    /**
+     * Create an instance whose resolutions share a network limit and record their latencies.
+     *
+     * @param resolver Resolver.
+     * @param network Network throttle, also applied to {@link #getResolver()}.
+     * @param metrics Metrics recording archive and POM fetches in {@link #resolve(ArtifactId)}.
+     */
+    public Maven(Resolver resolver, Throttle network, Metrics metrics) {
+        this.resolver = new ThrottledResolver(resolver, network);
+        this.network = network;
+        this.metrics = Objects.requireNonNull(metrics);
     }
 
     public Package getPackage(ArtifactId id) throws PackageException {
+        return open(resolve(id));
+    }
+
+    /**
+     * Fetch the archive and POM of a package without opening the archive.
+     *
+     * @param id Artifact id.
+     * @return The resolved package.
+     * @throws PackageException If the POM cannot be loaded.
+     */
+    public ResolvedPackage resolve(ArtifactId id) throws PackageException {
         Objects.requireNonNull(id);
 
         Artifact artifact = resolver.createArtifact(id.group(), id.artifact(), id.version());
 
         File jar;
         try {
-            jar = id.extension().equals("pom") ? null : resolver.getJar(artifact, id.extension());
+            jar = id.extension().equals("pom") ? null : metrics.time("maven.archive", () -> resolver.getJar(artifact, id.extension()));
         } catch (ArtifactResolutionException exception) {
             LOGGER.warn("Could not fetch archive ({})", id, exception);
             jar = null;
         }
 
+        Model pomFile;
+        var started = System.nanoTime();
+        try {
+            pomFile = resolver.loadPom(artifact);
+        } catch (ArtifactResolutionException | IOException exception) {
+            throw new PackageException(id, "Could not fetch POM", exception);
+        } finally {
+            metrics.record("maven.pom", System.nanoTime() - started);
+        }
+
+        return new ResolvedPackage(id, jar, pomFile);
+    }
+
+    /**
+     * Open the archive of a resolved package.
+     * An archive that cannot be opened is treated as absent.
+     *
+     * @param resolved Resolved package.
+     * @return The package.
+     */
+    public Package open(ResolvedPackage resolved) {
+        Objects.requireNonNull(resolved);
+
+        File jar = resolved.archive();
         JarFile jf;
         try {
             jf = jar == null ? null : new JarFile(jar);
         } catch (IOException exception) {
-            LOGGER.warn("Could not open archive {} ({})", jar.getAbsolutePath(), id, exception);
+            LOGGER.warn("Could not open archive {} ({})", jar.getAbsolutePath(), resolved.id(), exception);
             jf = null;
         }
 
-        Model pomFile;
+        return new Package(resolved.id(), jf, resolved.pom());
+    }
+
+    /**
+     * Get the size of an artifact's archive in the local repository without resolving it.
+     *
+     * @param id Artifact id.
+     * @return The size in bytes, <code>0</code> for POM-only artifacts or <code>-1</code> if it is not available locally.
+     */
+    public long getLocalArchiveSize(ArtifactId id) {
+        Objects.requireNonNull(id);
+
+        if (id.extension().equals("pom")) {
+            return 0;
+        }
+
+        File file;
         try {
-            pomFile = resolver.loadPom(artifact);
-        } catch (ArtifactResolutionException | IOException exception) {
-            throw new PackageException(id, "Could not fetch POM", exception);
+            file = resolver.getLocalJar(resolver.createArtifact(id.group(), id.artifact(), id.version()), id.extension());
+        } catch (IllegalArgumentException exception) {
+            return -1;
         }
 
-        return new Package(id, jf, pomFile);
+        return file.isFile() ? file.length() : -1;
     }
 
     public Model getPom(PackageId id) throws PackageException {
@@ -102,4 +181,13 @@ public class Maven {
     public Resolver getResolver() {
         return resolver;
     }
+
+    /**
+     * Get the throttle for network access outside of the resolver, such as directory listings.
+     *
+     * @return The network throttle.
+     */
+    public Throttle getNetworkThrottle() {
+        return network;
+    }
 }
\ No newline at end of file
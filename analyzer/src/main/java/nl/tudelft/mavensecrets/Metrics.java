@@ -0,0 +1,355 @@
+package nl.tudelft.mavensecrets;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Latency histograms and throughput counters of a run.
+ * Latencies are recorded under a dotted name, such as <code>extract.JavaVersionExtractor</code> or <code>database.update</code>; histograms are created on first use.
+ * The metrics can be exposed over JMX and written in the Prometheus text format.
+ */
+public final class Metrics {
+
+    private static final Logger LOGGER = LogManager.getLogger(Metrics.class);
+    private static final String DOMAIN = "nl.tudelft.mavensecrets";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final long start = System.nanoTime();
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentSkipListMap<>();
+    private final LongAdder artifacts = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final Map<String, LongAdder> allocations = new ConcurrentSkipListMap<>();
+    private volatile MBeanServer server = null;
+
+    /**
+     * Record a latency.
+     *
+     * @param name Operation name.
+     * @param nanos Latency in nanoseconds.
+     */
+    public void record(String name, long nanos) {
+        latency(name).record(nanos);
+    }
+
+    /**
+     * Run an operation and record its latency, also if it fails.
+     *
+     * @param <T> Result type.
+     * @param <E> Exception type.
+     * @param name Operation name.
+     * @param call The operation.
+     * @return The operation's result.
+     * @throws E If the operation fails.
+     */
+    public <T, E extends Exception> T time(String name, Throttle.Call<T, E> call) throws E {
+        var histogram = latency(name);
+        var started = System.nanoTime();
+        try {
+            return call.call();
+        } finally {
+            histogram.record(System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Run an operation without a result and record its latency, also if it fails.
+     *
+     * @param <E> Exception type.
+     * @param name Operation name.
+     * @param action The operation.
+     * @throws E If the operation fails.
+     */
+    public <E extends Exception> void time(String name, Throttle.Action<E> action) throws E {
+        var histogram = latency(name);
+        var started = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            histogram.record(System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Count an artifact that was written, with or without values.
+     */
+    void artifact() {
+        artifacts.increment();
+    }
+
+    /**
+     * Count an artifact that could not be processed.
+     */
+    void failure() {
+        failures.increment();
+    }
+
+    /**
+     * Count bytes read from archives.
+     *
+     * @param bytes Number of bytes.
+     */
+    void read(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    /**
+     * Record bytes allocated by an operation.
+     *
+     * @param name Operation name.
+     * @param bytes Number of bytes.
+     */
+    void allocated(String name, long bytes) {
+        allocations.computeIfAbsent(name, key -> new LongAdder()).add(bytes);
+    }
+
+    /**
+     * Get the bytes allocated by an operation, summed over all its runs.
+     *
+     * @param name Operation name.
+     * @return The number of bytes, <code>0</code> if nothing was recorded.
+     */
+    long getAllocated(String name) {
+        var adder = allocations.get(name);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    long getArtifacts() {
+        return artifacts.sum();
+    }
+
+    long getFailures() {
+        return failures.sum();
+    }
+
+    long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * Get the average throughput since these metrics were created.
+     *
+     * @return Artifacts per second.
+     */
+    double getArtifactsPerSecond() {
+        var seconds = (System.nanoTime() - start) / 1e9;
+        return seconds <= 0 ? 0 : getArtifacts() / seconds;
+    }
+
+    /**
+     * Get a latency histogram, creating it if needed.
+     *
+     * @param name Operation name.
+     * @return The histogram.
+     */
+    LatencyHistogram latency(String name) {
+        Objects.requireNonNull(name);
+
+        var histogram = latencies.get(name);
+        if (histogram == null) {
+            var created = new LatencyHistogram();
+            histogram = latencies.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+                var platform = server;
+                if (platform != null) {
+                    register(platform, "type=Latency,name=" + ObjectName.quote(name), new Latency(created));
+                }
+            }
+        }
+        return histogram;
+    }
+
+    Map<String, LatencyHistogram> getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * Register these metrics with the platform MBean server, including histograms created later.
+     */
+    public void registerMBeans() {
+        var platform = ManagementFactory.getPlatformMBeanServer();
+        register(platform, "type=Throughput", new Throughput());
+        server = platform;
+        // Histograms created before this point
+        latencies.forEach((name, histogram) -> register(platform, "type=Latency,name=" + ObjectName.quote(name), new Latency(histogram)));
+    }
+
+    /**
+     * Write these metrics in the Prometheus text exposition format.
+     * Latencies are written as summaries in seconds.
+     *
+     * @param out Destination.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writePrometheus(Appendable out) throws IOException {
+        counter(out, "mavensecrets_artifacts_total", "Artifacts written, with or without values", getArtifacts());
+        counter(out, "mavensecrets_failures_total", "Artifacts that could not be processed", getFailures());
+        counter(out, "mavensecrets_read_bytes_total", "Archive bytes opened", getBytesRead());
+        out.append("# HELP mavensecrets_artifacts_per_second Average throughput since the start of the run\n")
+                .append("# TYPE mavensecrets_artifacts_per_second gauge\n")
+                .append("mavensecrets_artifacts_per_second ").append(format(getArtifactsPerSecond())).append('\n');
+
+        out.append("# HELP mavensecrets_latency_seconds Operation latency\n")
+                .append("# TYPE mavensecrets_latency_seconds summary\n");
+        for (var entry : latencies.entrySet()) {
+            var label = "operation=\"" + entry.getKey().replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+            var histogram = entry.getValue();
+            for (var quantile : QUANTILES) {
+                out.append("mavensecrets_latency_seconds{").append(label).append(",quantile=\"").append(String.valueOf(quantile)).append("\"} ")
+                        .append(format(histogram.getPercentile(quantile * 100) / 1e9)).append('\n');
+            }
+            out.append("mavensecrets_latency_seconds_sum{").append(label).append("} ").append(format(histogram.getSum() / 1e9)).append('\n');
+            out.append("mavensecrets_latency_seconds_count{").append(label).append("} ").append(String.valueOf(histogram.getCount())).append('\n');
+        }
+    }
+
+    /**
+     * Get a table of all metrics, for logging at the end of a run.
+     *
+     * @return The summary.
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder()
+                .append(String.format(Locale.ROOT, "%d artifacts (%.1f/s), %d failures, %d MiB read%n", getArtifacts(), getArtifactsPerSecond(), getFailures(), getBytesRead() >> 20))
+                .append(String.format(Locale.ROOT, "%-48s %10s %10s %10s %10s %10s %12s %12s%n", "operation", "count", "p50 ms", "p90 ms", "p99 ms", "max ms", "total s", "alloc MiB"));
+        latencies.forEach((name, histogram) -> sb.append(String.format(Locale.ROOT, "%-48s %10d %10.1f %10.1f %10.1f %10.1f %12.1f %12s%n",
+                name, histogram.getCount(), histogram.getPercentile(50) / 1e6, histogram.getPercentile(90) / 1e6, histogram.getPercentile(99) / 1e6, histogram.getMax() / 1e6, histogram.getSum() / 1e9,
+                allocations.containsKey(name) ? String.format(Locale.ROOT, "%.1f", getAllocated(name) / 1048576.0) : "-")));
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "Metrics[artifacts=%d, failures=%d, rate=%.1f/s]", getArtifacts(), getFailures(), getArtifactsPerSecond());
+    }
+
+    private static void counter(Appendable out, String name, String help, long value) throws IOException {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(" counter\n")
+                .append(name).append(' ').append(String.valueOf(value)).append('\n');
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    private static synchronized void register(MBeanServer server, String properties, Object bean) {
+        try {
+            var name = new ObjectName(DOMAIN + ':' + properties);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(bean, name);
+            }
+        } catch (JMException exception) {
+            LOGGER.warn("Could not register MBean {}", properties, exception);
+        }
+    }
+
+    /**
+     * Throughput counters as seen over JMX.
+     */
+    public static interface ThroughputMXBean {
+
+        long getArtifacts();
+
+        long getFailures();
+
+        long getBytesRead();
+
+        double getArtifactsPerSecond();
+    }
+
+    /**
+     * A latency histogram as seen over JMX, in milliseconds.
+     */
+    public static interface LatencyMXBean {
+
+        long getCount();
+
+        double getMeanMillis();
+
+        double getP50Millis();
+
+        double getP90Millis();
+
+        double getP99Millis();
+
+        double getMaxMillis();
+
+        double getTotalSeconds();
+    }
+
+    private final class Throughput implements ThroughputMXBean {
+
+        @Override
+        public long getArtifacts() {
+            return Metrics.this.getArtifacts();
+        }
+
+        @Override
+        public long getFailures() {
+            return Metrics.this.getFailures();
+        }
+
+        @Override
+        public long getBytesRead() {
+            return Metrics.this.getBytesRead();
+        }
+
+        @Override
+        public double getArtifactsPerSecond() {
+            return Metrics.this.getArtifactsPerSecond();
+        }
+    }
+
+    private static record Latency(LatencyHistogram histogram) implements LatencyMXBean {
+
+        @Override
+        public long getCount() {
+            return histogram.getCount();
+        }
+
+        @Override
+        public double getMeanMillis() {
+            return histogram.getMean() / 1e6;
+        }
+
+        @Override
+        public double getP50Millis() {
+            return histogram.getPercentile(50) / 1e6;
+        }
+
+        @Override
+        public double getP90Millis() {
+            return histogram.getPercentile(90) / 1e6;
+        }
+
+        @Override
+        public double getP99Millis() {
+            return histogram.getPercentile(99) / 1e6;
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return histogram.getMax() / 1e6;
+        }
+
+        @Override
+        public double getTotalSeconds() {
+            return TimeUnit.NANOSECONDS.toMillis(histogram.getSum()) / 1e3;
+        }
+    }
+}
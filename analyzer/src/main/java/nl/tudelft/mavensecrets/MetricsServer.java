@@ -0,0 +1,86 @@
+package nl.tudelft.mavensecrets;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local HTTP endpoint serving {@link Metrics} in the Prometheus text format at <code>/metrics</code>.
+ * It binds to the loopback address; in a container, publish the port to scrape it from outside.
+ */
+final class MetricsServer implements Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger(MetricsServer.class);
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer server;
+
+    private MetricsServer(HttpServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Start serving metrics.
+     *
+     * @param metrics Metrics to serve.
+     * @param address Address to bind to, <code>null</code> for the loopback address.
+     * @param port Port, <code>0</code> for any free port.
+     * @return The running server.
+     * @throws IOException If the port cannot be bound.
+     */
+    static MetricsServer start(Metrics metrics, InetAddress address, int port) throws IOException {
+        Objects.requireNonNull(metrics);
+        if (port < 0 || port > 0xFFFF) {
+            throw new IllegalArgumentException("Invalid port: " + port);
+        }
+
+        var server = HttpServer.create(new InetSocketAddress(address == null ? InetAddress.getLoopbackAddress() : address, port), 0);
+        server.createContext("/metrics", exchange -> serve(metrics, exchange));
+        // One scrape at a time is plenty
+        server.setExecutor(null);
+        server.start();
+        LOGGER.info("Serving metrics at http://{}:{}/metrics", server.getAddress().getHostString(), server.getAddress().getPort());
+        return new MetricsServer(server);
+    }
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private static void serve(Metrics metrics, HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET") && !exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            StringBuilder sb = new StringBuilder();
+            metrics.writePrometheus(sb);
+            byte[] body = sb.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package nl.tudelft.mavensecrets;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ResultSink} discarding everything, for measuring the extractors on their own.
+ */
+final class NopSink implements ResultSink {
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder unresolved = new LongAdder();
+
+    @Override
+    public void prepare(Field[] fields) {
+        // Nothing
+    }
+
+    @Override
+    public void write(ArtifactId id, Field[] fields, Object[] values) {
+        written.increment();
+    }
+
+    @Override
+    public void unresolved(ArtifactId id, String reason) {
+        unresolved.increment();
+    }
+
+    long getWritten() {
+        return written.sum();
+    }
+
+    long getUnresolved() {
+        return unresolved.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "NopSink[written=" + getWritten() + ", unresolved=" + getUnresolved() + ']';
+    }
+}
@@ -0,0 +1,91 @@
+package nl.tudelft.mavensecrets;
+
+import java.util.Arrays;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A page of artifacts handed to the {@link Runner}, collecting the latency of every artifact in it.
+ * The summary logged on completion shows how long the slowest artifacts kept the page open.
+ */
+final class Page {
+
+    private static final Logger LOGGER = LogManager.getLogger(Page.class);
+
+    private final int index;
+    private final long start;
+    private final long[] latencies;
+    private final long[] completions;
+    private int completed = 0;
+
+    /**
+     * Create a page and start its clock.
+     *
+     * @param index Page index.
+     * @param size Number of artifacts in the page.
+     */
+    Page(int index, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Invalid page size: " + size);
+        }
+        this.index = index;
+        this.start = System.nanoTime();
+        this.latencies = new long[size];
+        this.completions = new long[size];
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    int getSize() {
+        return latencies.length;
+    }
+
+    /**
+     * Record the completion of an artifact.
+     *
+     * @param queued {@link System#nanoTime()} at which the artifact was queued.
+     * @return If this was the last artifact of the page.
+     */
+    synchronized boolean complete(long queued) {
+        if (completed == latencies.length) {
+            throw new IllegalStateException("Page " + index + " already complete");
+        }
+        var now = System.nanoTime();
+        latencies[completed] = now - queued;
+        completions[completed] = now - start;
+        completed++;
+        return completed == latencies.length;
+    }
+
+    /**
+     * Log the latency distribution of a completed page.
+     * The tail is the time between completing 90% of the artifacts and completing all of them.
+     */
+    synchronized void report() {
+        var sorted = latencies.clone();
+        Arrays.sort(sorted);
+        // Completions are recorded in order
+        var wall = completions[completions.length - 1];
+        var tail = wall - completions[percentile(completions.length, 90)];
+
+        LOGGER.info("Page {}: {} artifacts in {} ms, latency p50 {} ms, p90 {} ms, p99 {} ms, max {} ms, tail {} ms",
+                index, sorted.length, millis(wall),
+                millis(sorted[percentile(sorted.length, 50)]),
+                millis(sorted[percentile(sorted.length, 90)]),
+                millis(sorted[percentile(sorted.length, 99)]),
+                millis(sorted[sorted.length - 1]),
+                millis(tail));
+    }
+
+    private static int percentile(int count, int percentile) {
+        // Nearest rank
+        return Math.max(0, (count * percentile + 99) / 100 - 1);
+    }
+
+    private static long millis(long nanos) {
+        return nanos / 1_000_000L;
+    }
+}
@@ -0,0 +1,133 @@
+package nl.tudelft.mavensecrets;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Objects;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import nl.tudelft.mavensecrets.config.Config;
+import nl.tudelft.mavensecrets.resolver.DefaultResolver;
+import nl.tudelft.mavensecrets.selection.ListSelector;
+
+/**
+ * Runs the configured extractors over a local {@link Corpus}, without a database or network, and reports the cost of every extractor.
+ * Values are discarded; extractors that query the database themselves fail on every artifact and are reported as such.
+ */
+final class Profiler {
+
+    private static final Logger LOGGER = LogManager.getLogger(Profiler.class);
+    private static final int PAGE_SIZE = 512;
+
+    private Profiler() {
+        // Nothing
+    }
+
+    /**
+     * Profile the extractors and print the report.
+     *
+     * @param config Configuration, of which the extractors, threads, stages, limits and timeouts are used.
+     * @param dir Directory of archives and POMs.
+     * @param out Destination of the report.
+     * @throws IOException If the corpus cannot be read.
+     * @throws InterruptedException If interrupted.
+     */
+    static void profile(Config config, Path dir, PrintStream out) throws IOException, InterruptedException {
+        Objects.requireNonNull(config);
+        Objects.requireNonNull(dir);
+        Objects.requireNonNull(out);
+
+        var staging = Files.createTempDirectory("mavensecrets-profile");
+        try {
+            var corpus = Corpus.scan(dir, staging);
+            LOGGER.info("Profiling {} artifacts in {}", corpus.getArtifacts().size(), corpus.getRepository());
+
+            // An empty remote, so anything missing from the corpus fails right away
+            var remote = Files.createDirectory(staging.resolve(".remote"));
+            var metrics = new Metrics();
+            var maven = new Maven(new DefaultResolver(corpus.getRepository(), remote.toUri().toString()), Throttle.unlimited("network"), metrics);
+            var sink = new NopSink();
+            var stages = config.getStages();
+            var limits = config.getLimits();
+            var timeouts = config.getTimeouts();
+            var builder = new RunnerBuilder()
+                    .setStageConcurrency(new Runner.StageConcurrency(stages.getResolve(), stages.getOpen(), stages.getExtract(), stages.getPersist(), stages.getQueueSize()))
+                    .setParallelExtractThreshold(stages.getParallelExtractThreshold())
+                    .setDiskThrottle(new Throttle("disk", limits.getDisk()))
+                    .setArchiveBudget(limits.getArchiveBytes())
+                    .setDefaultTimeout(timeouts.getDefault())
+                    .setCircuitBreaker(timeouts.getBreakerWindow(), timeouts.getBreakerThreshold(), timeouts.getBreakerCooldown())
+                    .setMetrics(metrics)
+                    .setSink(sink)
+                    .setAllocationTracking(true);
+            timeouts.getExtractors().forEach(builder::setTimeout);
+            config.getExtractors().forEach(builder::addExtractor);
+
+            var started = System.nanoTime();
+            try (var runner = builder.build(null)) {
+                runner.run(maven, new ListSelector(corpus.getArtifacts()), PAGE_SIZE);
+            } catch (SQLException exception) {
+                // Not expected without a database
+                throw new IOException("Profiling failed", exception);
+            }
+            var elapsed = System.nanoTime() - started;
+
+            report(config, metrics, sink, elapsed, out);
+        } finally {
+            delete(staging);
+        }
+    }
+
+    private static void report(Config config, Metrics metrics, NopSink sink, long elapsed, PrintStream out) {
+        var seconds = elapsed / 1e9;
+        out.printf(Locale.ROOT, "%d artifacts in %.1f s (%.1f/s), %d with values, %d unresolved, %d MiB read%n",
+                sink.getWritten() + sink.getUnresolved(), seconds, seconds <= 0 ? 0 : (sink.getWritten() + sink.getUnresolved()) / seconds,
+                sink.getWritten(), sink.getUnresolved(), metrics.getBytesRead() >> 20);
+        out.printf(Locale.ROOT, "%-40s %8s %10s %10s %10s %10s %12s %12s %12s%n",
+                "extractor", "runs", "mean ms", "p50 ms", "p99 ms", "total s", "alloc MiB", "alloc/run KiB", "runs/s");
+        for (var extractor : config.getExtractors()) {
+            var name = "extract." + extractor.getClass().getSimpleName();
+            var histogram = metrics.getLatencies().get(name);
+            if (histogram == null || histogram.getCount() == 0) {
+                out.printf(Locale.ROOT, "%-40s %8d%n", extractor.getClass().getSimpleName(), 0);
+                continue;
+            }
+            var runs = histogram.getCount();
+            var allocated = metrics.getAllocated(name);
+            var total = histogram.getSum() / 1e9;
+            out.printf(Locale.ROOT, "%-40s %8d %10.2f %10.2f %10.2f %10.2f %12.1f %12.1f %12.1f%n",
+                    extractor.getClass().getSimpleName(), runs, histogram.getMean() / 1e6, histogram.getPercentile(50) / 1e6, histogram.getPercentile(99) / 1e6,
+                    total, allocated / 1048576.0, allocated / 1024.0 / runs, total <= 0 ? 0 : runs / total);
+        }
+        out.flush();
+    }
+
+    private static void delete(Path dir) {
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path directory, IOException exception) throws IOException {
+                    Files.delete(directory);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException exception) {
+            LOGGER.warn("Could not delete {}", dir, exception);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package nl.tudelft.mavensecrets;
+
+import java.io.File;
+import org.apache.maven.model.Model;
+
+/**
+ * A package whose files have been fetched but not opened yet.
+ *
+ * @param id Package id.
+ * @param archive Archive location or <code>null</code> if there is none.
+ * @param pom Interpolated POM.
+ */
+public record ResolvedPackage(PackageId id, File archive, Model pom) {
+    // Nothing
+}
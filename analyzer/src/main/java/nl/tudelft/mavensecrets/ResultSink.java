@@ -0,0 +1,74 @@
+package nl.tudelft.mavensecrets;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Destination of the values the {@link Runner} extracts.
+ * A sink may buffer what it is given until it is flushed or closed.
+ */
+public interface ResultSink extends AutoCloseable {
+
+    /**
+     * Make sure values of the given fields can be written.
+     * Called once for every extractor before the run.
+     *
+     * @param fields Fields of an extractor.
+     * @throws SQLException If a database error occurs.
+     */
+    void prepare(Field[] fields) throws SQLException;
+
+    /**
+     * Write the values of an artifact.
+     *
+     * @param id Artifact id.
+     * @param fields Fields of all extractors.
+     * @param values Values, one per field, <code>null</code> where an extractor had no result.
+     * @throws SQLException If a database error occurs.
+     */
+    void write(ArtifactId id, Field[] fields, Object[] values) throws SQLException;
+
+    /**
+     * Record why an artifact could not be processed, or why some of its values are missing.
+     *
+     * @param id Artifact id.
+     * @param reason The reason.
+     * @throws SQLException If a database error occurs.
+     */
+    void unresolved(ArtifactId id, String reason) throws SQLException;
+
+    /**
+     * Write everything buffered so far.
+     *
+     * @throws SQLException If a database error occurs.
+     */
+    default void flush() throws SQLException {
+        // Nothing buffered
+    }
+
+    /**
+     * Write everything buffered so far, possibly in the background.
+     * Called before a page is recorded as completed; the page is recorded once the returned stage completes.
+     *
+     * @return A stage completed once the values written before this call are in the database, or completed exceptionally if they could not be written.
+     */
+    default CompletionStage<Void> durable() {
+        try {
+            flush();
+            return CompletableFuture.completedFuture(null);
+        } catch (SQLException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
+
+    /**
+     * Flush and release the sink.
+     *
+     * @throws SQLException If a database error occurs.
+     */
+    @Override
+    default void close() throws SQLException {
+        flush();
+    }
+}
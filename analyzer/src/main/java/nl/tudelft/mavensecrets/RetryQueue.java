@@ -0,0 +1,241 @@
+package nl.tudelft.mavensecrets;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Items waiting to be retried after a transient failure, worked on by workers of their own.
+ * An item waits an exponentially growing delay with full jitter: a random duration up to the base delay doubled once per earlier retry, capped at the maximum delay.
+ * The jitter keeps the retries of a burst of failures, for instance during a repository outage, from arriving at the same time.
+ */
+final class RetryQueue {
+
+    private static final Logger LOGGER = LogManager.getLogger(RetryQueue.class);
+
+    private final String name;
+    private final int attempts;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final int workers;
+    private final DelayQueue<Entry> queue = new DelayQueue<>();
+    private final ExecutorService pool;
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    // Items scheduled and not yet handled by a worker
+    private int pending = 0;
+
+    /**
+     * Create a retry queue.
+     * No work is done until {@link #start(Stage.Task, Stage.Failed)} is called.
+     *
+     * @param name Queue name.
+     * @param attempts Maximum number of retries per item.
+     * @param baseDelay Milliseconds the first retry waits at most.
+     * @param maxDelay Milliseconds any retry waits at most.
+     * @param workers Number of workers.
+     * @param factory Worker thread factory.
+     */
+    RetryQueue(String name, int attempts, long baseDelay, long maxDelay, int workers, ThreadFactory factory) {
+        this.name = Objects.requireNonNull(name);
+        if (attempts <= 0) {
+            throw new IllegalArgumentException("Invalid attempts: " + attempts);
+        }
+        if (baseDelay <= 0 || maxDelay < baseDelay) {
+            throw new IllegalArgumentException("Invalid delays: " + baseDelay + '-' + maxDelay);
+        }
+        if (workers <= 0) {
+            throw new IllegalArgumentException("Invalid worker count: " + workers);
+        }
+        this.attempts = attempts;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.workers = workers;
+        this.pool = Executors.newFixedThreadPool(workers, Objects.requireNonNull(factory));
+    }
+
+    /**
+     * Start the workers.
+     * The task may schedule the item it is given again.
+     *
+     * @param task Work done for every item once its delay has passed.
+     * @param failed Called with an item the task threw an unexpected exception or error on, so the item is not lost.
+     */
+    void start(Stage.Task<WorkItem> task, Stage.Failed<WorkItem> failed) {
+        Objects.requireNonNull(task);
+        Objects.requireNonNull(failed);
+
+        for (var i = 0; i < workers; i++) {
+            pool.execute(() -> work(task, failed));
+        }
+    }
+
+    /**
+     * Schedule a retry of an item, clearing its failure.
+     *
+     * @param item The item.
+     * @return <code>false</code> if the item has no retries left, in which case it is left untouched.
+     */
+    boolean schedule(WorkItem item) {
+        Objects.requireNonNull(item);
+
+        if (item.attempts() >= attempts) {
+            exhausted.increment();
+            return false;
+        }
+
+        var delay = delay(item.attempts());
+        LOGGER.debug("Retrying {} in {} ms after: {}", item, delay, item.failure());
+        item.retry();
+        synchronized (this) {
+            pending++;
+        }
+        scheduled.increment();
+        queue.put(new Entry(item, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay)));
+        return true;
+    }
+
+    /**
+     * Wait for every scheduled item to be handled, including retries scheduled meanwhile, and stop the workers.
+     * Nothing may be scheduled from outside the workers after calling this method.
+     *
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    void finish() throws InterruptedException {
+        synchronized (this) {
+            while (pending > 0) {
+                wait();
+            }
+        }
+        // The workers are idle, waiting for an item that never comes
+        pool.shutdownNow();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Discard the items still waiting for their delay, leaving the workers and the retries they are working on alone.
+     *
+     * @return The discarded items.
+     */
+    List<WorkItem> discard() {
+        List<Entry> rest = new ArrayList<>();
+        queue.drainTo(rest, Integer.MAX_VALUE);
+        // A worker may take an item meanwhile, so only count those actually removed
+        for (var entry : queue) {
+            if (queue.remove(entry)) {
+                rest.add(entry);
+            }
+        }
+        synchronized (this) {
+            pending -= rest.size();
+            if (pending <= 0) {
+                pending = 0;
+                notifyAll();
+            }
+        }
+        return rest.stream().map(Entry::item).toList();
+    }
+
+    /**
+     * Interrupt the workers and discard the queue.
+     *
+     * @return The items that were still waiting.
+     */
+    List<WorkItem> abort() {
+        pool.shutdownNow();
+        List<Entry> rest = new ArrayList<>();
+        queue.drainTo(rest, Integer.MAX_VALUE);
+        // Also those whose delay has not passed
+        rest.addAll(queue);
+        queue.clear();
+        synchronized (this) {
+            pending = 0;
+            notifyAll();
+        }
+        return rest.stream().map(Entry::item).toList();
+    }
+
+    /**
+     * Get the delay before a retry.
+     *
+     * @param attempt Number of earlier retries.
+     * @return The delay in milliseconds.
+     */
+    long delay(int attempt) {
+        var ceiling = attempt >= Long.numberOfLeadingZeros(baseDelay) - 1 ? maxDelay : Math.min(maxDelay, baseDelay << attempt);
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    synchronized int getPending() {
+        return pending;
+    }
+
+    long getScheduled() {
+        return scheduled.sum();
+    }
+
+    long getExhausted() {
+        return exhausted.sum();
+    }
+
+    @Override
+    public String toString() {
+        return name + "[pending=" + getPending() + ", scheduled=" + getScheduled() + ", exhausted=" + getExhausted() + ']';
+    }
+
+    private void work(Stage.Task<WorkItem> task, Stage.Failed<WorkItem> failed) {
+        try {
+            while (true) {
+                var item = queue.take().item();
+                try {
+                    task.accept(item);
+                } catch (RuntimeException | Error exception) { // Keep the worker alive
+                    LOGGER.error("Retry of {} failed", item, exception);
+                    try {
+                        failed.accept(item, exception);
+                    } catch (RuntimeException exception1) {
+                        LOGGER.error("Could not hand on failed retry of {}", item, exception1);
+                    }
+                } finally {
+                    synchronized (this) {
+                        if (pending > 0 && --pending == 0) {
+                            notifyAll();
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * An item in the delay queue.
+     *
+     * @param item The item.
+     * @param due {@link System#nanoTime()} at which the item is retried.
+     */
+    private static record Entry(WorkItem item, long due) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(due - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(due, ((Entry) other).due);
+        }
+    }
+}
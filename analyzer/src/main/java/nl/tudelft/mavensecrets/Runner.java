@@ -2,33 +2,140 @@ package nl.tudelft.mavensecrets;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
 
+import nl.tudelft.mavensecrets.events.ExtractEvent;
+import nl.tudelft.mavensecrets.events.StageEvent;
 import nl.tudelft.mavensecrets.extractors.Extractor;
+import nl.tudelft.mavensecrets.selection.PackageSelector;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 public class Runner implements Closeable {
     private static final Logger LOGGER = LogManager.getLogger(Runner.class);
+    private static final long REPORT_INTERVAL_SECONDS = 30;
     private final Database db;
+    private final ResultSink sink;
+    private final Throttle writes;
     private final Map<Class<?>, Extractor> extractors = new HashMap<>();
+    private final StageConcurrency concurrency;
+    private final Throttle disk;
+    private final Throttle database;
+    private final long parallelExtractThreshold;
+    private final boolean longestFirst;
+    private final ToLongFunction<Extractor> timeoutOf;
+    private final Map<Extractor, Long> timeouts = new HashMap<>();
+    private final Map<Extractor, CircuitBreaker> breakers = new HashMap<>();
+    private final int breakerWindow;
+    private final double breakerThreshold;
+    private final long breakerCooldown;
+    private final int adaptiveMin;
+    private final int adaptiveMax;
+    private final long adaptiveInterval;
+    private final long archiveBudget;
+    private final String checkpoint;
+    private final boolean resume;
+    private final int retryAttempts;
+    private final long retryBaseDelay;
+    private final long retryMaxDelay;
+    private final int retryWorkers;
+    private final Metrics metrics;
+    private final boolean allocations;
+    private final long shutdownGrace;
+    private final LongAdder dropped = new LongAdder();
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private volatile boolean stopping = false;
+    private volatile RetryQueue retrying = null;
+    private Thread shutdownHook = null;
 
-    Runner(Database db) {
+    Runner(Database db, RunnerBuilder builder) {
         this.db = db;
+        this.metrics = builder.getMetrics();
+        if (builder.getSink() != null) {
+            this.sink = builder.getSink();
+        } else {
+            ResultSink sink = builder.getBatchSize() > 1 ? new BatchingSink(db, builder.getDatabaseThrottle(), builder.getBatchSize(), builder.getFlushInterval(), metrics) : new DatabaseSink(db);
+            if (builder.getWriteBehind() > 0) {
+                sink = new WriteBehindSink(sink, builder.getDatabaseThrottle(), builder.getWriteBehind(), builder.getBatchSize(), builder.getFlushInterval(), metrics);
+            }
+            this.sink = sink;
+        }
+        // The writer thread takes the database permits itself, handing it a row does not need one
+        this.writes = sink instanceof WriteBehindSink ? Throttle.unlimited("writes") : builder.getDatabaseThrottle();
+        this.concurrency = builder.getStageConcurrency();
+        this.disk = builder.getDiskThrottle();
+        this.database = builder.getDatabaseThrottle();
+        this.parallelExtractThreshold = builder.getParallelExtractThreshold();
+        this.longestFirst = builder.isLongestFirst();
+        this.timeoutOf = builder::getTimeout;
+        this.breakerWindow = builder.getBreakerWindow();
+        this.breakerThreshold = builder.getBreakerThreshold();
+        this.breakerCooldown = builder.getBreakerCooldown();
+        this.adaptiveMin = builder.getAdaptiveMin();
+        this.adaptiveMax = builder.getAdaptiveMax();
+        this.adaptiveInterval = builder.isAdaptiveConcurrency() ? builder.getAdaptiveInterval() : 0;
+        this.archiveBudget = builder.getArchiveBudget();
+        this.checkpoint = builder.getCheckpoint();
+        this.resume = builder.isResume();
+        this.retryAttempts = builder.getRetryAttempts();
+        this.retryBaseDelay = builder.getRetryBaseDelay();
+        this.retryMaxDelay = builder.getRetryMaxDelay();
+        this.retryWorkers = builder.getRetryWorkers();
+        this.allocations = builder.isAllocationTracking();
+        this.shutdownGrace = builder.getShutdownGrace();
     }
 
     Runner addExtractor(Extractor extractor) throws SQLException {
         LOGGER.trace("Adding extractor '{}': {}", extractor, extractor.getClass());
-        db.updateSchema(extractor.fields());
-        extractors.putIfAbsent(extractor.getClass(), extractor);
+        sink.prepare(extractor.fields());
+        if (extractors.putIfAbsent(extractor.getClass(), extractor) == null) {
+            var timeout = timeoutOf.applyAsLong(extractor);
+            if (timeout > 0) {
+                timeouts.put(extractor, timeout);
+                breakers.put(extractor, new CircuitBreaker(extractor.getClass().getSimpleName(), breakerWindow, breakerThreshold, breakerCooldown));
+            }
+        }
 
         return this;
     }
 
-    void run(Maven mvn, Collection<? extends ArtifactId> packages, int threads) throws InterruptedException {
+    /**
+     * Run the extractors over every artifact the selector produces.
+     * The calling thread pages through the selector and feeds a pipeline of resolve, open, extract and persist stages, each with its own workers and a bounded queue in front,
+     * so the next page is fetched while the current one is still being processed.
+     * Every artifact ends up as a row or as an unresolved package, and a page is completed once all of its artifacts are written.
+     * When resuming, completed pages are not fetched again and artifacts that already have a row are skipped.
+     * Once {@link #stop()} is called, no new artifacts are resolved and this method returns when the others are written.
+     *
+     * @param mvn Maven instance.
+     * @param selector Artifact source.
+     * @param pageSize Number of artifacts to request from the selector at a time.
+     * @throws IOException If the selector throws an I/O error.
+     * @throws SQLException If the selector throws a database error.
+     * @throws InterruptedException If the calling thread is interrupted.
+     */
+    void run(Maven mvn, PackageSelector selector, int pageSize) throws IOException, SQLException, InterruptedException {
+        Objects.requireNonNull(mvn);
+        Objects.requireNonNull(selector);
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Invalid page size: " + pageSize);
+        }
+
         var fields = extractors.values()
                 .stream()
                 .map(Extractor::fields)
@@ -37,50 +144,656 @@ public class Runner implements Closeable {
         if (fields.length == 0) {
             return;
         }
+        if (shutdownGrace > 0) {
+            registerShutdownHook();
+        }
 
-        var pool = new ForkJoinPool(threads);
+        Set<Integer> completed = Set.of();
+        if (checkpoint != null) {
+            database.run(db::createCheckpointTable);
+            if (resume) {
+                completed = database.call(() -> db.getCheckpoints(checkpoint));
+                LOGGER.info("Resuming run '{}', skipping {} completed pages", checkpoint, completed.size());
+            } else {
+                database.run(() -> db.clearCheckpoints(checkpoint));
+            }
+        }
+
+        int capacity = concurrency.queueSize();
+        var controller = adaptiveInterval > 0 ? new ConcurrencyController(adaptiveMin, adaptiveMax) : null;
+        var budget = archiveBudget > 0 ? new ByteBudget("archives", archiveBudget) : null;
+        var forks = Executors.newFixedThreadPool(concurrency.extract(), createThreadFactory("extract-fork"));
+        // A pool per extractor with a deadline, so one that hangs only holds up its own calls. One thread for every extract worker and fork
+        // that may wait for it; an abandoned extractor that hangs keeps its thread, so once all are taken later calls queue and time out,
+        // which opens its circuit breaker. Daemon so they cannot keep the JVM alive
+        Map<Extractor, ExecutorService> deadlines = new HashMap<>();
+        for (var extractor : timeouts.keySet()) {
+            deadlines.put(extractor, Executors.newFixedThreadPool(2 * concurrency.extract(), daemon(createThreadFactory("extract-deadline-" + extractor.getClass().getSimpleName()))));
+        }
+        // Persisting completes the page and releases the slot whatever happens, so a failure there is only logged
+        var persist = new Stage<WorkItem>("persist", concurrency.persist(), capacity, createThreadFactory("persist"), traced("persist", item -> persist(fields, item, selector, controller)));
+        Stage.Failed<WorkItem> failed = (item, failure) -> failed(item, failure, persist, controller);
+        var extract = new Stage<WorkItem>("extract", concurrency.extract(), capacity, createThreadFactory("extract"), traced("extract", item -> {
+            extract(mvn, fields, item, forks, deadlines);
+            persist.put(item);
+        }), failed);
+        var open = new Stage<WorkItem>("open", concurrency.open(), capacity, createThreadFactory("open"), traced("open", item -> {
+            var archive = item.resolved().archive();
+            // Only opened once the archives held open, including this one, fit in the budget; released once the extractors are done
+            if (budget != null && archive != null) {
+                item.reserve(budget, archive.length());
+            }
+            item.pkg(disk.call(() -> metrics.time("open", () -> mvn.open(item.resolved()))));
+            if (archive != null) {
+                metrics.read(archive.length());
+            }
+            extract.put(item);
+        }), failed);
+        var retries = retryAttempts > 0 ? new RetryQueue("retry", retryAttempts, retryBaseDelay, retryMaxDelay, retryWorkers, createThreadFactory("retry")) : null;
+        Stage.Task<WorkItem> resolveTask = traced("resolve", item -> resolve(mvn, item, retries, controller, open, persist));
+        if (retries != null) {
+            retries.start(resolveTask, failed);
+            retrying = retries;
+        }
+        // One page of look-ahead on top of what the workers hold
+        var resolve = new Stage<WorkItem>("resolve", concurrency.resolve(), pageSize, createThreadFactory("resolve"), resolveTask, failed);
+        var stages = List.of(resolve, open, extract, persist);
+        var estimator = longestFirst ? new CostEstimator(mvn, db) : null;
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "runner-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> LOGGER.info("Stages: {}, {}, circuit breakers: {}, {}", stages, retries == null ? "no retries" : retries, breakers.values(), budget == null ? "no archive budget" : budget), REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        if (controller != null) {
+            reporter.scheduleAtFixedRate(controller::adjust, adaptiveInterval, adaptiveInterval, TimeUnit.MILLISECONDS);
+        }
+
+        var aborted = false;
         try {
-            pool.submit(() -> packages.parallelStream().forEach(id -> execute(mvn, fields, id))).get();
-        } catch (ExecutionException exception) {
-            LOGGER.error("Task execution failed", exception.getCause());
+            // Last artifact of the previous page, so the selector can seek to the next one
+            ArtifactId last = null;
+            pages:
+            for (var index = 0; !stopping; index++) {
+                if (completed.contains(index)) {
+                    LOGGER.trace("Skipping completed page {}", index);
+                    last = null;
+                    continue;
+                }
+                Collection<? extends ArtifactId> artifacts = selector.getArtifacts(index, pageSize, last);
+                if (artifacts.isEmpty()) {
+                    break;
+                }
+                last = PackageSelector.last(artifacts);
+                if (resume) {
+                    artifacts = unprocessed(artifacts);
+                    if (artifacts.isEmpty()) {
+                        completed(selector, index, 0);
+                        continue;
+                    }
+                }
+
+                LOGGER.trace("Queueing page {} ({} artifacts)", index, artifacts.size());
+                // Largest archive first, so a huge archive does not start last and hold up the page
+                if (estimator != null) {
+                    artifacts = estimator.order(artifacts);
+                }
+                var page = new Page(index, artifacts.size());
+                for (var id : artifacts) {
+                    if (stopping) {
+                        break pages;
+                    }
+                    // Limits the artifacts in flight to what the controller currently allows
+                    if (controller != null) {
+                        controller.acquire();
+                    }
+                    resolve.put(new WorkItem(id, page));
+                }
+            }
+        } catch (InterruptedException exception) {
+            aborted = true;
+            abort(stages, retries);
+            throw exception;
         } finally {
-            pool.shutdown();
+            reporter.shutdownNow();
+            // Let the stages drain in order, also when the selector failed
+            if (!aborted) {
+                for (var stage : stages) {
+                    stage.finish();
+                    // Retries feed the later stages
+                    if (stage == resolve && retries != null) {
+                        retries.finish();
+                    }
+                }
+                for (var stage : stages) {
+                    LOGGER.info("Stage {}: {} processed, max queue depth {}/{}", stage.getName(), stage.getProcessed(), stage.getMaxQueueDepth(), stage == resolve ? pageSize : capacity);
+                }
+                if (retries != null) {
+                    LOGGER.info("Retries: {} scheduled, {} artifacts out of retries", retries.getScheduled(), retries.getExhausted());
+                }
+                if (stopping) {
+                    LOGGER.warn("Stopped early, {} queued artifacts were dropped", dropped.sum());
+                }
+                LOGGER.info("Metrics:{}{}", System.lineSeparator(), metrics.summary());
+            }
+            retrying = null;
+            forks.shutdownNow();
+            deadlines.values().forEach(ExecutorService::shutdownNow);
         }
     }
 
-    private void execute(Maven mvn, Field[] fields, ArtifactId id) {
-        try (var artifact = mvn.getPackage(id)) {
-            var offset = 0;
+    /**
+     * Stop admitting artifacts, letting those already resolved finish.
+     * Queued artifacts and waiting retries are dropped without a row, so they are processed again when the run is resumed; their pages are not checkpointed.
+     * Safe to call from any thread.
+     */
+    void stop() {
+        if (stopping) {
+            return;
+        }
+        stopping = true;
+        var retries = retrying;
+        if (retries != null) {
+            retries.discard().forEach(item -> dropped.increment());
+        }
+    }
+
+    /**
+     * Call {@link #stop()} when the JVM shuts down and hold the shutdown up until this runner is closed, for at most the grace period.
+     */
+    private synchronized void registerShutdownHook() {
+        if (shutdownHook != null) {
+            return;
+        }
+
+        shutdownHook = new Thread(() -> {
+            LOGGER.warn("Shutting down, waiting up to {} ms for artifacts in flight", shutdownGrace);
+            stop();
+            try {
+                if (!closed.await(shutdownGrace, TimeUnit.MILLISECONDS)) {
+                    LOGGER.warn("Artifacts still in flight after {} ms are abandoned", shutdownGrace);
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            } finally {
+                // Logging is shut down here rather than by its own hook, so the lines above make it out
+                LogManager.shutdown();
+            }
+        }, "runner-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Resolve an artifact and hand it to the next stage.
+     * A transient failure is retried later if retries are enabled and the artifact has retries left.
+     * Retries wait in a {@link RetryQueue} with workers of its own, so they never hold up this stage, and no longer count against the adaptive concurrency limit.
+     */
+    private void resolve(Maven mvn, WorkItem item, RetryQueue retries, ConcurrencyController controller, Stage<WorkItem> open, Stage<WorkItem> persist) throws InterruptedException {
+        if (stopping) {
+            drop(item, controller);
+            return;
+        }
+
+        try {
+            item.resolved(metrics.time("resolve", () -> mvn.resolve(item.id())));
+        } catch (PackageException exception) {
+            item.fail(exception);
+        }
+
+        if (item.failed() && retries != null && FailureClassifier.isTransient(item.failure())) {
+            if (stopping) {
+                drop(item, controller);
+                return;
+            }
+            var first = item.attempts() == 0;
+            if (retries.schedule(item)) {
+                // A waiting retry does not hold a slot
+                if (first && controller != null) {
+                    controller.release(System.nanoTime() - item.queued());
+                }
+                return;
+            }
+        }
+        (item.failed() ? persist : open).put(item);
+    }
+
+    /**
+     * Hand an item a stage failed on unexpectedly to the persist stage, so it is recorded as unresolved and its page can complete.
+     * Its package and archive reservation are released first; its slot is released by the persist stage, or here if it never gets there.
+     */
+    private void failed(WorkItem item, Throwable failure, Stage<WorkItem> persist, ConcurrencyController controller) throws InterruptedException {
+        var handed = false;
+        try {
+            try {
+                item.close();
+            } catch (IOException exception) {
+                LOGGER.warn("Could not close {}", item, exception);
+            }
+            item.fail(failure instanceof Exception exception ? exception : new ExecutionException(failure));
+            persist.put(item);
+            handed = true;
+        } finally {
+            if (!handed && controller != null && item.attempts() == 0) {
+                controller.release(System.nanoTime() - item.queued());
+            }
+        }
+    }
+
+    /**
+     * Drop an artifact that has not been opened, without writing a row.
+     */
+    private void drop(WorkItem item, ConcurrencyController controller) {
+        dropped.increment();
+        if (controller != null && item.attempts() == 0) {
+            controller.release(System.nanoTime() - item.queued());
+        }
+    }
+
+    /**
+     * Run every extractor on an opened artifact and release the artifact.
+     * The extractors of a package whose archive exceeds the parallel extraction threshold run concurrently.
+     */
+    private void extract(Maven mvn, Field[] fields, WorkItem item, ExecutorService forks, Map<Extractor, ExecutorService> deadlines) throws InterruptedException {
+        var id = item.id();
+        try (item) {
+            var artifact = item.pkg();
             Object[] values = new Object[fields.length];
+
+            // Extractors write to disjoint slices of the values
+            List<Runnable> tasks = new ArrayList<>(extractors.size());
+            var offset = 0;
             for (var extractor : extractors.values()) {
-                Object[] result;
-                try {
-                    result = extractor.extract(mvn, artifact, id.extension(), db);
-                } catch (Throwable exception) { // Generic catch just in case
-                    LOGGER.warn("Extractor '{}' threw an unexpected exception", extractor, exception);
-                    result = new Object[extractor.fields().length];
-                }
-                if (result.length != extractor.fields().length) {
-                    LOGGER.warn("Extractor '{}' returned unexpected number of values", extractor);
+                var start = offset;
+                tasks.add(() -> {
+                    var result = extract(mvn, extractor, artifact, item, deadlines.get(extractor));
+                    System.arraycopy(result, 0, values, start, result.length);
+                });
+                offset += extractor.fields().length;
+            }
+
+            var archive = item.resolved().archive();
+            if (parallelExtractThreshold > 0 && archive != null && archive.length() > parallelExtractThreshold) {
+                LOGGER.trace("Running extractors of {} concurrently ({} bytes)", id, archive.length());
+                runConcurrently(tasks, forks);
+            } else {
+                tasks.forEach(Runnable::run);
+            }
+
+            item.values(values);
+        } catch (IOException exception) {
+            item.fail(exception);
+        }
+    }
+
+    /**
+     * Run one extractor, recording its latency in the {@link Metrics} and a Flight Recorder event.
+     * An extractor with a deadline runs on its own executor and is abandoned once the deadline passes; its columns are then left <code>null</code> and the reason is recorded as unresolved.
+     * An extractor that keeps timing out is skipped while its {@link CircuitBreaker} is open.
+     */
+    private Object[] extract(Maven mvn, Extractor extractor, Package artifact, WorkItem item, ExecutorService deadlines) {
+        var id = item.id();
+        var length = extractor.fields().length;
+        var breaker = breakers.get(extractor);
+        if (breaker != null && !breaker.allow()) {
+            item.note("Skipped " + extractor.getClass().getSimpleName() + ": disabled after repeated timeouts");
+            return new Object[length];
+        }
+
+        Object[] result;
+        var timedOut = false;
+        var failed = false;
+        var event = new ExtractEvent();
+        event.begin();
+        var started = System.nanoTime();
+        try {
+            if (breaker == null) {
+                result = disk.call(() -> invoke(mvn, extractor, artifact, id));
+            } else {
+                // The disk permit is taken here rather than by the task, so waiting for it does not count against the deadline
+                result = disk.call(() -> callWithDeadline(() -> invoke(mvn, extractor, artifact, id), timeouts.get(extractor), deadlines));
+            }
+        } catch (TimeoutException exception) {
+            LOGGER.warn("Extractor '{}' timed out on {} after {} ms", extractor, id, timeouts.get(extractor));
+            item.note("Timeout in " + extractor.getClass().getSimpleName() + " after " + timeouts.get(extractor) + " ms");
+            timedOut = true;
+            result = new Object[length];
+        } catch (Throwable exception) { // Generic catch just in case
+            LOGGER.warn("Extractor '{}' threw an unexpected exception", extractor, exception);
+            failed = true;
+            result = new Object[length];
+        } finally {
+            metrics.record("extract." + extractor.getClass().getSimpleName(), System.nanoTime() - started);
+            event.end();
+            if (event.shouldCommit()) {
+                event.extractor = extractor.getClass().getName();
+                event.artifact = id.toString();
+                event.bytes = archiveSize(item);
+                event.timedOut = timedOut;
+                event.failed = failed;
+                event.commit();
+            }
+            if (breaker != null) {
+                breaker.record(timedOut);
+            }
+        }
+        if (result.length != length) {
+            LOGGER.warn("Extractor '{}' returned unexpected number of values", extractor);
+            result = Arrays.copyOf(result, length);
+        }
+
+        return result;
+    }
+
+    /**
+     * Run an extractor on the calling thread, recording its allocations if enabled.
+     */
+    private Object[] invoke(Maven mvn, Extractor extractor, Package artifact, ArtifactId id) throws Exception {
+        if (!allocations) {
+            return extractor.extract(mvn, artifact, id.extension(), db);
+        }
+
+        var before = allocatedBytes();
+        try {
+            return extractor.extract(mvn, artifact, id.extension(), db);
+        } finally {
+            var after = allocatedBytes();
+            if (before >= 0 && after >= before) {
+                metrics.allocated("extract." + extractor.getClass().getSimpleName(), after - before);
+            }
+        }
+    }
+
+    /**
+     * Get the number of bytes the calling thread allocated so far.
+     *
+     * @return The number of bytes or <code>-1</code> if the runtime does not support measuring it.
+     */
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    /**
+     * Wrap a stage task to emit a {@link StageEvent} for every item.
+     *
+     * @param stage Stage name.
+     * @param task The task.
+     * @return The wrapped task.
+     */
+    private static Stage.Task<WorkItem> traced(String stage, Stage.Task<WorkItem> task) {
+        return item -> {
+            var event = new StageEvent();
+            event.begin();
+            try {
+                task.accept(item);
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    var id = item.id();
+                    event.stage = stage;
+                    event.artifact = id.toString();
+                    event.extension = id.extension();
+                    event.bytes = archiveSize(item);
+                    event.commit();
                 }
+            }
+        };
+    }
+
+    private static long archiveSize(WorkItem item) {
+        var resolved = item.resolved();
+        return resolved == null || resolved.archive() == null ? 0 : resolved.archive().length();
+    }
+
+    /**
+     * Run tasks on a fork pool, running the first one on the calling thread.
+     *
+     * @param tasks Tasks.
+     * @param forks Fork pool.
+     * @throws InterruptedException If interrupted while waiting for the forks.
+     */
+    private static void runConcurrently(List<Runnable> tasks, ExecutorService forks) throws InterruptedException {
+        List<Future<?>> futures = new ArrayList<>(tasks.size());
+        for (var task : tasks.subList(1, tasks.size())) {
+            futures.add(forks.submit(task));
+        }
+        tasks.get(0).run();
+
+        for (var future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException exception) {
+                // Extractor failures are already handled, so this is a bug
+                throw new IllegalStateException(exception.getCause());
+            } catch (InterruptedException exception) {
+                futures.forEach(f -> f.cancel(true));
+                throw exception;
+            }
+        }
+    }
+
+    /**
+     * Run a task on a separate thread, abandoning it once the deadline passes.
+     * The abandoned task is interrupted, but may keep its thread until it notices.
+     * The throttle permits it holds are released right away, and it cannot take new ones.
+     *
+     * @param <T> Result type.
+     * @param task Task.
+     * @param timeout Deadline in milliseconds.
+     * @param deadlines Executor to run the task on.
+     * @return The result.
+     * @throws TimeoutException If the deadline passed.
+     * @throws Exception If the task threw an exception.
+     */
+    private static <T> T callWithDeadline(Callable<T> task, long timeout, ExecutorService deadlines) throws Exception {
+        var holder = new Throttle.Holder();
+        var future = deadlines.submit(holder.wrap(task));
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException exception) {
+            var cause = exception.getCause();
+            if (cause instanceof Exception e) {
+                throw e;
+            }
+            throw new IllegalStateException(cause);
+        } catch (TimeoutException | InterruptedException exception) {
+            future.cancel(true);
+            holder.abandon();
+            if (exception instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw exception;
+        }
+    }
+
+    /**
+     * Remove the artifacts that already have a row, when resuming.
+     *
+     * @param artifacts Artifacts.
+     * @return The artifacts without a row.
+     * @throws SQLException If a database error occurs.
+     */
+    private Collection<? extends ArtifactId> unprocessed(Collection<? extends ArtifactId> artifacts) throws SQLException {
+        Set<PackageId> processed = database.call(() -> db.getProcessed(artifacts));
+        if (processed.isEmpty()) {
+            return artifacts;
+        }
+
+        LOGGER.trace("Skipping {} processed artifacts", processed.size());
+        return artifacts.stream()
+                .filter(id -> !processed.contains(new PackageId(id.group(), id.artifact(), id.version())))
+                .toList();
+    }
 
-                System.arraycopy(result, 0, values, offset, result.length);
-                offset += result.length;
+    /**
+     * Record that every artifact of a page has been written, as a checkpoint if enabled, and notify the selector.
+     *
+     * @param selector Selector the page came from.
+     * @param page Page index.
+     * @param artifacts Number of artifacts written.
+     */
+    private void completed(PackageSelector selector, int page, int artifacts) {
+        try {
+            if (checkpoint != null) {
+                database.run(() -> db.checkpoint(checkpoint, page, artifacts));
             }
+            database.run(() -> selector.completed(page, artifacts));
+        } catch (SQLException exception) {
+            LOGGER.warn("Could not record completion of page {}", page, exception);
+        }
+    }
 
-            db.update(id, fields, values, true);
-        } catch (PackageException | IOException | SQLException exception) {
-            LOGGER.warn("Could not extract fields of {}", id, exception);
+    /**
+     * Write the results of an artifact and release its slot.
+     * Once the last artifact of a page is written, the page's latency distribution is logged and the page is completed as soon as its rows are durable.
+     */
+    private void persist(Field[] fields, WorkItem item, PackageSelector selector, ConcurrencyController controller) {
+        try {
+            write(fields, item);
+        } finally {
+            // Retried items released their slot when they were first scheduled
+            if (controller != null && item.attempts() == 0) {
+                controller.release(System.nanoTime() - item.queued());
+            }
+            var page = item.page();
+            if (page.complete(item.queued())) {
+                page.report();
+                // Rows of the page may still be buffered by the sink
+                writes.call(sink::durable).whenComplete((ignored, exception) -> {
+                    if (exception == null) {
+                        completed(selector, page.getIndex(), page.getSize());
+                    } else {
+                        LOGGER.warn("Could not flush rows of page {}, not recording its completion", page.getIndex(), exception);
+                    }
+                });
+            }
+        }
+    }
+
+    private void write(Field[] fields, WorkItem item) {
+        var id = item.id();
+        metrics.artifact();
+        try {
+            if (!item.failed()) {
+                writes.run(() -> metrics.time("sink.write", () -> sink.write(id, fields, item.values())));
+                var notes = item.notes();
+                if (!notes.isEmpty()) {
+                    writes.run(() -> metrics.time("sink.unresolved", () -> sink.unresolved(id, String.join("; ", notes))));
+                }
+                return;
+            }
+        } catch (SQLException exception) {
+            item.fail(exception);
+        }
+
+        metrics.failure();
+        var exception = item.failure();
+        LOGGER.warn("Could not extract fields of {}", id, exception);
+        try {
+            var reason = item.attempts() == 0 ? exception.toString() : exception + " (after " + item.attempts() + " retries)";
+            writes.run(() -> metrics.time("sink.unresolved", () -> sink.unresolved(id, reason)));
+        } catch (SQLException exception1) {
+            LOGGER.error("Could not write failure to databse", exception1);
+        }
+    }
+
+    private void abort(List<Stage<WorkItem>> stages, RetryQueue retries) {
+        List<WorkItem> items = new ArrayList<>();
+        if (retries != null) {
+            items.addAll(retries.abort());
+        }
+        for (var stage : stages) {
+            items.addAll(stage.abort());
+        }
+        for (var item : items) {
             try {
-                db.updateUnresolvedTable(id, exception.toString());
-            } catch (SQLException exception1) {
-                LOGGER.error("Could not write failure to databse", exception1);
+                item.close();
+            } catch (IOException exception) {
+                LOGGER.warn("Could not close {}", item, exception);
             }
         }
     }
 
+    Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Flush the sink and close the database, releasing a pending shutdown.
+     */
     @Override
     public void close() throws IOException {
-        db.close();
+        try {
+            try {
+                sink.close();
+            } catch (SQLException exception) {
+                throw new IOException("Could not flush results", exception);
+            } finally {
+                if (db != null) {
+                    db.close();
+                }
+            }
+        } finally {
+            closed.countDown();
+            synchronized (this) {
+                if (shutdownHook != null) {
+                    try {
+                        Runtime.getRuntime().removeShutdownHook(shutdownHook);
+                    } catch (IllegalStateException exception) {
+                        // Already shutting down
+                    }
+                    shutdownHook = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Create a worker thread factory.
+     *
+     * @param name Thread name prefix.
+     * @return The thread factory.
+     */
+    private static ThreadFactory createThreadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> new Thread(runnable, name + "-" + counter.incrementAndGet());
+    }
+
+    /**
+     * Make a thread factory create daemon threads.
+     *
+     * @param factory Thread factory.
+     * @return The daemon thread factory.
+     */
+    private static ThreadFactory daemon(ThreadFactory factory) {
+        return runnable -> {
+            Thread thread = factory.newThread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Worker counts of the {@link Runner} stages.
+     *
+     * @param resolve Resolve stage workers.
+     * @param open Open stage workers.
+     * @param extract Extract stage workers.
+     * @param persist Persist stage workers.
+     * @param queueSize Queue capacity in front of the open, extract and persist stages.
+     */
+    record StageConcurrency(int resolve, int open, int extract, int persist, int queueSize) {
+
+        StageConcurrency {
+            if (resolve <= 0 || open <= 0 || extract <= 0 || persist <= 0) {
+                throw new IllegalArgumentException("Invalid stage concurrency: " + resolve + '/' + open + '/' + extract + '/' + persist);
+            }
+            if (queueSize <= 0) {
+                throw new IllegalArgumentException("Invalid queue size: " + queueSize);
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -9,7 +9,36 @@ import java.util.Objects;
 
 public class RunnerBuilder {
 
+    private static final int DEFAULT_QUEUE_SIZE = 64;
+
     private final Map<Class<?>, Extractor> extractors = new HashMap<>();
+    private Runner.StageConcurrency concurrency = new Runner.StageConcurrency(1, 1, 1, 1, DEFAULT_QUEUE_SIZE);
+    private Throttle disk = Throttle.unlimited("disk");
+    private Throttle database = Throttle.unlimited("database");
+    private long parallelExtractThreshold = 0;
+    private boolean longestFirst = false;
+    private long defaultTimeout = 0;
+    private final Map<String, Long> timeouts = new HashMap<>();
+    private int breakerWindow = 50;
+    private double breakerThreshold = 0.5;
+    private long breakerCooldown = 300000;
+    private int adaptiveMin = 0;
+    private int adaptiveMax = 0;
+    private long adaptiveInterval = 0;
+    private long archiveBudget = 0;
+    private String checkpoint = null;
+    private boolean resume = false;
+    private int retryAttempts = 0;
+    private long retryBaseDelay = 1000;
+    private long retryMaxDelay = 60000;
+    private int retryWorkers = 1;
+    private Metrics metrics = new Metrics();
+    private ResultSink sink = null;
+    private boolean allocationTracking = false;
+    private long shutdownGrace = 0;
+    private int batchSize = 1;
+    private long flushInterval = 1000;
+    private int writeBehind = 0;
 
     RunnerBuilder addExtractor(Extractor extractor) {
         Objects.requireNonNull(extractor);
@@ -18,8 +47,394 @@ public class RunnerBuilder {
         return this;
     }
 
+    /**
+     * Use the same number of workers for every stage.
+     *
+     * @param threads Workers per stage.
+     * @return This builder.
+     */
+    RunnerBuilder setThreads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Invalid thread count: " + threads);
+        }
+
+        this.concurrency = new Runner.StageConcurrency(threads, threads, threads, threads, concurrency.queueSize());
+        return this;
+    }
+
+    RunnerBuilder setStageConcurrency(Runner.StageConcurrency concurrency) {
+        this.concurrency = Objects.requireNonNull(concurrency);
+        return this;
+    }
+
+    RunnerBuilder setDiskThrottle(Throttle disk) {
+        this.disk = Objects.requireNonNull(disk);
+        return this;
+    }
+
+    RunnerBuilder setDatabaseThrottle(Throttle database) {
+        this.database = Objects.requireNonNull(database);
+        return this;
+    }
+
+    /**
+     * Run the extractors of a package concurrently if its archive is larger than a threshold.
+     *
+     * @param parallelExtractThreshold Archive size in bytes or <code>0</code> to always run extractors one after another.
+     * @return This builder.
+     */
+    RunnerBuilder setParallelExtractThreshold(long parallelExtractThreshold) {
+        if (parallelExtractThreshold < 0) {
+            throw new IllegalArgumentException("Invalid threshold: " + parallelExtractThreshold);
+        }
+
+        this.parallelExtractThreshold = parallelExtractThreshold;
+        return this;
+    }
+
+    /**
+     * Queue the artifacts of every page in order of descending archive size.
+     *
+     * @param longestFirst If artifacts should be ordered.
+     * @return This builder.
+     */
+    RunnerBuilder setLongestFirst(boolean longestFirst) {
+        this.longestFirst = longestFirst;
+        return this;
+    }
+
+    /**
+     * Set the deadline of extractors without their own.
+     *
+     * @param timeout Deadline in milliseconds or <code>0</code> for none.
+     * @return This builder.
+     */
+    RunnerBuilder setDefaultTimeout(long timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Invalid timeout: " + timeout);
+        }
+
+        this.defaultTimeout = timeout;
+        return this;
+    }
+
+    /**
+     * Set the deadline of an extractor.
+     *
+     * @param extractor Extractor class name.
+     * @param timeout Deadline in milliseconds or <code>0</code> for none.
+     * @return This builder.
+     */
+    RunnerBuilder setTimeout(String extractor, long timeout) {
+        Objects.requireNonNull(extractor);
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Invalid timeout: " + timeout);
+        }
+
+        timeouts.put(extractor, timeout);
+        return this;
+    }
+
+    /**
+     * Configure the circuit breakers of extractors with a deadline.
+     *
+     * @param window Number of recent runs to look at.
+     * @param threshold Fraction of timed out runs at which an extractor is disabled.
+     * @param cooldown Milliseconds a disabled extractor stays disabled.
+     * @return This builder.
+     */
+    RunnerBuilder setCircuitBreaker(int window, double threshold, long cooldown) {
+        if (window <= 0 || !(threshold > 0 && threshold <= 1) || cooldown < 0) {
+            throw new IllegalArgumentException("Invalid circuit breaker: " + window + '/' + threshold + '/' + cooldown);
+        }
+
+        this.breakerWindow = window;
+        this.breakerThreshold = threshold;
+        this.breakerCooldown = cooldown;
+        return this;
+    }
+
+    /**
+     * Limit the number of packages in flight, adjusting the limit to the measured throughput and latency.
+     *
+     * @param min Minimum and initial limit.
+     * @param max Maximum limit.
+     * @param interval Milliseconds between adjustments.
+     * @return This builder.
+     */
+    RunnerBuilder setAdaptiveConcurrency(int min, int max, long interval) {
+        if (min <= 0 || max < min || interval <= 0) {
+            throw new IllegalArgumentException("Invalid adaptive concurrency: " + min + '-' + max + '/' + interval);
+        }
+
+        this.adaptiveMin = min;
+        this.adaptiveMax = max;
+        this.adaptiveInterval = interval;
+        return this;
+    }
+
+    /**
+     * Cap the total on-disk size of the archives held open at once.
+     *
+     * @param archiveBudget Budget in bytes or <code>0</code> for no cap.
+     * @return This builder.
+     */
+    RunnerBuilder setArchiveBudget(long archiveBudget) {
+        if (archiveBudget < 0) {
+            throw new IllegalArgumentException("Invalid archive budget: " + archiveBudget);
+        }
+
+        this.archiveBudget = archiveBudget;
+        return this;
+    }
+
+    /**
+     * Record completed pages under a run key, so the run can be resumed.
+     * The key must identify the selection and page size, since pages are recorded by index.
+     *
+     * @param checkpoint Run key.
+     * @param resume If completed pages and artifacts that already have a row are skipped, rather than starting over.
+     * @return This builder.
+     */
+    RunnerBuilder setCheckpoint(String checkpoint, boolean resume) {
+        this.checkpoint = Objects.requireNonNull(checkpoint);
+        this.resume = resume;
+        return this;
+    }
+
+    /**
+     * Retry artifacts whose resolution failed for a transient reason, after a randomized exponential backoff.
+     *
+     * @param attempts Maximum number of retries per artifact or <code>0</code> to not retry.
+     * @param baseDelay Milliseconds the first retry waits at most.
+     * @param maxDelay Milliseconds any retry waits at most.
+     * @param workers Number of workers resolving retried artifacts.
+     * @return This builder.
+     */
+    RunnerBuilder setRetry(int attempts, long baseDelay, long maxDelay, int workers) {
+        if (attempts < 0 || baseDelay <= 0 || maxDelay < baseDelay || workers <= 0) {
+            throw new IllegalArgumentException("Invalid retry policy: " + attempts + '/' + baseDelay + '-' + maxDelay + '/' + workers);
+        }
+
+        this.retryAttempts = attempts;
+        this.retryBaseDelay = baseDelay;
+        this.retryMaxDelay = maxDelay;
+        this.retryWorkers = workers;
+        return this;
+    }
+
+    /**
+     * Record latencies and throughput in the given metrics, for instance to share them with {@link Maven}.
+     *
+     * @param metrics Metrics.
+     * @return This builder.
+     */
+    RunnerBuilder setMetrics(Metrics metrics) {
+        this.metrics = Objects.requireNonNull(metrics);
+        return this;
+    }
+
+    /**
+     * Write the extracted values somewhere other than the database the runner is built with.
+     *
+     * @param sink Result sink.
+     * @return This builder.
+     */
+    RunnerBuilder setSink(ResultSink sink) {
+        this.sink = Objects.requireNonNull(sink);
+        return this;
+    }
+
+    /**
+     * Record the bytes every extractor allocates in the {@link Metrics}, at the cost of two extra calls per extractor run.
+     *
+     * @param allocationTracking If allocations are recorded.
+     * @return This builder.
+     */
+    RunnerBuilder setAllocationTracking(boolean allocationTracking) {
+        this.allocationTracking = allocationTracking;
+        return this;
+    }
+
+    /**
+     * Stop admitting artifacts when the JVM shuts down and hold the shutdown up until the artifacts in flight are written, for at most the grace period.
+     *
+     * @param shutdownGrace Grace period in milliseconds, <code>0</code> to not intercept the shutdown.
+     * @return This builder.
+     */
+    RunnerBuilder setShutdownGrace(long shutdownGrace) {
+        if (shutdownGrace < 0) {
+            throw new IllegalArgumentException("Invalid shutdown grace period: " + shutdownGrace);
+        }
+        this.shutdownGrace = shutdownGrace;
+        return this;
+    }
+
+    /**
+     * Write rows to the database in batches of multi-row statements rather than one at a time.
+     * Has no effect with a custom sink.
+     *
+     * @param batchSize Rows per batch, <code>1</code> to write every row on its own.
+     * @param flushInterval Milliseconds a row may wait for its batch to fill up.
+     * @return This builder.
+     */
+    RunnerBuilder setBatching(int batchSize, long flushInterval) {
+        if (batchSize <= 0 || flushInterval <= 0) {
+            throw new IllegalArgumentException("Invalid batch size or flush interval: " + batchSize + '/' + flushInterval);
+        }
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        return this;
+    }
+
+    /**
+     * Write rows to the database on a writer thread of their own, so the threads extracting them do not wait for the database.
+     * The writer thread writes up to the batch size in rows at a time, waiting at most the flush interval for them.
+     * Has no effect with a custom sink.
+     *
+     * @param queueSize Rows that may wait for the writer thread, <code>0</code> to write rows on the threads extracting them.
+     * @return This builder.
+     */
+    RunnerBuilder setWriteBehind(int queueSize) {
+        if (queueSize < 0) {
+            throw new IllegalArgumentException("Invalid queue size: " + queueSize);
+        }
+        this.writeBehind = queueSize;
+        return this;
+    }
+
+    Runner.StageConcurrency getStageConcurrency() {
+        return concurrency;
+    }
+
+    Throttle getDiskThrottle() {
+        return disk;
+    }
+
+    Throttle getDatabaseThrottle() {
+        return database;
+    }
+
+    long getParallelExtractThreshold() {
+        return parallelExtractThreshold;
+    }
+
+    boolean isLongestFirst() {
+        return longestFirst;
+    }
+
+    /**
+     * Get the deadline of an extractor.
+     *
+     * @param extractor Extractor.
+     * @return The deadline in milliseconds or <code>0</code> for none.
+     */
+    long getTimeout(Extractor extractor) {
+        return timeouts.getOrDefault(extractor.getClass().getName(), defaultTimeout);
+    }
+
+    int getBreakerWindow() {
+        return breakerWindow;
+    }
+
+    double getBreakerThreshold() {
+        return breakerThreshold;
+    }
+
+    long getBreakerCooldown() {
+        return breakerCooldown;
+    }
+
+    boolean isAdaptiveConcurrency() {
+        return adaptiveInterval > 0;
+    }
+
+    int getAdaptiveMin() {
+        return adaptiveMin;
+    }
+
+    int getAdaptiveMax() {
+        return adaptiveMax;
+    }
+
+    long getAdaptiveInterval() {
+        return adaptiveInterval;
+    }
+
+    long getArchiveBudget() {
+        return archiveBudget;
+    }
+
+    String getCheckpoint() {
+        return checkpoint;
+    }
+
+    boolean isResume() {
+        return resume;
+    }
+
+    int getRetryAttempts() {
+        return retryAttempts;
+    }
+
+    long getRetryBaseDelay() {
+        return retryBaseDelay;
+    }
+
+    long getRetryMaxDelay() {
+        return retryMaxDelay;
+    }
+
+    int getRetryWorkers() {
+        return retryWorkers;
+    }
+
+    Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Get the result sink.
+     *
+     * @return The sink or <code>null</code> to write to the database.
+     */
+    ResultSink getSink() {
+        return sink;
+    }
+
+    boolean isAllocationTracking() {
+        return allocationTracking;
+    }
+
+    long getShutdownGrace() {
+        return shutdownGrace;
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    long getFlushInterval() {
+        return flushInterval;
+    }
+
+    int getWriteBehind() {
+        return writeBehind;
+    }
+
+    /**
+     * Build the runner.
+     *
+     * @param db Database passed to the extractors and written to, unless a sink is set; may only be <code>null</code> with a sink and without checkpoints or longest-first scheduling.
+     * @return The runner.
+     * @throws SQLException If the sink cannot be prepared for the extractors.
+     */
     Runner build(Database db) throws SQLException {
-        var analyzer =  new Runner(db);
+        if (db == null && (sink == null || checkpoint != null || longestFirst)) {
+            throw new IllegalStateException("A database is required for the configured runner");
+        }
+
+        var analyzer =  new Runner(db, this);
         for (var entry : extractors.values())
             analyzer.addExtractor(entry);
 
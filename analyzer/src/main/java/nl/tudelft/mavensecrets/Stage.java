@@ -0,0 +1,197 @@
+package nl.tudelft.mavensecrets;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A {@link Runner} pipeline stage: a bounded queue drained by a fixed number of workers.
+ *
+ * @param <T> Item type.
+ */
+class Stage<T> {
+
+    private static final Logger LOGGER = LogManager.getLogger(Stage.class);
+    // Sentinel telling a worker there is no more work, compared by reference
+    private static final Object END_OF_WORK = new Object();
+
+    private final String name;
+    private final int workers;
+    private final BlockingQueue<Object> queue;
+    private final Task<T> task;
+    private final Failed<T> failed;
+    private final ExecutorService pool;
+    private final AtomicInteger busy = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final LongAdder processed = new LongAdder();
+
+    /**
+     * Create and start a stage.
+     *
+     * @param name Stage name.
+     * @param workers Number of workers.
+     * @param capacity Queue capacity.
+     * @param factory Worker thread factory.
+     * @param task Work done for every item.
+     */
+    Stage(String name, int workers, int capacity, ThreadFactory factory, Task<T> task) {
+        this(name, workers, capacity, factory, task, (item, failure) -> {
+            // Only logged
+        });
+    }
+
+    /**
+     * Create and start a stage.
+     *
+     * @param name Stage name.
+     * @param workers Number of workers.
+     * @param capacity Queue capacity.
+     * @param factory Worker thread factory.
+     * @param task Work done for every item.
+     * @param failed Called with an item the task threw an unexpected exception or error on, so the item is not lost.
+     */
+    Stage(String name, int workers, int capacity, ThreadFactory factory, Task<T> task, Failed<T> failed) {
+        this.name = Objects.requireNonNull(name);
+        if (workers <= 0) {
+            throw new IllegalArgumentException("Invalid worker count for stage " + name + ": " + workers);
+        }
+        this.workers = workers;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.task = Objects.requireNonNull(task);
+        this.failed = Objects.requireNonNull(failed);
+        this.pool = Executors.newFixedThreadPool(workers, Objects.requireNonNull(factory));
+        for (var i = 0; i < workers; i++) {
+            pool.execute(this::work);
+        }
+    }
+
+    /**
+     * Hand an item to this stage, blocking while the queue is full.
+     *
+     * @param item The item.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    void put(T item) throws InterruptedException {
+        Objects.requireNonNull(item);
+
+        queue.put(item);
+        maxQueueDepth.accumulateAndGet(queue.size(), Math::max);
+    }
+
+    /**
+     * Let the workers drain the queue and wait for them to stop.
+     * Nothing may be put after calling this method.
+     *
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    void finish() throws InterruptedException {
+        for (var i = 0; i < workers; i++) {
+            queue.put(END_OF_WORK);
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Interrupt the workers and discard the queue.
+     *
+     * @return The items that were still queued.
+     */
+    @SuppressWarnings("unchecked")
+    List<T> abort() {
+        pool.shutdownNow();
+        List<Object> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.removeIf(item -> item == END_OF_WORK);
+        return (List<T>) rest;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getWorkers() {
+        return workers;
+    }
+
+    int getBusy() {
+        return busy.get();
+    }
+
+    int getQueueDepth() {
+        return queue.size();
+    }
+
+    int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    long getProcessed() {
+        return processed.sum();
+    }
+
+    @Override
+    public String toString() {
+        return name + "[queued=" + getQueueDepth() + ", busy=" + getBusy() + '/' + workers + ", processed=" + getProcessed() + ']';
+    }
+
+    @SuppressWarnings("unchecked")
+    private void work() {
+        try {
+            Object item;
+            while ((item = queue.take()) != END_OF_WORK) {
+                busy.incrementAndGet();
+                try {
+                    task.accept((T) item);
+                } catch (RuntimeException | Error exception) { // Keep the worker alive
+                    LOGGER.error("Stage {} failed on {}", name, item, exception);
+                    failed((T) item, exception);
+                } finally {
+                    busy.decrementAndGet();
+                    processed.increment();
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void failed(T item, Throwable failure) throws InterruptedException {
+        try {
+            failed.accept(item, failure);
+        } catch (RuntimeException exception) {
+            LOGGER.error("Stage {} could not hand on failed item {}", name, item, exception);
+        }
+    }
+
+    /**
+     * Work done by a stage for every item.
+     *
+     * @param <T> Item type.
+     */
+    @FunctionalInterface
+    static interface Task<T> {
+        void accept(T item) throws InterruptedException;
+    }
+
+    /**
+     * Handling of an item its task failed on unexpectedly.
+     *
+     * @param <T> Item type.
+     */
+    @FunctionalInterface
+    static interface Failed<T> {
+        void accept(T item, Throwable failure) throws InterruptedException;
+    }
+}
@@ -0,0 +1,126 @@
+package nl.tudelft.mavensecrets;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The prepared statements of one connection, kept open for reuse while they are among the most recently used.
+ * A reused statement keeps its server-side prepared statement, so its SQL is not parsed and planned again.
+ * Statements are closed once they are evicted, so the cache holds at most its capacity.
+ * Like its connection, a cache may only be used by one thread at a time.
+ */
+final class StatementCache implements AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(StatementCache.class);
+
+    private final Connection connection;
+    private final int capacity;
+    private final Map<String, PreparedStatement> statements;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Create a cache.
+     *
+     * @param connection The connection to prepare statements on.
+     * @param capacity Maximum number of open statements.
+     */
+    StatementCache(Connection connection, int capacity) {
+        this.connection = Objects.requireNonNull(connection);
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.capacity = capacity;
+        this.statements = new LinkedHashMap<>(16, 0.75F, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= StatementCache.this.capacity) {
+                    return false;
+                }
+                close(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Get the prepared statement for some SQL, preparing it if it is not cached.
+     * The statement must not be closed by the caller.
+     *
+     * @param sql The SQL.
+     * @return The statement.
+     * @throws SQLException If a database error occurs.
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        Objects.requireNonNull(sql);
+
+        var statement = statements.get(sql);
+        if (statement != null && !statement.isClosed()) {
+            hits++;
+            return statement;
+        }
+        misses++;
+        statement = connection.prepareStatement(sql);
+        statements.put(sql, statement);
+        return statement;
+    }
+
+    /**
+     * Get the number of open statements.
+     *
+     * @return The number of statements.
+     */
+    int size() {
+        return statements.size();
+    }
+
+    /**
+     * Get the number of times a statement was reused.
+     *
+     * @return The number of hits.
+     */
+    long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of times a statement was prepared.
+     *
+     * @return The number of misses.
+     */
+    long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Close all statements.
+     */
+    @Override
+    public void close() {
+        statements.values().forEach(StatementCache::close);
+        statements.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "StatementCache[size=" + statements.size() + ", capacity=" + capacity + ", hits=" + hits + ", misses=" + misses + ']';
+    }
+
+    private static void close(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException exception) {
+            LOGGER.debug("Could not close statement", exception);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package nl.tudelft.mavensecrets;
+
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A limit on the number of concurrent operations of one kind, such as network transfers or database writes.
+ * Callers block until a permit is free.
+ */
+public class Throttle {
+
+    private static final ThreadLocal<Holder> HOLDER = new ThreadLocal<>();
+
+    private final String name;
+    private final int permits;
+    private final Semaphore semaphore;
+
+    /**
+     * Create a throttle instance.
+     *
+     * @param name Name used for logging.
+     * @param permits Maximum number of concurrent operations.
+     */
+    public Throttle(String name, int permits) {
+        this.name = Objects.requireNonNull(name);
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Invalid permit count: " + permits);
+        }
+        this.permits = permits;
+        this.semaphore = new Semaphore(permits, true);
+    }
+
+    private Throttle(String name) {
+        this.name = Objects.requireNonNull(name);
+        this.permits = Integer.MAX_VALUE;
+        this.semaphore = null;
+    }
+
+    /**
+     * Create a throttle that never blocks.
+     *
+     * @param name Name used for logging.
+     * @return The throttle.
+     */
+    public static Throttle unlimited(String name) {
+        return new Throttle(name);
+    }
+
+    /**
+     * Run an operation once a permit is available.
+     * If the calling thread runs a task wrapped by a {@link Holder}, the permit is released as well once the holder abandons the task.
+     *
+     * @param <T> Result type.
+     * @param <E> Exception type.
+     * @param call The operation.
+     * @return The operation's result.
+     * @throws E If the operation fails.
+     */
+    public <T, E extends Exception> T call(Call<T, E> call) throws E {
+        Objects.requireNonNull(call);
+
+        if (semaphore == null) {
+            return call.call();
+        }
+
+        // Uninterruptible since most callers cannot propagate an InterruptedException
+        semaphore.acquireUninterruptibly();
+        var permit = new Permit(semaphore);
+        var holder = HOLDER.get();
+        if (holder != null) {
+            holder.hold(permit);
+        }
+        try {
+            return call.call();
+        } finally {
+            permit.release();
+            if (holder != null) {
+                holder.drop(permit);
+            }
+        }
+    }
+
+    /**
+     * Run an operation without a result once a permit is available.
+     *
+     * @param <E> Exception type.
+     * @param action The operation.
+     * @throws E If the operation fails.
+     */
+    public <E extends Exception> void run(Action<E> action) throws E {
+        Objects.requireNonNull(action);
+
+        call(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Get the maximum number of concurrent operations.
+     *
+     * @return The permit count.
+     */
+    public int getPermits() {
+        return permits;
+    }
+
+    /**
+     * Get the number of operations currently waiting for a permit.
+     *
+     * @return The estimated queue length.
+     */
+    public int getWaiting() {
+        return semaphore == null ? 0 : semaphore.getQueueLength();
+    }
+
+    @Override
+    public String toString() {
+        return name + '[' + (semaphore == null ? "unlimited" : permits) + ']';
+    }
+
+    /**
+     * The permits taken by a task that may be abandoned, such as an extractor running past its deadline.
+     * Once abandoned, the permits the task still holds are released, so a task that hangs does not starve the others, and it cannot take new ones.
+     */
+    public static final class Holder {
+
+        private final Set<Permit> permits = new HashSet<>();
+        private boolean abandoned = false;
+
+        /**
+         * Wrap a task, so the permits it takes on its thread are held by this holder.
+         *
+         * @param <T> Result type.
+         * @param task The task.
+         * @return The wrapped task.
+         */
+        public <T> Callable<T> wrap(Callable<T> task) {
+            Objects.requireNonNull(task);
+
+            return () -> {
+                var previous = HOLDER.get();
+                HOLDER.set(this);
+                try {
+                    return task.call();
+                } finally {
+                    HOLDER.set(previous);
+                }
+            };
+        }
+
+        /**
+         * Release the permits the task holds and refuse the ones it takes later.
+         */
+        public synchronized void abandon() {
+            abandoned = true;
+            permits.forEach(Permit::release);
+            permits.clear();
+        }
+
+        private synchronized void hold(Permit permit) {
+            if (abandoned) {
+                permit.release();
+                throw new CancellationException("Task was abandoned");
+            }
+            permits.add(permit);
+        }
+
+        private synchronized void drop(Permit permit) {
+            permits.remove(permit);
+        }
+    }
+
+    /**
+     * A permit that is released at most once, by the operation or by the holder abandoning it.
+     */
+    private static final class Permit {
+
+        private final Semaphore semaphore;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Semaphore semaphore) {
+            this.semaphore = semaphore;
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                semaphore.release();
+            }
+        }
+    }
+
+    /**
+     * A throttled operation with a result.
+     *
+     * @param <T> Result type.
+     * @param <E> Exception type.
+     */
+    @FunctionalInterface
+    public static interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    /**
+     * A throttled operation without a result.
+     *
+     * @param <E> Exception type.
+     */
+    @FunctionalInterface
+    public static interface Action<E extends Exception> {
+        void run() throws E;
+    }
+}
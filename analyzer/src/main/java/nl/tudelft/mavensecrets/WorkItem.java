@@ -0,0 +1,164 @@
+package nl.tudelft.mavensecrets;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An artifact travelling through the {@link Runner} stages.
+ * Each stage fills in its part; an item is only handled by one stage at a time.
+ */
+final class WorkItem implements Closeable {
+
+    private final ArtifactId id;
+    private final Page page;
+    private final long queued;
+    private ResolvedPackage resolved = null;
+    private Package pkg = null;
+    private Object[] values = null;
+    private Exception failure = null;
+    private ByteBudget budget = null;
+    private long reserved = 0;
+    private int attempts = 0;
+    private final List<String> notes = Collections.synchronizedList(new ArrayList<>());
+
+    WorkItem(ArtifactId id, Page page) {
+        this.id = Objects.requireNonNull(id);
+        this.page = Objects.requireNonNull(page);
+        this.queued = System.nanoTime();
+    }
+
+    ArtifactId id() {
+        return id;
+    }
+
+    Page page() {
+        return page;
+    }
+
+    /**
+     * Get the time this item was created.
+     *
+     * @return The {@link System#nanoTime()} at creation.
+     */
+    long queued() {
+        return queued;
+    }
+
+    ResolvedPackage resolved() {
+        return resolved;
+    }
+
+    void resolved(ResolvedPackage resolved) {
+        this.resolved = Objects.requireNonNull(resolved);
+    }
+
+    Package pkg() {
+        return pkg;
+    }
+
+    void pkg(Package pkg) {
+        this.pkg = Objects.requireNonNull(pkg);
+    }
+
+    Object[] values() {
+        return values;
+    }
+
+    void values(Object[] values) {
+        this.values = Objects.requireNonNull(values);
+    }
+
+    Exception failure() {
+        return failure;
+    }
+
+    void fail(Exception failure) {
+        this.failure = Objects.requireNonNull(failure);
+    }
+
+    boolean failed() {
+        return failure != null;
+    }
+
+    /**
+     * Get the number of times this item has been retried.
+     *
+     * @return The number of retries.
+     */
+    int attempts() {
+        return attempts;
+    }
+
+    /**
+     * Clear the failure before retrying this item.
+     */
+    void retry() {
+        failure = null;
+        attempts++;
+    }
+
+    /**
+     * Record why some of the values are missing, for instance because an extractor timed out.
+     * Unlike {@link #fail(Exception)}, the other values are still written.
+     * Extractors running concurrently may call this at the same time.
+     *
+     * @param note The reason.
+     */
+    void note(String note) {
+        notes.add(Objects.requireNonNull(note));
+    }
+
+    List<String> notes() {
+        synchronized (notes) {
+            return List.copyOf(notes);
+        }
+    }
+
+    /**
+     * Reserve the archive size of this item in a budget, blocking until it fits.
+     * The reservation is returned when this item is closed.
+     *
+     * @param budget The budget.
+     * @param bytes Number of bytes to reserve.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    void reserve(ByteBudget budget, long bytes) throws InterruptedException {
+        Objects.requireNonNull(budget);
+        if (this.budget != null) {
+            throw new IllegalStateException("Already reserved: " + id);
+        }
+
+        budget.acquire(bytes);
+        this.budget = budget;
+        this.reserved = bytes;
+    }
+
+    /**
+     * Close the opened package, if any, and return its reservation.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (pkg != null) {
+                Package p = pkg;
+                pkg = null;
+                p.close();
+            }
+        } finally {
+            if (budget != null) {
+                ByteBudget b = budget;
+                budget = null;
+                b.release(reserved);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return id.toString();
+    }
+}
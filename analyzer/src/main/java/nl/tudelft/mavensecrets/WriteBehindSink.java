@@ -0,0 +1,311 @@
+package nl.tudelft.mavensecrets;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A {@link ResultSink} handing rows to a writer thread of its own, so the threads producing them do not wait for the database.
+ * Rows pass through a bounded queue, which only blocks its producers once the writer falls behind by the queue's capacity.
+ * The writer takes up to the group size in rows at a time, waiting at most the linger time for a group to fill up, writes them to the wrapped sink and flushes it, so a group is committed together.
+ * {@link #durable()} is completed once the rows written before it have been flushed.
+ */
+final class WriteBehindSink implements ResultSink {
+
+    private static final Logger LOGGER = LogManager.getLogger(WriteBehindSink.class);
+
+    private final ResultSink delegate;
+    private final Throttle database;
+    private final int capacity;
+    private final int groupSize;
+    private final long linger;
+    private final Metrics metrics;
+    private final BlockingQueue<Entry> queue;
+    private final Thread writer;
+    private volatile boolean closed = false;
+    // Failure of a group no marker has been completed with yet, only used by the writer thread
+    private SQLException failure = null;
+
+    /**
+     * Create a sink and start its writer thread.
+     *
+     * @param delegate Sink the writer thread writes to.
+     * @param database Throttle the writer thread takes a permit of for every group.
+     * @param capacity Maximum number of rows waiting for the writer thread.
+     * @param groupSize Maximum number of rows written in one group.
+     * @param linger Milliseconds the writer thread waits for a group to fill up.
+     * @param metrics Metrics to record groups in.
+     */
+    WriteBehindSink(ResultSink delegate, Throttle database, int capacity, int groupSize, long linger, Metrics metrics) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.database = Objects.requireNonNull(database);
+        if (capacity <= 0 || groupSize <= 0 || linger < 0) {
+            throw new IllegalArgumentException("Invalid capacity, group size or linger time: " + capacity + '/' + groupSize + '/' + linger);
+        }
+        this.capacity = capacity;
+        this.groupSize = groupSize;
+        this.linger = linger;
+        this.metrics = Objects.requireNonNull(metrics);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::drain, "sink-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void prepare(Field[] fields) throws SQLException {
+        delegate.prepare(fields);
+    }
+
+    @Override
+    public void write(ArtifactId id, Field[] fields, Object[] values) throws SQLException {
+        Objects.requireNonNull(id);
+        Objects.requireNonNull(fields);
+        Objects.requireNonNull(values);
+        if (fields.length != values.length) {
+            throw new IllegalArgumentException("number of fields and values is different");
+        }
+
+        enqueue(new Row(id, fields, values, System.nanoTime()));
+    }
+
+    @Override
+    public void unresolved(ArtifactId id, String reason) throws SQLException {
+        Objects.requireNonNull(id);
+
+        enqueue(new Unresolved(id, reason, System.nanoTime()));
+    }
+
+    @Override
+    public CompletionStage<Void> durable() {
+        var future = new CompletableFuture<Void>();
+        try {
+            enqueue(new Marker(future, false));
+        } catch (SQLException exception) {
+            future.completeExceptionally(exception);
+        }
+        return future;
+    }
+
+    @Override
+    public void flush() throws SQLException {
+        try {
+            durable().toCompletableFuture().join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof SQLException cause) {
+                throw cause;
+            }
+            throw new SQLException("Could not flush results", exception.getCause());
+        }
+    }
+
+    /**
+     * Write the waiting rows, stop the writer thread and close the wrapped sink.
+     */
+    @Override
+    public void close() throws SQLException {
+        if (!closed) {
+            closed = true;
+            put(new Marker(new CompletableFuture<>(), true));
+        }
+        // Uninterruptible like the throttles, so the rows are not abandoned halfway
+        var interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException exception) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        delegate.close();
+    }
+
+    /**
+     * Get the number of rows waiting for the writer thread.
+     *
+     * @return The number of rows.
+     */
+    int getWaiting() {
+        return queue.size();
+    }
+
+    @Override
+    public String toString() {
+        return "WriteBehindSink[delegate=" + delegate + ", capacity=" + capacity + ", groupSize=" + groupSize + ", linger=" + linger + ']';
+    }
+
+    private void enqueue(Entry entry) throws SQLException {
+        if (closed) {
+            throw new SQLException("Result sink is closed");
+        }
+        put(entry);
+    }
+
+    private void put(Entry entry) {
+        var interrupted = false;
+        while (true) {
+            try {
+                queue.put(entry);
+                break;
+            } catch (InterruptedException exception) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        List<Entry> group = new ArrayList<>(groupSize);
+        var stopped = false;
+        // Rows that slipped in behind the stop marker are still written
+        while (!stopped || !queue.isEmpty()) {
+            try {
+                collect(group);
+            } catch (InterruptedException exception) {
+                // Only the sink itself stops the writer
+                continue;
+            }
+            commit(group);
+            for (var entry : group) {
+                stopped |= entry instanceof Marker marker && marker.stop();
+            }
+            group.clear();
+        }
+    }
+
+    /**
+     * Wait for a group to fill up, for at most the linger time after its first entry.
+     * A group waited for by a flush is taken as soon as its marker arrives.
+     */
+    private void collect(List<Entry> group) throws InterruptedException {
+        if (group.isEmpty()) {
+            group.add(queue.take());
+        }
+        var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(linger);
+        var rows = rows(group);
+        while (rows < groupSize && !(group.get(group.size() - 1) instanceof Marker)) {
+            var remaining = deadline - System.nanoTime();
+            var entry = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+            if (entry == null) {
+                return;
+            }
+            group.add(entry);
+            if (!(entry instanceof Marker)) {
+                rows++;
+            }
+        }
+    }
+
+    private void commit(List<Entry> group) {
+        var rows = rows(group);
+        if (rows > 0) {
+            var start = System.nanoTime();
+            try {
+                database.run(() -> metrics.time("sink.commit", () -> {
+                    for (var entry : group) {
+                        write(entry);
+                    }
+                    delegate.flush();
+                }));
+            } catch (SQLException exception) {
+                LOGGER.warn("Could not flush a group of {} rows", rows, exception);
+                failure = exception;
+            } catch (RuntimeException exception) { // Keep the writer alive
+                LOGGER.error("Could not write a group of {} rows", rows, exception);
+                failure = new SQLException("Could not write results", exception);
+            }
+            LOGGER.trace("Wrote a group of {} rows", rows);
+            for (var entry : group) {
+                if (!(entry instanceof Marker)) {
+                    metrics.record("sink.queued", start - entry.queued());
+                }
+            }
+        }
+
+        var acknowledged = false;
+        for (var entry : group) {
+            if (entry instanceof Marker marker) {
+                if (failure == null) {
+                    marker.future().complete(null);
+                } else {
+                    marker.future().completeExceptionally(failure);
+                }
+                acknowledged = true;
+            }
+        }
+        if (acknowledged) {
+            failure = null;
+        }
+    }
+
+    private void write(Entry entry) {
+        if (entry instanceof Row row) {
+            try {
+                delegate.write(row.id(), row.fields(), row.values());
+            } catch (SQLException exception) {
+                LOGGER.error("Could not write fields of {}", row.id(), exception);
+                writeUnresolved(row.id(), exception.toString());
+            }
+        } else if (entry instanceof Unresolved unresolved) {
+            writeUnresolved(unresolved.id(), unresolved.reason());
+        }
+    }
+
+    private void writeUnresolved(ArtifactId id, String reason) {
+        try {
+            delegate.unresolved(id, reason);
+        } catch (SQLException exception) {
+            LOGGER.error("Could not write failure of {} to database", id, exception);
+        }
+    }
+
+    private static int rows(List<Entry> group) {
+        var rows = 0;
+        for (var entry : group) {
+            if (!(entry instanceof Marker)) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Something waiting for the writer thread.
+     */
+    private static sealed interface Entry permits Row, Unresolved, Marker {
+
+        long queued();
+    }
+
+    private static record Row(ArtifactId id, Field[] fields, Object[] values, long queued) implements Entry {
+    }
+
+    private static record Unresolved(ArtifactId id, String reason, long queued) implements Entry {
+    }
+
+    /**
+     * Completed once the rows ahead of it have been written; the last entry if it stops the writer.
+     */
+    private static record Marker(CompletableFuture<Void> future, boolean stop) implements Entry {
+
+        @Override
+        public long queued() {
+            return 0;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package nl.tudelft.mavensecrets.config;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.Map;
 
 import nl.tudelft.mavensecrets.extractors.Extractor;
 
@@ -24,6 +25,62 @@ public interface Config {
      */
     int getThreads();
 
+    /**
+     * Get the worker counts of the pipeline stages.
+     *
+     * @return The stage configuration.
+     */
+    Stages getStages();
+
+    /**
+     * Get the bounds of the adaptive limit on packages in flight.
+     *
+     * @return The adaptive concurrency configuration.
+     */
+    Concurrency getConcurrency();
+
+    /**
+     * Get the settings for sharing a run between several processes.
+     *
+     * @return The distribution configuration.
+     */
+    Distributed getDistributed();
+
+    /**
+     * Get the concurrency limits for blocking I/O.
+     *
+     * @return The limits.
+     */
+    Limits getLimits();
+
+    /**
+     * Get the extractor deadlines and circuit breaker settings.
+     *
+     * @return The timeout configuration.
+     */
+    Timeouts getTimeouts();
+
+    /**
+     * Get the retry policy for artifacts that failed to resolve for a transient reason.
+     *
+     * @return The retry configuration.
+     */
+    Retry getRetry();
+
+    /**
+     * Get how run metrics are exposed.
+     *
+     * @return The metrics configuration.
+     */
+    Metrics getMetrics();
+
+    /**
+     * Get how results are written to the database.
+     *
+     * @return The writer configuration.
+     */
+    Writer getWriter();
+
     /**
      * Get the database configuration.
      *
@@ -60,6 +117,302 @@ public interface Config {
      */
     float getSamplePercent();
 
+    /**
+     * Get whether to resume an earlier run with the same selection.
+     * Pages completed by that run are skipped, as are artifacts that already have a row.
+     *
+     * @return <code>true</code> to resume, <code>false</code> to start over.
+     */
+    boolean isResume();
+
+    /**
+     * Worker counts of the resolve, open, extract and persist stages.
+     */
+    public static interface Stages {
+
+        /**
+         * Get the number of workers fetching archives and POMs.
+         *
+         * @return The worker count.
+         */
+        int getResolve();
+
+        /**
+         * Get the number of workers opening archives.
+         *
+         * @return The worker count.
+         */
+        int getOpen();
+
+        /**
+         * Get the number of workers running extractors.
+         *
+         * @return The worker count.
+         */
+        int getExtract();
+
+        /**
+         * Get the number of workers writing results.
+         *
+         * @return The worker count.
+         */
+        int getPersist();
+
+        /**
+         * Get the archive size above which the extractors of one package run concurrently.
+         *
+         * @return The size in bytes or <code>0</code> if extractors always run one after another.
+         */
+        long getParallelExtractThreshold();
+
+        /**
+         * Get the capacity of the queues between stages.
+         *
+         * @return The queue size.
+         */
+        int getQueueSize();
+
+        /**
+         * Get if the artifacts of a page are queued largest archive first.
+         *
+         * @return If artifacts are ordered by expected cost.
+         */
+        boolean isLongestFirst();
+    }
+
+    /**
+     * An adaptive limit on the number of packages in flight, adjusted to the measured throughput and latency.
+     */
+    public static interface Concurrency {
+
+        /**
+         * Get if the number of packages in flight is limited adaptively.
+         *
+         * @return If the limit is enabled.
+         */
+        boolean isAdaptive();
+
+        /**
+         * Get the lowest limit, which is also the starting point.
+         *
+         * @return The minimum number of packages in flight.
+         */
+        int getMin();
+
+        /**
+         * Get the highest limit.
+         *
+         * @return The maximum number of packages in flight.
+         */
+        int getMax();
+
+        /**
+         * Get the time between adjustments.
+         *
+         * @return The interval in milliseconds.
+         */
+        long getInterval();
+    }
+
+    /**
+     * Settings for sharing a run between several processes through a work queue in the database.
+     */
+    public static interface Distributed {
+
+        /**
+         * Get if the run is shared with other processes.
+         *
+         * @return If the work queue is used.
+         */
+        boolean isEnabled();
+
+        /**
+         * Get the name of this process in the work queue.
+         *
+         * @return The worker name.
+         */
+        String getWorker();
+
+        /**
+         * Get how long a claimed batch stays leased without being renewed.
+         *
+         * @return The lease duration in seconds.
+         */
+        int getLease();
+    }
+
+    /**
+     * Concurrency limits shared by all packages in flight.
+     */
+    public static interface Limits {
+
+        /**
+         * Get the maximum number of concurrent network operations.
+         *
+         * @return The limit.
+         */
+        int getNetwork();
+
+        /**
+         * Get the maximum number of concurrent archive reads.
+         *
+         * @return The limit.
+         */
+        int getDisk();
+
+        /**
+         * Get the maximum number of concurrent database writes.
+         *
+         * @return The limit.
+         */
+        int getDatabase();
+
+        /**
+         * Get the maximum total on-disk size of the archives held open at once.
+         * A single archive larger than this is still opened, but only on its own.
+         *
+         * @return The limit in bytes or <code>0</code> for none.
+         */
+        long getArchiveBytes();
+    }
+
+    /**
+     * Extractor deadlines, the circuit breaker disabling extractors that keep timing out and the shutdown grace period.
+     */
+    public static interface Timeouts {
+
+        /**
+         * Get the deadline of extractors without their own.
+         *
+         * @return The deadline in milliseconds or <code>0</code> for none.
+         */
+        long getDefault();
+
+        /**
+         * Get the deadlines of specific extractors.
+         *
+         * @return The deadlines in milliseconds by extractor class name.
+         */
+        Map<String, Long> getExtractors();
+
+        /**
+         * Get the number of recent runs of an extractor the circuit breaker looks at.
+         *
+         * @return The window size.
+         */
+        int getBreakerWindow();
+
+        /**
+         * Get the fraction of timed out runs in the window at which an extractor is disabled.
+         *
+         * @return The threshold between <code>0</code> (exclusive) and <code>1</code> (inclusive).
+         */
+        double getBreakerThreshold();
+
+        /**
+         * Get how long a disabled extractor stays disabled before it is tried again.
+         *
+         * @return The cooldown in milliseconds.
+         */
+        long getBreakerCooldown();
+
+        /**
+         * Get how long a shutdown waits for the artifacts in flight to be written.
+         *
+         * @return The grace period in milliseconds or <code>0</code> to not wait.
+         */
+        long getShutdown();
+    }
+
+    /**
+     * Batching of the rows written to the database.
+     */
+    public static interface Writer {
+
+        /**
+         * Get the number of rows written together in one multi-row statement.
+         *
+         * @return The batch size, <code>1</code> to write every row on its own.
+         */
+        int getBatchSize();
+
+        /**
+         * Get how long a row may wait for its batch to fill up.
+         *
+         * @return The interval in milliseconds.
+         */
+        long getFlushInterval();
+
+        /**
+         * Get the number of rows that may wait for a writer thread of their own.
+         * With a writer thread, batches are written in the background and pages are checkpointed once their rows are written.
+         *
+         * @return The queue size, <code>0</code> to write rows on the threads extracting them.
+         */
+        int getQueueSize();
+    }
+
+    /**
+     * Retry policy for artifacts whose resolution failed for a transient reason, such as a timeout or a server error.
+     */
+    public static interface Retry {
+
+        /**
+         * Get the maximum number of retries per artifact.
+         *
+         * @return The number of retries or <code>0</code> to disable retrying.
+         */
+        int getAttempts();
+
+        /**
+         * Get the upper bound of the delay before the first retry, doubled on every further retry.
+         *
+         * @return The delay in milliseconds.
+         */
+        long getBaseDelay();
+
+        /**
+         * Get the upper bound of the delay between retries.
+         *
+         * @return The delay in milliseconds.
+         */
+        long getMaxDelay();
+
+        /**
+         * Get the number of workers resolving retried artifacts, separate from the resolve stage.
+         *
+         * @return The worker count.
+         */
+        int getWorkers();
+    }
+
+    /**
+     * Exposure of latency histograms and throughput counters while running.
+     */
+    public static interface Metrics {
+
+        /**
+         * Get whether the metrics are registered as MBeans.
+         *
+         * @return <code>true</code> to expose the metrics over JMX.
+         */
+        boolean isJmx();
+
+        /**
+         * Get the address the Prometheus endpoint binds to.
+         *
+         * @return The address or <code>null</code> for the loopback address.
+         */
+        String getAddress();
+
+        /**
+         * Get the port of the Prometheus endpoint.
+         *
+         * @return The port or <code>0</code> to not serve the metrics.
+         */
+        int getPort();
+    }
+
     /**
      * A database configuration.
      */
@@ -99,5 +452,19 @@ public interface Config {
          * @return The password.
          */
         String getPassword();
+
+        /**
+         * Get the maximum number of connections to the database.
+         *
+         * @return The pool size.
+         */
+        int getPoolSize();
+
+        /**
+         * Get the number of rows fetched at a time when streaming the selection through a server-side cursor.
+         *
+         * @return The fetch size or <code>0</code> to query the selection a page at a time.
+         */
+        int getFetchSize();
     } 
 }
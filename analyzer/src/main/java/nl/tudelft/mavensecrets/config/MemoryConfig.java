@@ -4,6 +4,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
 import java.util.Objects;
 
 import nl.tudelft.mavensecrets.extractors.Extractor;
@@ -11,24 +12,41 @@ import nl.tudelft.mavensecrets.extractors.Extractor;
 /**
  * An in-memory {@link Config}.
  */
-public record MemoryConfig(Collection<? extends Extractor> extractors, int threads, Database databaseConfig, Collection<? extends String> indices, File repository, double seed, float samplePercent) implements Config {
+public record MemoryConfig(Collection<? extends Extractor> extractors, int threads, Stages stages, Concurrency concurrency, Distributed distributed, Limits limits, Timeouts timeouts, Retry retry, Metrics metrics, Writer writer, Database databaseConfig, Collection<? extends String> indices, File repository, double seed, float samplePercent, boolean resume) implements Config {
 
     /**
      * Create a configuration instance.
      *
      * @param extractors Extractor instances to run.
      * @param threads Thread pool size.
+     * @param stages Pipeline stage worker counts.
+     * @param concurrency Adaptive concurrency bounds.
+     * @param distributed Work queue settings.
+     * @param limits I/O concurrency limits.
+     * @param timeouts Extractor deadlines.
+     * @param retry Retry policy for transient resolution failures.
+     * @param metrics Metrics exposure.
+     * @param writer Batching of database writes.
      * @param databaseConfig Database configuration.
      * @param indices Index file names to run.
      */
-    public MemoryConfig(Collection<? extends Extractor> extractors, int threads, Database databaseConfig, Collection<? extends String> indices, File repository, double seed, float samplePercent) {
+    public MemoryConfig(Collection<? extends Extractor> extractors, int threads, Stages stages, Concurrency concurrency, Distributed distributed, Limits limits, Timeouts timeouts, Retry retry, Metrics metrics, Writer writer, Database databaseConfig, Collection<? extends String> indices, File repository, double seed, float samplePercent, boolean resume) {
         this.extractors = Collections.unmodifiableCollection(new ArrayList<>(Objects.requireNonNull(extractors)));
         this.threads = threads;
+        this.stages = Objects.requireNonNull(stages);
+        this.concurrency = Objects.requireNonNull(concurrency);
+        this.distributed = Objects.requireNonNull(distributed);
+        this.limits = Objects.requireNonNull(limits);
+        this.timeouts = Objects.requireNonNull(timeouts);
+        this.retry = Objects.requireNonNull(retry);
+        this.metrics = Objects.requireNonNull(metrics);
+        this.writer = Objects.requireNonNull(writer);
         this.databaseConfig = Objects.requireNonNull(databaseConfig);
         this.indices = Collections.unmodifiableCollection(new ArrayList<>(Objects.requireNonNull(indices)));
         this.repository = Objects.requireNonNull(repository);
         this.seed = seed;
         this.samplePercent = samplePercent;
+        this.resume = resume;
         if (threads <= 0) {
             throw new IllegalArgumentException("Invalid thread count: " + threads);
         }
@@ -47,6 +65,46 @@ public record MemoryConfig(Collection<? extends Extractor> extractors, int threa
         return threads();
     }
 
+    @Override
+    public Stages getStages() {
+        return stages();
+    }
+
+    @Override
+    public Concurrency getConcurrency() {
+        return concurrency();
+    }
+
+    @Override
+    public Distributed getDistributed() {
+        return distributed();
+    }
+
+    @Override
+    public Limits getLimits() {
+        return limits();
+    }
+
+    @Override
+    public Timeouts getTimeouts() {
+        return timeouts();
+    }
+
+    @Override
+    public Retry getRetry() {
+        return retry();
+    }
+
+    @Override
+    public Metrics getMetrics() {
+        return metrics();
+    }
+
+    @Override
+    public Writer getWriter() {
+        return writer();
+    }
+
     @Override
     public Database getDatabaseConfig() {
         return databaseConfig();
@@ -75,10 +133,377 @@ public record MemoryConfig(Collection<? extends Extractor> extractors, int threa
         return samplePercent();
     }
 
+    @Override
+    public boolean isResume() {
+        return resume();
+    }
+
+    /**
+     * An in-memory {@link Stages} configuration.
+     */
+    public static record MemoryStages(int resolve, int open, int extract, int persist, long parallelExtractThreshold, int queueSize, boolean longestFirst) implements Stages {
+
+        /**
+         * Create a configuration instance.
+         *
+         * @param resolve Resolve stage workers.
+         * @param open Open stage workers.
+         * @param extract Extract stage workers.
+         * @param persist Persist stage workers.
+         * @param parallelExtractThreshold Archive size in bytes above which extractors run concurrently, <code>0</code> to disable.
+         * @param queueSize Capacity of the queues between stages.
+         * @param longestFirst If the artifacts of a page are queued largest archive first.
+         */
+        public MemoryStages {
+            if (resolve <= 0 || open <= 0 || extract <= 0 || persist <= 0 || queueSize <= 0) {
+                throw new IllegalArgumentException("Stage workers and queue size must be positive");
+            }
+            if (parallelExtractThreshold < 0) {
+                throw new IllegalArgumentException("Parallel extraction threshold must not be negative");
+            }
+        }
+
+        @Override
+        public int getResolve() {
+            return resolve();
+        }
+
+        @Override
+        public int getOpen() {
+            return open();
+        }
+
+        @Override
+        public int getExtract() {
+            return extract();
+        }
+
+        @Override
+        public int getPersist() {
+            return persist();
+        }
+
+        @Override
+        public long getParallelExtractThreshold() {
+            return parallelExtractThreshold();
+        }
+
+        @Override
+        public int getQueueSize() {
+            return queueSize();
+        }
+
+        @Override
+        public boolean isLongestFirst() {
+            return longestFirst();
+        }
+    }
+
+    /**
+     * An in-memory {@link Concurrency} configuration.
+     */
+    public static record MemoryConcurrency(boolean adaptive, int min, int max, long interval) implements Concurrency {
+
+        /**
+         * Create a configuration instance.
+         *
+         * @param adaptive If the number of packages in flight is limited adaptively.
+         * @param min Minimum and initial limit.
+         * @param max Maximum limit.
+         * @param interval Milliseconds between adjustments.
+         */
+        public MemoryConcurrency {
+            if (min <= 0 || max < min) {
+                throw new IllegalArgumentException("Invalid concurrency bounds: " + min + '-' + max);
+            }
+            if (interval <= 0) {
+                throw new IllegalArgumentException("Adjustment interval must be positive");
+            }
+        }
+
+        @Override
+        public boolean isAdaptive() {
+            return adaptive();
+        }
+
+        @Override
+        public int getMin() {
+            return min();
+        }
+
+        @Override
+        public int getMax() {
+            return max();
+        }
+
+        @Override
+        public long getInterval() {
+            return interval();
+        }
+    }
+
+    /**
+     * An in-memory {@link Distributed} configuration.
+     */
+    public static record MemoryDistributed(boolean enabled, String worker, int lease) implements Distributed {
+
+        /**
+         * Create a configuration instance.
+         *
+         * @param enabled If the run is shared with other processes.
+         * @param worker Name of this process.
+         * @param lease Lease duration in seconds.
+         */
+        public MemoryDistributed(boolean enabled, String worker, int lease) {
+            if (lease <= 0) {
+                throw new IllegalArgumentException("Lease duration must be positive");
+            }
+            this.enabled = enabled;
+            this.worker = Objects.requireNonNull(worker);
+            this.lease = lease;
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return enabled();
+        }
+
+        @Override
+        public String getWorker() {
+            return worker();
+        }
+
+        @Override
+        public int getLease() {
+            return lease();
+        }
+    }
+
+    /**
+     * An in-memory {@link Limits} configuration.
+     */
+    public static record MemoryLimits(int network, int disk, int database, long archiveBytes) implements Limits {
+
+        /**
+         * Create a configuration instance.
+         *
+         * @param network Concurrent network operations.
+         * @param disk Concurrent archive reads.
+         * @param database Concurrent database writes.
+         * @param archiveBytes Total bytes of open archives, <code>0</code> for no limit.
+         */
+        public MemoryLimits {
+            if (network <= 0 || disk <= 0 || database <= 0) {
+                throw new IllegalArgumentException("Limits must be positive");
+            }
+            if (archiveBytes < 0) {
+                throw new IllegalArgumentException("Archive limit must not be negative");
+            }
+        }
+
+        @Override
+        public int getNetwork() {
+            return network();
+        }
+
+        @Override
+        public int getDisk() {
+            return disk();
+        }
+
+        @Override
+        public int getDatabase() {
+            return database();
+        }
+
+        @Override
+        public long getArchiveBytes() {
+            return archiveBytes();
+        }
+    }
+
+    /**
+     * An in-memory {@link Timeouts} configuration.
+     */
+    public static record MemoryTimeouts(long defaultTimeout, Map<String, Long> extractors, int breakerWindow, double breakerThreshold, long breakerCooldown, long shutdown) implements Timeouts {
+
+        /**
+         * Create a configuration instance.
+         *
+         * @param defaultTimeout Deadline in milliseconds of extractors without their own, <code>0</code> for none.
+         * @param extractors Deadlines in milliseconds by extractor class name.
+         * @param breakerWindow Number of recent runs the circuit breaker looks at.
+         * @param breakerThreshold Fraction of timed out runs at which an extractor is disabled.
+         * @param breakerCooldown Milliseconds a disabled extractor stays disabled.
+         * @param shutdown Milliseconds to wait for artifacts in flight when shutting down, <code>0</code> to not wait.
+         */
+        public MemoryTimeouts(long defaultTimeout, Map<String, Long> extractors, int breakerWindow, double breakerThreshold, long breakerCooldown, long shutdown) {
+            if (defaultTimeout < 0 || shutdown < 0 || extractors.values().stream().anyMatch(x -> x < 0)) {
+                throw new IllegalArgumentException("Timeouts must not be negative");
+            }
+            if (breakerWindow <= 0 || breakerCooldown < 0) {
+                throw new IllegalArgumentException("Invalid circuit breaker window or cooldown");
+            }
+            if (!(breakerThreshold > 0 && breakerThreshold <= 1)) {
+                throw new IllegalArgumentException("Circuit breaker threshold must be between 0 and 1");
+            }
+            this.defaultTimeout = defaultTimeout;
+            this.extractors = Map.copyOf(extractors);
+            this.breakerWindow = breakerWindow;
+            this.breakerThreshold = breakerThreshold;
+            this.breakerCooldown = breakerCooldown;
+            this.shutdown = shutdown;
+        }
+
+        @Override
+        public long getDefault() {
+            return defaultTimeout();
+        }
+
+        @Override
+        public Map<String, Long> getExtractors() {
+            return extractors();
+        }
+
+        @Override
+        public int getBreakerWindow() {
+            return breakerWindow();
+        }
+
+        @Override
+        public double getBreakerThreshold() {
+            return breakerThreshold();
+        }
+
+        @Override
+        public long getBreakerCooldown() {
+            return breakerCooldown();
+        }
+
+        @Override
+        public long getShutdown() {
+            return shutdown();
+        }
+    }
+
+    /**
+     * An in-memory {@link Retry} configuration.
+     */
+    public static record MemoryRetry(int attempts, long baseDelay, long maxDelay, int workers) implements Retry {
+
+        /**
+         * Create a configuration instance.
+         *
+         * @param attempts Maximum number of retries per artifact, <code>0</code> to disable retries.
+         * @param baseDelay Milliseconds before the first retry.
+         * @param maxDelay Maximum milliseconds between retries.
+         * @param workers Number of workers retrying artifacts.
+         */
+        public MemoryRetry {
+            if (attempts < 0) {
+                throw new IllegalArgumentException("Retry attempts must not be negative");
+            }
+            if (baseDelay <= 0 || maxDelay < baseDelay) {
+                throw new IllegalArgumentException("Invalid retry delays: " + baseDelay + '-' + maxDelay);
+            }
+            if (workers <= 0) {
+                throw new IllegalArgumentException("Retry workers must be positive");
+            }
+        }
+
+        @Override
+        public int getAttempts() {
+            return attempts();
+        }
+
+        @Override
+        public long getBaseDelay() {
+            return baseDelay();
+        }
+
+        @Override
+        public long getMaxDelay() {
+            return maxDelay();
+        }
+
+        @Override
+        public int getWorkers() {
+            return workers();
+        }
+    }
+
+    /**
+     * An in-memory {@link Writer} configuration.
+     */
+    public static record MemoryWriter(int batchSize, long flushInterval, int queueSize) implements Writer {
+
+        /**
+         * Create a configuration instance.
+         *
+         * @param batchSize Rows per multi-row statement, <code>1</code> to write every row on its own.
+         * @param flushInterval Milliseconds a row may wait for its batch to fill up.
+         * @param queueSize Rows that may wait for the writer thread, <code>0</code> to write rows on the threads extracting them.
+         */
+        public MemoryWriter {
+            if (batchSize <= 0 || flushInterval <= 0 || queueSize < 0) {
+                throw new IllegalArgumentException("Invalid batch size, flush interval or queue size: " + batchSize + '/' + flushInterval + '/' + queueSize);
+            }
+        }
+
+        @Override
+        public int getBatchSize() {
+            return batchSize();
+        }
+
+        @Override
+        public long getFlushInterval() {
+            return flushInterval();
+        }
+
+        @Override
+        public int getQueueSize() {
+            return queueSize();
+        }
+    }
+
+    /**
+     * An in-memory {@link Metrics} configuration.
+     */
+    public static record MemoryMetrics(boolean jmx, String address, int port) implements Metrics {
+
+        /**
+         * Create a configuration instance.
+         *
+         * @param jmx Whether to register MBeans.
+         * @param address Prometheus endpoint address or <code>null</code> for the loopback address.
+         * @param port Prometheus endpoint port, <code>0</code> to disable it.
+         */
+        public MemoryMetrics {
+            if (port < 0 || port > 0xFFFF) {
+                throw new IllegalArgumentException("Invalid metrics port: " + port);
+            }
+        }
+
+        @Override
+        public boolean isJmx() {
+            return jmx();
+        }
+
+        @Override
+        public String getAddress() {
+            return address();
+        }
+
+        @Override
+        public int getPort() {
+            return port();
+        }
+    }
+
     /**
      * An in-memory {@link Database} configuration.
      */
-    public static record MemoryDatabase(String hostname, int port, String name, String username, String password) implements Database {
+    public static record MemoryDatabase(String hostname, int port, String name, String username, String password, int poolSize, int fetchSize) implements Database {
 
         /**
          * Create a configuration instance.
@@ -88,13 +513,27 @@ public record MemoryConfig(Collection<? extends Extractor> extractors, int threa
          * @param name Database name.
          * @param username Username or <code>null</code> for no credentials.
          * @param password Password or <code>null</code> for no credentials.
+         * @param poolSize Maximum number of connections.
+         * @param fetchSize Rows fetched at a time from a selection cursor, <code>0</code> for no cursor.
          */
-        public MemoryDatabase(String hostname, int port, String name, String username, String password) {
+        public MemoryDatabase(String hostname, int port, String name, String username, String password, int poolSize, int fetchSize) {
             this.hostname = Objects.requireNonNull(hostname);
             this.port = port;
             this.name = Objects.requireNonNull(name);
             this.username = username;
             this.password = password;
+            if (poolSize <= 0) {
+                throw new IllegalArgumentException("Invalid pool size: " + poolSize);
+            }
+            this.poolSize = poolSize;
+            if (fetchSize < 0) {
+                throw new IllegalArgumentException("Invalid fetch size: " + fetchSize);
+            }
+            // The cursor keeps a connection for the whole run, every other statement would wait for it forever
+            if (fetchSize > 0 && poolSize < 2) {
+                throw new IllegalArgumentException("A selection cursor needs a pool of at least 2 connections: " + poolSize);
+            }
+            this.fetchSize = fetchSize;
         }
 
         @Override
@@ -122,6 +561,16 @@ public record MemoryConfig(Collection<? extends Extractor> extractors, int threa
             return password();
         }
 
+        @Override
+        public int getPoolSize() {
+            return poolSize();
+        }
+
+        @Override
+        public int getFetchSize() {
+            return fetchSize();
+        }
+
         @Override
         public String toString() {
             StringBuilder sb = new StringBuilder()
@@ -141,6 +590,10 @@ public record MemoryConfig(Collection<? extends Extractor> extractors, int threa
             }
 
             return sb
+                    .append(", poolSize=")
+                    .append(poolSize)
+                    .append(", fetchSize=")
+                    .append(fetchSize)
                     .append(']')
                     .toString();
         }
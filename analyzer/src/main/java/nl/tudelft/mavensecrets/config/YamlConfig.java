@@ -4,11 +4,15 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.Reader;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.UUID;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -21,8 +25,24 @@ import org.yaml.snakeyaml.reader.UnicodeReader;
 import org.yaml.snakeyaml.representer.Representer;
 
 import nl.tudelft.mavensecrets.extractors.Extractor;
+import nl.tudelft.mavensecrets.config.Config.Concurrency;
 import nl.tudelft.mavensecrets.config.Config.Database;
+import nl.tudelft.mavensecrets.config.Config.Distributed;
+import nl.tudelft.mavensecrets.config.Config.Limits;
+import nl.tudelft.mavensecrets.config.Config.Metrics;
+import nl.tudelft.mavensecrets.config.Config.Retry;
+import nl.tudelft.mavensecrets.config.Config.Stages;
+import nl.tudelft.mavensecrets.config.Config.Timeouts;
+import nl.tudelft.mavensecrets.config.Config.Writer;
+import nl.tudelft.mavensecrets.config.MemoryConfig.MemoryConcurrency;
 import nl.tudelft.mavensecrets.config.MemoryConfig.MemoryDatabase;
+import nl.tudelft.mavensecrets.config.MemoryConfig.MemoryDistributed;
+import nl.tudelft.mavensecrets.config.MemoryConfig.MemoryLimits;
+import nl.tudelft.mavensecrets.config.MemoryConfig.MemoryMetrics;
+import nl.tudelft.mavensecrets.config.MemoryConfig.MemoryRetry;
+import nl.tudelft.mavensecrets.config.MemoryConfig.MemoryStages;
+import nl.tudelft.mavensecrets.config.MemoryConfig.MemoryTimeouts;
+import nl.tudelft.mavensecrets.config.MemoryConfig.MemoryWriter;
 
 /**
  * A YAML-based {@link Config} loader.
@@ -90,6 +110,168 @@ public class YamlConfig {
                 .findFirst()
                 .orElse(8); // Default
 
+        // Stages default to the thread count
+        Optional<Map<?, ?>> stagesMap = Optional.ofNullable(map)
+                .map(x -> x.get("stages"))
+                .map(x -> x instanceof Map ? (Map<?, ?>) x : null);
+        Stages stages = new MemoryStages(
+                getPositiveInt(stagesMap, "resolve").orElse(threads),
+                getPositiveInt(stagesMap, "open").orElse(threads),
+                getPositiveInt(stagesMap, "extract").orElse(threads),
+                getPositiveInt(stagesMap, "persist").orElse(threads),
+                stagesMap
+                        .map(x -> x.get("parallel-extract-threshold"))
+                        .map(x -> x instanceof Number ? (Number) x : null)
+                        .map(Number::longValue)
+                        .filter(x -> x >= 0)
+                        .orElse(0L),
+                getPositiveInt(stagesMap, "queue-size").orElse(64),
+                stagesMap
+                        .map(x -> x.get("longest-first"))
+                        .map(x -> x instanceof Boolean ? (Boolean) x : null)
+                        .orElse(false));
+
+        Optional<Map<?, ?>> concurrencyMap = Optional.ofNullable(map)
+                .map(x -> x.get("concurrency"))
+                .map(x -> x instanceof Map ? (Map<?, ?>) x : null);
+        int min = getPositiveInt(concurrencyMap, "min").orElse(threads);
+        Concurrency concurrency = new MemoryConcurrency(
+                concurrencyMap
+                        .map(x -> x.get("adaptive"))
+                        .map(x -> x instanceof Boolean ? (Boolean) x : null)
+                        .orElse(false),
+                min,
+                getPositiveInt(concurrencyMap, "max").filter(x -> x >= min).orElse(min * 8),
+                getPositiveInt(concurrencyMap, "interval").orElse(10000));
+
+        Optional<Map<?, ?>> distributedMap = Optional.ofNullable(map)
+                .map(x -> x.get("distributed"))
+                .map(x -> x instanceof Map ? (Map<?, ?>) x : null);
+        Distributed distributed = new MemoryDistributed(
+                distributedMap
+                        .map(x -> x.get("enabled"))
+                        .map(x -> x instanceof Boolean ? (Boolean) x : null)
+                        .orElse(false),
+                distributedMap
+                        .map(x -> x.get("worker"))
+                        .map(x -> x instanceof String ? (String) x : null)
+                        .orElseGet(YamlConfig::getDefaultWorker),
+                getPositiveInt(distributedMap, "lease").orElse(600));
+
+        Optional<Map<?, ?>> limitsMap = Optional.ofNullable(map)
+                .map(x -> x.get("limits"))
+                .map(x -> x instanceof Map ? (Map<?, ?>) x : null);
+        Limits limits = new MemoryLimits(
+                getPositiveInt(limitsMap, "network").orElse(64),
+                getPositiveInt(limitsMap, "disk").orElse(16),
+                getPositiveInt(limitsMap, "database").orElse(8),
+                limitsMap
+                        .map(x -> x.get("archive-bytes"))
+                        .map(x -> x instanceof Number ? (Number) x : null)
+                        .map(Number::longValue)
+                        .filter(x -> x >= 0)
+                        .orElse(0L));
+
+        Optional<Map<?, ?>> timeoutsMap = Optional.ofNullable(map)
+                .map(x -> x.get("timeouts"))
+                .map(x -> x instanceof Map ? (Map<?, ?>) x : null);
+        Optional<Map<?, ?>> breakerMap = timeoutsMap
+                .map(x -> x.get("breaker"))
+                .map(x -> x instanceof Map ? (Map<?, ?>) x : null);
+        Map<String, Long> extractorTimeouts = new HashMap<>();
+        timeoutsMap
+                .map(x -> x.get("extractors"))
+                .map(x -> x instanceof Map ? (Map<?, ?>) x : null)
+                .ifPresent(x -> x.forEach((k, v) -> {
+                    if (k instanceof String name && v instanceof Number timeout && timeout.longValue() >= 0) {
+                        extractorTimeouts.put(name, timeout.longValue());
+                    }
+                }));
+        Timeouts timeouts = new MemoryTimeouts(
+                timeoutsMap
+                        .map(x -> x.get("default"))
+                        .map(x -> x instanceof Number ? (Number) x : null)
+                        .map(Number::longValue)
+                        .filter(x -> x >= 0)
+                        .orElse(0L),
+                extractorTimeouts,
+                getPositiveInt(breakerMap, "window").orElse(50),
+                breakerMap
+                        .map(x -> x.get("threshold"))
+                        .map(x -> x instanceof Number ? (Number) x : null)
+                        .map(Number::doubleValue)
+                        .filter(x -> x > 0 && x <= 1)
+                        .orElse(0.5),
+                breakerMap
+                        .map(x -> x.get("cooldown"))
+                        .map(x -> x instanceof Number ? (Number) x : null)
+                        .map(Number::longValue)
+                        .filter(x -> x >= 0)
+                        .orElse(300000L),
+                timeoutsMap
+                        .map(x -> x.get("shutdown"))
+                        .map(x -> x instanceof Number ? (Number) x : null)
+                        .map(Number::longValue)
+                        .filter(x -> x >= 0)
+                        .orElse(60000L));
+
+        Optional<Map<?, ?>> retryMap = Optional.ofNullable(map)
+                .map(x -> x.get("retry"))
+                .map(x -> x instanceof Map ? (Map<?, ?>) x : null);
+        long baseDelay = retryMap
+                .map(x -> x.get("base-delay"))
+                .map(x -> x instanceof Number ? (Number) x : null)
+                .map(Number::longValue)
+                .filter(x -> x > 0)
+                .orElse(1000L);
+        Retry retry = new MemoryRetry(
+                retryMap
+                        .map(x -> x.get("attempts"))
+                        .map(x -> x instanceof Number ? (Number) x : null)
+                        .map(Number::intValue)
+                        .filter(x -> x >= 0)
+                        .orElse(3),
+                baseDelay,
+                retryMap
+                        .map(x -> x.get("max-delay"))
+                        .map(x -> x instanceof Number ? (Number) x : null)
+                        .map(Number::longValue)
+                        .filter(x -> x >= baseDelay)
+                        .orElse(Math.max(baseDelay, 60000L)),
+                getPositiveInt(retryMap, "workers").orElse(1));
+
+        Optional<Map<?, ?>> metricsMap = Optional.ofNullable(map)
+                .map(x -> x.get("metrics"))
+                .map(x -> x instanceof Map ? (Map<?, ?>) x : null);
+        Metrics metrics = new MemoryMetrics(
+                metricsMap
+                        .map(x -> x.get("jmx"))
+                        .map(x -> x instanceof Boolean ? (Boolean) x : null)
+                        .orElse(false),
+                metricsMap
+                        .map(x -> x.get("address"))
+                        .map(x -> x instanceof String ? (String) x : null)
+                        .orElse(null),
+                metricsMap
+                        .map(x -> x.get("port"))
+                        .map(x -> x instanceof Number ? (Number) x : null)
+                        .map(Number::intValue)
+                        .filter(x -> x >= 0 && x <= 0xFFFF)
+                        .orElse(0));
+
+        Optional<Map<?, ?>> writerMap = Optional.ofNullable(map)
+                .map(x -> x.get("writer"))
+                .map(x -> x instanceof Map ? (Map<?, ?>) x : null);
+        Writer writer = new MemoryWriter(
+                getPositiveInt(writerMap, "batch-size").orElse(1),
+                writerMap
+                        .map(x -> x.get("flush-interval"))
+                        .map(x -> x instanceof Number ? (Number) x : null)
+                        .map(Number::longValue)
+                        .filter(x -> x > 0)
+                        .orElse(1000L),
+                getPositiveInt(writerMap, "queue-size").orElse(0));
+
         Database db = Optional.ofNullable(map)
                 .map(x -> x.get("database"))
                 .map(x -> x instanceof Map ? (Map<?, ?>) x : null)
@@ -99,14 +281,16 @@ public class YamlConfig {
                     Object r = x.get("name");
                     Object s = x.get("username");
                     Object t = x.get("password");
+                    int poolSize = getPositiveInt(Optional.of(x), "pool-size").orElse(8);
+                    int fetchSize = getPositiveInt(Optional.of(x), "fetch-size").orElse(0);
 
                     if (p instanceof String hostname && q instanceof Number port && r instanceof String name) {
-                        return new MemoryDatabase(hostname, port.intValue(), name, s instanceof String ? (String) s : null, t instanceof String ? (String) t : null);
+                        return new MemoryDatabase(hostname, port.intValue(), name, s instanceof String ? (String) s : null, t instanceof String ? (String) t : null, poolSize, fetchSize);
                     }
 
                     return null;
                 })
-                .orElseGet(() -> new MemoryDatabase("localhost", 5432, "postgres", null, null));
+                .orElseGet(() -> new MemoryDatabase("localhost", 5432, "postgres", null, null, 8, 0));
 
         @SuppressWarnings("unchecked")
         Collection<String> indices = Optional.ofNullable(map)
@@ -150,7 +334,47 @@ public class YamlConfig {
                 .findFirst()
                 .orElse(0.1f);
 
-        return new MemoryConfig(collection, threads, db, indices, m2, seed, samplePercent);
+        boolean resume = Optional.ofNullable(map)
+                .map(x -> x.get("resume"))
+                .map(x -> x instanceof Boolean ? (Boolean) x : null)
+                .orElse(false);
+
+        return new MemoryConfig(collection, threads, stages, concurrency, distributed, limits, timeouts, retry, metrics, writer, db, indices, m2, seed, samplePercent, resume);
+    }
+
+    /**
+     * Get a positive integer from a configuration section.
+     *
+     * @param section The section, if present.
+     * @param key The key.
+     * @return The value wrapped in an {@link Optional}.
+     */
+    private static Optional<Integer> getPositiveInt(Optional<Map<?, ?>> section, String key) {
+        Objects.requireNonNull(section);
+        Objects.requireNonNull(key);
+
+        return section
+                .map(x -> x.get(key))
+                .map(x -> x instanceof Number ? (Number) x : null)
+                .map(Number::intValue)
+                .filter(x -> x > 0);
+    }
+
+    /**
+     * Get a worker name that is unique across containers and processes.
+     * The random part keeps it unique where the host name and process id are not, such as in containers, where the process id is usually 1.
+     *
+     * @return The host name, process id and a random suffix.
+     */
+    private static String getDefaultWorker() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException exception) {
+            host = "unknown";
+        }
+
+        return host + '-' + ProcessHandle.current().pid() + '-' + UUID.randomUUID().toString().substring(0, 8);
     }
 
     /**
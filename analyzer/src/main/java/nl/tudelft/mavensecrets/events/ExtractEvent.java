@@ -0,0 +1,38 @@
+package nl.tudelft.mavensecrets.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One extractor run on one artifact.
+ */
+@Name("nl.tudelft.mavensecrets.Extract")
+@Label("Extractor Run")
+@Category({"Maven Secrets", "Extractors"})
+@Description("One extractor run on one artifact")
+@StackTrace(false)
+public final class ExtractEvent extends Event {
+
+    @Label("Extractor")
+    public String extractor;
+
+    @Label("Artifact")
+    @Description("Group id, artifact id and version")
+    public String artifact;
+
+    @Label("Archive Size")
+    @DataAmount(DataAmount.BYTES)
+    public long bytes;
+
+    @Label("Timed Out")
+    public boolean timedOut;
+
+    @Label("Failed")
+    @Description("The extractor threw an exception")
+    public boolean failed;
+}
@@ -0,0 +1,39 @@
+package nl.tudelft.mavensecrets.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A file resolved from the repository, or a POM loaded and interpolated.
+ * Loading a POM includes resolving it and loading its parents, which show up as nested events.
+ */
+@Name("nl.tudelft.mavensecrets.Resolve")
+@Label("Artifact Resolution")
+@Category({"Maven Secrets", "Resolver"})
+@Description("A file resolved from the repository or a POM loaded with its parents")
+@StackTrace(false)
+public final class ResolveEvent extends Event {
+
+    @Label("Operation")
+    @Description("resolve or loadPom")
+    public String operation;
+
+    @Label("Artifact")
+    @Description("Group id, artifact id and version")
+    public String artifact;
+
+    @Label("Extension")
+    public String extension;
+
+    @Label("File Size")
+    @DataAmount(DataAmount.BYTES)
+    public long bytes;
+
+    @Label("Failed")
+    public boolean failed;
+}
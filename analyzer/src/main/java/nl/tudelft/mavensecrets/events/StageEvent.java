@@ -0,0 +1,34 @@
+package nl.tudelft.mavensecrets.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * An artifact handled by one of the pipeline stages.
+ */
+@Name("nl.tudelft.mavensecrets.Stage")
+@Label("Pipeline Stage")
+@Category({"Maven Secrets", "Runner"})
+@Description("An artifact handled by the resolve, open, extract or persist stage")
+@StackTrace(false)
+public final class StageEvent extends Event {
+
+    @Label("Stage")
+    public String stage;
+
+    @Label("Artifact")
+    @Description("Group id, artifact id and version")
+    public String artifact;
+
+    @Label("Extension")
+    public String extension;
+
+    @Label("Archive Size")
+    @DataAmount(DataAmount.BYTES)
+    public long bytes;
+}
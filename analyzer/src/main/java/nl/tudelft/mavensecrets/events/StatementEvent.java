@@ -0,0 +1,34 @@
+package nl.tudelft.mavensecrets.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A database statement, including the time spent waiting for the connection.
+ */
+@Name("nl.tudelft.mavensecrets.Statement")
+@Label("Database Statement")
+@Category({"Maven Secrets", "Database"})
+@Description("A statement executed on the shared database connection")
+public final class StatementEvent extends Event {
+
+    @Label("SQL")
+    public String sql;
+
+    @Label("Artifact")
+    @Description("Group id, artifact id and version, if the statement concerns a single artifact")
+    public String artifact;
+
+    @Label("Parameters")
+    public int parameters;
+
+    @Label("Batch Size")
+    @Description("Number of rows in a batch, 1 for a single statement")
+    public int batch;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -1,6 +1,7 @@
 package nl.tudelft.mavensecrets.extractors;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.jar.JarEntry;
 import java.util.zip.ZipEntry;
@@ -14,7 +15,7 @@ import nl.tudelft.mavensecrets.Package;
 
 public class EmbedExtractor implements Extractor {
     private static final Field[] fields = new Field[] {
-            new Field("embedded_packages", "TEXT")
+            new Field("embedded_packages", "TEXT[]")
     };
 
     @Override
@@ -48,8 +49,12 @@ public class EmbedExtractor implements Extractor {
             }
         }
 
-        return new Object[] {
-                packages.stream().reduce((i, j) -> i + "," + j).orElse(null)
-        };
+        if (packages.isEmpty()) {
+            return new Object[fields.length];
+        }
+
+        var embedded = packages.toArray(String[]::new);
+        Arrays.sort(embedded);
+        return new Object[] { embedded };
     }
 }
@@ -2,6 +2,7 @@ package nl.tudelft.mavensecrets.extractors;
 
 import java.io.IOException;
 import java.util.Optional;
+import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
 import nl.tudelft.mavensecrets.Database;
@@ -12,7 +13,7 @@ import nl.tudelft.mavensecrets.Package;
 
 public class MismatchedPackagesExtractor implements Extractor {
     private static final Field[] fields = new Field[] {
-            new Field("mismatched_packages", "TEXT")
+            new Field("mismatched_packages", "TEXT[]")
     };
 
     @Override
@@ -32,12 +33,14 @@ public class MismatchedPackagesExtractor implements Extractor {
         var prefix = pkg.id().group().replace(".", "/");
 
         var mismatched = jar.stream()
-                .map(i -> JarUtils.packageFromPath(i.getRealName()))
-                .flatMap(Optional::stream)
+                .map(JarEntry::getRealName)
                 .filter(i -> isMismatched(prefix, i))
-                .reduce((i, j) -> i + "," + j)
-                .orElse(null);
-        return new Object[] { mismatched };
+                .map(JarUtils::packageFromPath)
+                .flatMap(Optional::stream)
+                .distinct()
+                .sorted()
+                .toArray(String[]::new);
+        return new Object[] { mismatched.length == 0 ? null : mismatched };
     }
 
     private final boolean isMismatched(String prefix, String file) {
@@ -4,6 +4,7 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
@@ -43,10 +44,10 @@ public class PackagingTypeExtractor implements Extractor {
             new Field("sha1", "VARCHAR"),
             new Field("sha256", "VARCHAR"),
             new Field("sha512", "VARCHAR"),
-            new Field("typesoffile", "VARCHAR"),
-            new Field("allqualifiersfromrepo", "VARCHAR"),
-            new Field("allpackagingtypefromrepo", "VARCHAR"),
-            new Field("allchecksumfromrepo", "VARCHAR")
+            new Field("typesoffile", "TEXT[]"),
+            new Field("allqualifiersfromrepo", "TEXT[]"),
+            new Field("allpackagingtypefromrepo", "TEXT[]"),
+            new Field("allchecksumfromrepo", "TEXT[]")
         };
     }
 
@@ -69,7 +70,7 @@ public class PackagingTypeExtractor implements Extractor {
         Artifact artifactWithSha256;
         Artifact artifactWithSha512;
 
-        List<String> allArtifacts = request(pkg.id());
+        List<String> allArtifacts = mvn.getNetworkThrottle().call(() -> request(pkg.id()));
 
         Set<String> allQualifiers = new HashSet<>();
         Set<String> allTypesOfExecutable = new HashSet<>();
@@ -112,13 +113,13 @@ public class PackagingTypeExtractor implements Extractor {
 
         addCheckSumType(extractedFields, artifactWithSha512);
 
-        extractedFields.add(allFiles.toString());
+        extractedFields.add(toArray(allFiles));
 
-        extractedFields.add(allQualifiers.toString());
+        extractedFields.add(toArray(allQualifiers));
 
-        extractedFields.add(allTypesOfExecutable.toString());
+        extractedFields.add(toArray(allTypesOfExecutable));
 
-        extractedFields.add(allTypesOfCheckSum.toString());
+        extractedFields.add(toArray(allTypesOfCheckSum));
 
         return extractedFields.toArray();
     }
@@ -221,6 +222,15 @@ public class PackagingTypeExtractor implements Extractor {
         extractedFields.add(checksum);
     }
 
+    /**
+     * Sorted values of a set, stored as an array so queries can look for an element.
+     */
+    private static String[] toArray(Set<String> values) {
+        String[] array = values.toArray(String[]::new);
+        Arrays.sort(array);
+        return array;
+    }
+
     public Set<String> getFilesFromExecutable(JarFile file) {
         // Sanity check
         if (file == null) {
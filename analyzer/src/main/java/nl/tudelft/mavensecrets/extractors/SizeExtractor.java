@@ -18,7 +18,8 @@ public class SizeExtractor implements Extractor {
 
     private final Field[] fields = {
             new Field("size", "BIGINT"),
-            new Field("numberoffiles", "INTEGER")
+            new Field("numberoffiles", "INTEGER"),
+            new Field("extensions", Field.EXTENSION_STATS)
     };
 
     public SizeExtractor() {
@@ -35,7 +36,7 @@ public class SizeExtractor implements Extractor {
         List<ExtensionTuple> extensionTuples = new ArrayList<>();
         Objects.requireNonNull(mvn);
         Objects.requireNonNull(pkg);
-        Object[] sizeAndNumber = new Object[2];
+        Object[] sizeAndNumber = new Object[3];
         JarFile jar = pkg.jar();
 
         // Sanity check
@@ -76,25 +77,16 @@ public class SizeExtractor implements Extractor {
         sizeAndNumber[1] = numberOfFiles;
         Map<String, ExtensionInfo> extensionInfo = computeExtensionInfo(extensionTuples);
         extensionsTesting = extensionInfo;
+        // Written by the sink together with the package's row
+        List<Database.ExtensionStats> stats = new ArrayList<>(extensionInfo.size());
         for(Map.Entry<String, ExtensionInfo> t : extensionInfo.entrySet()) {
-            String extension = t.getKey();
             ExtensionInfo info = t.getValue();
-            extensionDatabase(db, extension, info.count, info.total, info.min, info.max, info.median, pkg.id());
+            stats.add(new Database.ExtensionStats(t.getKey(), info.count, info.total, info.min, info.max, info.median));
         }
+        sizeAndNumber[2] = stats;
         return sizeAndNumber;
     }
 
-    public void extensionDatabase(Database db, String extension, long count, long total, long min, long max, long median, PackageId id) throws SQLException {
-        db.updateExtensionTable(id.toString(),
-                extension,
-                count,
-                total,
-                min,
-                max,
-                median
-        );
-    }
-
     private Map<String, ExtensionInfo> computeExtensionInfo (List<ExtensionTuple> extensionTuples) {
         Map<String, ExtensionInfo> result = new HashMap<>();
         Map<String, ArrayList<Long>> sizes = new HashMap<>();
@@ -39,10 +39,11 @@ import org.eclipse.aether.transport.http.HttpTransporterFactory;
 import org.eclipse.aether.util.artifact.SubArtifact;
 
 import nl.tudelft.mavensecrets.PackageId;
+import nl.tudelft.mavensecrets.events.ResolveEvent;
 
 /**
  * A default artefact {@link Resolver}.
- * This implementation pulls from Maven Central.
+ * This implementation pulls from Maven Central unless another remote repository is given.
  */
 public class DefaultResolver implements Resolver {
 
@@ -52,6 +53,7 @@ public class DefaultResolver implements Resolver {
 
     private final RepositorySystem repository;
     private final RepositorySystemSession session;
+    private final RemoteRepository remote;
     private final ModelReader modelReader;
     private final ModelMerger merger;
     private final ModelInterpolator interpolator;
@@ -62,7 +64,22 @@ public class DefaultResolver implements Resolver {
      * @param local Local repository directory.
      */
     public DefaultResolver(File local) {
+        this(local, MAVEN_CENTRAL);
+    }
+
+    /**
+     * Create a resolver instance pulling from another remote repository, e.g. a <code>file://</code> mirror.
+     *
+     * @param local Local repository directory.
+     * @param url Remote repository URL.
+     */
+    public DefaultResolver(File local, String url) {
+        this(local, new RemoteRepository.Builder("remote", "default", Objects.requireNonNull(url)).build());
+    }
+
+    private DefaultResolver(File local, RemoteRepository remote) {
         Objects.requireNonNull(local);
+        this.remote = Objects.requireNonNull(remote);
         this.repository = createRepositorySystem();
         this.session = createSession(new LocalRepository(local));
         this.modelReader = new DefaultModelReader();
@@ -95,16 +112,24 @@ public class DefaultResolver implements Resolver {
     public Artifact resolve(Artifact artifact) throws ArtifactResolutionException {
         Objects.requireNonNull(artifact);
 
-        ArtifactRequest request = new ArtifactRequest();
-        request.setArtifact(artifact);
-        request.setRepositories(Collections.singletonList(MAVEN_CENTRAL));
-        ArtifactResult result = repository.resolveArtifact(session, request);
+        var event = new ResolveEvent();
+        event.begin();
+        Artifact resolved = null;
+        try {
+            ArtifactRequest request = new ArtifactRequest();
+            request.setArtifact(artifact);
+            request.setRepositories(Collections.singletonList(remote));
+            ArtifactResult result = repository.resolveArtifact(session, request);
 
-        if (result == null) {
-            return null;
-        }
+            if (result == null) {
+                return null;
+            }
 
-        return result.getArtifact();
+            resolved = result.getArtifact();
+            return resolved;
+        } finally {
+            commit(event, "resolve", artifact, resolved == null ? null : resolved.getFile());
+        }
     }
 
     @Override
@@ -116,7 +141,19 @@ public class DefaultResolver implements Resolver {
 
     @Override
     public Model loadPom(Artifact artifact) throws ArtifactResolutionException, IOException {
-        Model pomFile = modelReader.read(getPom(artifact), null);
+        var event = new ResolveEvent();
+        event.begin();
+        File file = null;
+        try {
+            file = getPom(artifact);
+            return loadPom(artifact, file);
+        } finally {
+            commit(event, "loadPom", artifact, file);
+        }
+    }
+
+    private Model loadPom(Artifact artifact, File file) throws ArtifactResolutionException, IOException {
+        Model pomFile = modelReader.read(file, null);
         Properties properties = new Properties();
         Model parent = null;
         if (pomFile.getParent() != null) {
@@ -164,6 +201,30 @@ public class DefaultResolver implements Resolver {
         return artifactType.getFile();
     }
 
+    @Override
+    public File getLocalJar(Artifact artifact, String pkgType) {
+        Objects.requireNonNull(artifact);
+
+        String path = session.getLocalRepositoryManager().getPathForLocalArtifact(new SubArtifact(artifact, null, pkgType));
+        return new File(session.getLocalRepository().getBasedir(), path);
+    }
+
+    /**
+     * Commit a resolution event if it is recorded, filling in its fields only then.
+     * The event is marked as failed if no file was resolved.
+     */
+    private static void commit(ResolveEvent event, String operation, Artifact artifact, File file) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.artifact = artifact.getGroupId() + ':' + artifact.getArtifactId() + ':' + artifact.getVersion();
+            event.extension = artifact.getExtension();
+            event.bytes = file == null ? 0 : file.length();
+            event.failed = file == null;
+            event.commit();
+        }
+    }
+
     /**
      * Create a repository system.
      *
@@ -48,4 +48,13 @@ public interface Resolver {
      * @return The file location of the artifact or an empty optional if resolution fails.
      */
     File getJar(Artifact artifact, String pkgType) throws ArtifactResolutionException;
+
+    /**
+     * Get the location an artifact has in the local repository, without resolving it.
+     *
+     * @param artifact Artifact.
+     * @param pkgType Packaging type.
+     * @return The file location, which may not exist.
+     */
+    File getLocalJar(Artifact artifact, String pkgType);
 }
@@ -0,0 +1,69 @@
+package nl.tudelft.mavensecrets.resolver;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Objects;
+
+import org.apache.maven.model.Model;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+
+import nl.tudelft.mavensecrets.Throttle;
+
+/**
+ * A {@link Resolver} limiting the number of concurrent resolutions of another resolver.
+ */
+public class ThrottledResolver implements Resolver {
+
+    private final Resolver resolver;
+    private final Throttle throttle;
+
+    /**
+     * Create a resolver instance.
+     *
+     * @param resolver Underlying resolver.
+     * @param throttle Network throttle.
+     */
+    public ThrottledResolver(Resolver resolver, Throttle throttle) {
+        this.resolver = Objects.requireNonNull(resolver);
+        this.throttle = Objects.requireNonNull(throttle);
+    }
+
+    @Override
+    public Artifact createArtifact(String groupId, String artifactId, String version) {
+        return resolver.createArtifact(groupId, artifactId, version);
+    }
+
+    @Override
+    public Artifact resolve(Artifact artifact) throws ArtifactResolutionException {
+        return throttle.call(() -> resolver.resolve(artifact));
+    }
+
+    @Override
+    public File getPom(Artifact artifact) throws ArtifactResolutionException {
+        return throttle.call(() -> resolver.getPom(artifact));
+    }
+
+    @Override
+    public Model loadPom(Artifact artifact) throws ArtifactResolutionException, IOException {
+        // One permit covers the whole parent chain
+        try {
+            return throttle.call(() -> resolver.loadPom(artifact));
+        } catch (ArtifactResolutionException | IOException | RuntimeException exception) {
+            throw exception;
+        } catch (Exception exception) {
+            throw new AssertionError(exception);
+        }
+    }
+
+    @Override
+    public File getJar(Artifact artifact, String pkgType) throws ArtifactResolutionException {
+        return throttle.call(() -> resolver.getJar(artifact, pkgType));
+    }
+
+    @Override
+    public File getLocalJar(Artifact artifact, String pkgType) {
+        // No network access
+        return resolver.getLocalJar(artifact, pkgType);
+    }
+}
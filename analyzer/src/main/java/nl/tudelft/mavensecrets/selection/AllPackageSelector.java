@@ -29,4 +29,17 @@ public class AllPackageSelector implements PackageSelector {
     public Collection<? extends ArtifactId> getArtifacts(int page, int pageSize) throws IOException, SQLException {
         return Collections.unmodifiableCollection(db.getArtifactIds(page, pageSize));
     }
+
+    @Override
+    public Collection<? extends ArtifactId> getArtifacts(int page, int pageSize, ArtifactId after) throws IOException, SQLException {
+        if (after == null && page > 0) {
+            return getArtifacts(page, pageSize);
+        }
+        return Collections.unmodifiableCollection(db.getArtifactIds(after, pageSize));
+    }
+
+    @Override
+    public long count(int pageSize) throws SQLException {
+        return db.countArtifactIds();
+    }
 }
@@ -0,0 +1,118 @@
+package nl.tudelft.mavensecrets.selection;
+
+import java.io.Closeable;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import nl.tudelft.mavensecrets.ArtifactId;
+import nl.tudelft.mavensecrets.Database;
+
+/**
+ * A {@link PackageSelector} streaming packages from a single server-side cursor rather than querying every page.
+ * Pages must be requested in order; pages that are skipped, for instance when resuming, are read and dropped.
+ * Only one fetch of rows is held in memory at a time, however large the selection.
+ * The cursor keeps a database connection and its snapshot until the selection is exhausted or the selector is closed.
+ */
+public class CursorSelector implements PackageSelector, Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger(CursorSelector.class);
+
+    private final Database db;
+    private final StratifiedSampleSelector sample;
+    private final int fetchSize;
+    private Database.ArtifactCursor cursor = null;
+    private int next = 0;
+    private int pageSize = 0;
+
+    /**
+     * Create a selector over all packages.
+     *
+     * @param db Database.
+     * @param fetchSize Rows fetched from the server at a time.
+     */
+    public CursorSelector(Database db, int fetchSize) {
+        this(db, null, fetchSize);
+    }
+
+    /**
+     * Create a selector over a sample, which is generated before the cursor is opened.
+     *
+     * @param db Database.
+     * @param sample Sample or <code>null</code> for all packages.
+     * @param fetchSize Rows fetched from the server at a time.
+     */
+    public CursorSelector(Database db, StratifiedSampleSelector sample, int fetchSize) {
+        this.db = Objects.requireNonNull(db);
+        this.sample = sample;
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Invalid fetch size: " + fetchSize);
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public synchronized Collection<? extends ArtifactId> getArtifacts(int page, int pageSize) throws SQLException {
+        if (this.pageSize == 0) {
+            if (pageSize <= 0) {
+                throw new IllegalArgumentException("Invalid page size: " + pageSize);
+            }
+            this.pageSize = pageSize;
+        } else if (pageSize != this.pageSize) {
+            throw new IllegalArgumentException("Page size changed from " + this.pageSize + " to " + pageSize);
+        }
+        if (page < next) {
+            throw new IllegalStateException("Page " + page + " requested after page " + (next - 1));
+        }
+
+        if (cursor == null) {
+            if (sample != null) {
+                sample.generate();
+            }
+            cursor = sample == null ? db.streamArtifactIds(fetchSize) : db.streamSelectedPkgs(fetchSize);
+        }
+        for (; next < page; next++) {
+            if (cursor.next(pageSize).isEmpty()) {
+                return Collections.emptyList();
+            }
+            LOGGER.trace("Skipped page {}", next);
+        }
+
+        next = page + 1;
+        return Collections.unmodifiableCollection(cursor.next(pageSize));
+    }
+
+    @Override
+    public long count(int pageSize) throws SQLException {
+        if (sample != null) {
+            return sample.count(pageSize);
+        }
+        return db.countArtifactIds();
+    }
+
+    @Override
+    public void attach() {
+        if (sample != null) {
+            sample.attach();
+        }
+    }
+
+    /**
+     * Close the cursor, giving back its connection.
+     */
+    @Override
+    public synchronized void close() {
+        if (cursor != null) {
+            cursor.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CursorSelector[selection=" + (sample == null ? "all" : "sample") + ", fetchSize=" + fetchSize + ']';
+    }
+}
@@ -0,0 +1,186 @@
+package nl.tudelft.mavensecrets.selection;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import nl.tudelft.mavensecrets.ArtifactId;
+import nl.tudelft.mavensecrets.Database;
+
+/**
+ * A {@link PackageSelector} sharing the pages of another selector between several processes through a work queue table.
+ * The first process to start counts the pages of the underlying selector and queues them as batches; the others attach to its selection.
+ * Every process then leases one batch at a time, skipping batches locked by the others.
+ * Leases are renewed while the batch is being processed and a batch whose lease expired, for instance because its process died, is claimed again.
+ * A process only stops once no batch is pending or leased by another process.
+ */
+public class DistributedSelector implements PackageSelector, Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger(DistributedSelector.class);
+    private static final long MAX_POLL_MILLIS = 30000;
+
+    private final Database db;
+    private final PackageSelector delegate;
+    private final String run;
+    private final String worker;
+    private final int leaseSeconds;
+    // Runner pages to leased batches
+    private final Map<Integer, Integer> leased = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeat;
+    private int pageSize = 0;
+
+    /**
+     * Create a selector instance.
+     *
+     * @param db Database.
+     * @param delegate Selector producing the batches.
+     * @param run Run key, shared by all processes working on the same selection.
+     * @param worker Name of this process.
+     * @param leaseSeconds Lease duration.
+     */
+    public DistributedSelector(Database db, PackageSelector delegate, String run, String worker, int leaseSeconds) {
+        this.db = Objects.requireNonNull(db);
+        this.delegate = Objects.requireNonNull(delegate);
+        this.run = Objects.requireNonNull(run);
+        this.worker = Objects.requireNonNull(worker);
+        if (leaseSeconds <= 0) {
+            throw new IllegalArgumentException("Invalid lease duration: " + leaseSeconds);
+        }
+        this.leaseSeconds = leaseSeconds;
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Lease the next batch.
+     * The page index only identifies the batch in {@link #completed(int, int)}; batches are handed out in queue order.
+     */
+    @Override
+    public Collection<? extends ArtifactId> getArtifacts(int page, int pageSize) throws IOException, SQLException {
+        if (this.pageSize == 0) {
+            setup(pageSize);
+        } else if (pageSize != this.pageSize) {
+            throw new IllegalArgumentException("Page size changed from " + this.pageSize + " to " + pageSize);
+        }
+
+        while (true) {
+            OptionalInt claimed = db.claimBatch(run, worker, leaseSeconds);
+            if (claimed.isPresent()) {
+                var batch = claimed.getAsInt();
+                var artifacts = delegate.getArtifacts(batch, pageSize);
+                if (artifacts.isEmpty()) {
+                    // Past the end of the selection
+                    db.completeBatch(run, batch, worker, 0);
+                    continue;
+                }
+
+                leased.put(page, batch);
+                LOGGER.info("Leased batch {} of run '{}' as page {}, queue {}, completed per worker {}", batch, run, page, db.getWorkQueueStatus(run), db.getWorkQueueProgress(run));
+                return Collections.unmodifiableCollection(artifacts);
+            }
+
+            // Others may still die and leave their batches to us
+            var leasedByOthers = db.getWorkQueueStatus(run).getOrDefault("leased", 0L) - leased.size();
+            if (leasedByOthers <= 0) {
+                LOGGER.info("Run '{}' has no batches left, completed per worker {}", run, db.getWorkQueueProgress(run));
+                return Collections.emptyList();
+            }
+
+            LOGGER.debug("Waiting for {} batches leased by other workers", leasedByOthers);
+            try {
+                Thread.sleep(Math.min(TimeUnit.SECONDS.toMillis(leaseSeconds) / 4, MAX_POLL_MILLIS));
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return Collections.emptyList();
+            }
+        }
+    }
+
+    @Override
+    public void completed(int page, int artifacts) throws SQLException {
+        var batch = leased.remove(page);
+        if (batch == null) {
+            return;
+        }
+
+        db.completeBatch(run, batch, worker, artifacts);
+        LOGGER.debug("Completed batch {} of run '{}' ({} artifacts)", batch, run, artifacts);
+    }
+
+    @Override
+    public long count(int pageSize) throws IOException, SQLException {
+        return delegate.count(pageSize);
+    }
+
+    /**
+     * Stop renewing leases.
+     * Batches that are still leased are claimed again by another process once their lease expires.
+     */
+    @Override
+    public void close() {
+        heartbeat.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return "DistributedSelector[run=" + run + ", worker=" + worker + ", lease=" + leaseSeconds + "s, delegate=" + delegate + ']';
+    }
+
+    /**
+     * Queue the batches of the run if no other process has, and start renewing leases.
+     *
+     * @param pageSize Batch size.
+     */
+    private void setup(int pageSize) throws IOException, SQLException {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Invalid page size: " + pageSize);
+        }
+
+        db.createWorkQueueTable();
+        // The lock is held by the session, so it is released on the connection that took it
+        db.session(() -> {
+            db.lockWorkQueue(run);
+            try {
+                if (db.getWorkQueueStatus(run).isEmpty()) {
+                    var count = delegate.count(pageSize);
+                    var batches = (int) ((count + pageSize - 1) / pageSize);
+                    db.enqueueBatches(run, batches);
+                    LOGGER.info("Queued {} batches of {} packages for run '{}'", batches, pageSize, run);
+                } else {
+                    delegate.attach();
+                    LOGGER.info("Joining run '{}' as worker '{}'", run, worker);
+                }
+            } finally {
+                db.unlockWorkQueue(run);
+            }
+        });
+        this.pageSize = pageSize;
+
+        var renew = Math.max(1, leaseSeconds / 3);
+        heartbeat.scheduleAtFixedRate(() -> {
+            if (leased.isEmpty()) {
+                return;
+            }
+            try {
+                db.renewLeases(run, worker, leaseSeconds);
+            } catch (SQLException exception) {
+                LOGGER.warn("Could not renew leases of worker '{}'", worker, exception);
+            }
+        }, renew, renew, TimeUnit.SECONDS);
+    }
+}
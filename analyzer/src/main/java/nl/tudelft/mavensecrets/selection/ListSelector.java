@@ -0,0 +1,45 @@
+package nl.tudelft.mavensecrets.selection;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+import nl.tudelft.mavensecrets.ArtifactId;
+
+/**
+ * A {@link PackageSelector} over a fixed list of packages.
+ */
+public class ListSelector implements PackageSelector {
+
+    private final List<ArtifactId> artifacts;
+
+    /**
+     * Create a selector instance.
+     *
+     * @param artifacts Packages, in the order they are selected.
+     */
+    public ListSelector(Collection<? extends ArtifactId> artifacts) {
+        this.artifacts = List.copyOf(Objects.requireNonNull(artifacts));
+    }
+
+    @Override
+    public Collection<? extends ArtifactId> getArtifacts(int page, int pageSize) {
+        if (page < 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("Invalid page: " + page + '/' + pageSize);
+        }
+
+        var from = (int) Math.min((long) page * pageSize, artifacts.size());
+        var to = (int) Math.min((long) from + pageSize, artifacts.size());
+        return artifacts.subList(from, to);
+    }
+
+    @Override
+    public long count(int pageSize) {
+        return artifacts.size();
+    }
+
+    @Override
+    public String toString() {
+        return "ListSelector[artifacts=" + artifacts.size() + ']';
+    }
+}
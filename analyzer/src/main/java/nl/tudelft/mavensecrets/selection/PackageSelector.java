@@ -3,6 +3,7 @@ package nl.tudelft.mavensecrets.selection;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.List;
 
 import nl.tudelft.mavensecrets.ArtifactId;
 
@@ -21,4 +22,76 @@ public interface PackageSelector {
      * @throws SQLException If a database error occurs.
      */
     Collection<? extends ArtifactId> getArtifacts(int page, int pageSize) throws IOException, SQLException;
+
+    /**
+     * Get the packages to analyze, continuing after the last package of the previous page if the caller has it.
+     * Selectors backed by a sorted table seek to that key rather than skipping all preceding pages, so a page costs the same wherever it is.
+     * The default implementation ignores the key.
+     *
+     * @param page Page index.
+     * @param pageSize Page size.
+     * @param after Last package of page <code>page - 1</code>, in the order it was returned, or <code>null</code> if unknown.
+     * @return The package list.
+     * @throws IOException If an I/O error occurs.
+     * @throws SQLException If a database error occurs.
+     */
+    default Collection<? extends ArtifactId> getArtifacts(int page, int pageSize, ArtifactId after) throws IOException, SQLException {
+        return getArtifacts(page, pageSize);
+    }
+
+    /**
+     * Count the packages this selector produces.
+     * The default implementation pages through all of them.
+     *
+     * @param pageSize Page size to count with.
+     * @return The number of packages.
+     * @throws IOException If an I/O error occurs.
+     * @throws SQLException If a database error occurs.
+     */
+    default long count(int pageSize) throws IOException, SQLException {
+        long count = 0;
+        ArtifactId last = null;
+        Collection<? extends ArtifactId> artifacts;
+        for (int page = 0; !(artifacts = getArtifacts(page, pageSize, last)).isEmpty(); page++) {
+            count += artifacts.size();
+            last = last(artifacts);
+        }
+        return count;
+    }
+
+    /**
+     * Use a selection that another process has already set up, rather than setting it up again.
+     * Selectors without set up ignore this.
+     */
+    default void attach() {
+        // Nothing
+    }
+
+    /**
+     * Be notified that every package of a page has been written.
+     *
+     * @param page Page index, as passed to {@link #getArtifacts(int, int)}.
+     * @param artifacts Number of packages written.
+     * @throws SQLException If a database error occurs.
+     */
+    default void completed(int page, int artifacts) throws SQLException {
+        // Nothing
+    }
+
+    /**
+     * Get the last package of a page, to pass to {@link #getArtifacts(int, int, ArtifactId)} for the next page.
+     *
+     * @param artifacts Packages of the page, as returned by the selector.
+     * @return The last package or <code>null</code> if there are none.
+     */
+    static ArtifactId last(Collection<? extends ArtifactId> artifacts) {
+        if (artifacts instanceof List<? extends ArtifactId> list) {
+            return list.isEmpty() ? null : list.get(list.size() - 1);
+        }
+        ArtifactId last = null;
+        for (ArtifactId artifact : artifacts) {
+            last = artifact;
+        }
+        return last;
+    }
 }
@@ -41,6 +41,43 @@ public class StratifiedSampleSelector implements PackageSelector {
         return Collections.unmodifiableCollection(db.getSelectedPkgs(page, pageSize));
     }
 
+    @Override
+    public Collection<? extends ArtifactId> getArtifacts(int page, int pageSize, ArtifactId after) throws IOException, SQLException {
+        if (after == null && page > 0) {
+            return getArtifacts(page, pageSize);
+        }
+        if (!generated.getAndSet(true)) {
+            generateSubset();
+        }
+
+        return Collections.unmodifiableCollection(db.getSelectedPkgs(after, pageSize));
+    }
+
+    @Override
+    public long count(int pageSize) throws SQLException {
+        if (!generated.getAndSet(true)) {
+            generateSubset();
+        }
+
+        return db.countSelectedPkgs();
+    }
+
+    @Override
+    public void attach() {
+        generated.set(true);
+    }
+
+    /**
+     * Generate the selection in the <code>selected_packages</code> table, unless it is generated or attached to already.
+     *
+     * @throws SQLException If a database error occurs.
+     */
+    public void generate() throws SQLException {
+        if (!generated.getAndSet(true)) {
+            generateSubset();
+        }
+    }
+
     /**
      * Generate the dataset.
      * Behaviour of repeated method calls is undefined.
@@ -50,10 +87,13 @@ public class StratifiedSampleSelector implements PackageSelector {
     private void generateSubset() throws SQLException {
         Map<Integer, Integer> yearPopulationMap = db.getYearCounts();
         db.createSelectedTable();
-        db.createTempTable(seed);
-        for (Entry<Integer, Integer> entry : yearPopulationMap.entrySet()) {
-            int year = entry.getKey();
-            db.extractStrataSample(seed, samplePercent, year);
-        }
+        // The seed and the temporary table belong to the session
+        db.session(() -> {
+            db.createTempTable(seed);
+            for (Entry<Integer, Integer> entry : yearPopulationMap.entrySet()) {
+                int year = entry.getKey();
+                db.extractStrataSample(seed, samplePercent, year);
+            }
+        });
     }
 }
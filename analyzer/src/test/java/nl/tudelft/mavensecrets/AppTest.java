@@ -1,9 +1,17 @@
 package nl.tudelft.mavensecrets;
 
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Set;
 
 import org.junit.jupiter.api.Test;
 
+import nl.tudelft.mavensecrets.selection.StratifiedSampleSelector;
+
 /**
  * Unit test for simple App.
  */
@@ -16,4 +24,43 @@ public class AppTest {
     public void shouldAnswerWithTrue() {
         assertTrue(true);
     }
+
+    @Test
+    public void test_resume_attaches_to_selection() throws Exception {
+        Database db = mock(Database.class);
+        when(db.getCheckpoints("run")).thenReturn(Set.of(0, 1));
+        when(db.countSelectedPkgs()).thenReturn(10L);
+
+        StratifiedSampleSelector sample = new StratifiedSampleSelector(db, 0.5, 10);
+        App.resumeSelection(sample, db, "run");
+        sample.getArtifacts(2, 5, null);
+
+        verify(db, never()).createSelectedTable();
+        verify(db).getSelectedPkgs(2, 5);
+    }
+
+    @Test
+    public void test_resume_without_checkpoints_generates_selection() throws Exception {
+        Database db = mock(Database.class);
+        when(db.getCheckpoints("run")).thenReturn(Set.of());
+
+        StratifiedSampleSelector sample = new StratifiedSampleSelector(db, 0.5, 10);
+        App.resumeSelection(sample, db, "run");
+        sample.getArtifacts(0, 5, null);
+
+        verify(db).createSelectedTable();
+    }
+
+    @Test
+    public void test_resume_with_lost_selection_generates_it() throws Exception {
+        Database db = mock(Database.class);
+        when(db.getCheckpoints("run")).thenReturn(Set.of(0));
+        when(db.countSelectedPkgs()).thenReturn(0L);
+
+        StratifiedSampleSelector sample = new StratifiedSampleSelector(db, 0.5, 10);
+        App.resumeSelection(sample, db, "run");
+        sample.getArtifacts(0, 5, null);
+
+        verify(db).createSelectedTable();
+    }
 }
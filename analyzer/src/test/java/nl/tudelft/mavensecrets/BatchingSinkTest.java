@@ -0,0 +1,132 @@
+package nl.tudelft.mavensecrets;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+public class BatchingSinkTest {
+
+    private static final Field[] FIELDS = {new Field("first", "VARCHAR")};
+
+    private Database db;
+
+    @Test
+    public void test_full_batches_written() throws Exception {
+        try (BatchingSink sink = new BatchingSink(db, Throttle.unlimited("database"), 2, 60000, new Metrics())) {
+            for (int i = 0; i < 5; i++) {
+                sink.write(artifact(i), FIELDS, new Object[] {"v" + i});
+            }
+
+            verify(db, times(2)).upsert(eq(FIELDS), anyList(), anyList(), eq(true));
+            sink.flush();
+            verify(db, times(3)).upsert(eq(FIELDS), anyList(), anyList(), eq(true));
+        }
+
+        verify(db, times(3)).transaction(any());
+        verify(db, never()).update(any(), any(), any(), eq(true));
+    }
+
+    @Test
+    public void test_rows_and_failures_in_one_transaction() throws Exception {
+        try (BatchingSink sink = new BatchingSink(db, Throttle.unlimited("database"), 10, 60000, new Metrics())) {
+            sink.write(artifact(0), FIELDS, new Object[] {"v"});
+            sink.unresolved(artifact(1), "missing");
+            sink.flush();
+        }
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PackageId>> ids = ArgumentCaptor.forClass(List.class);
+        verify(db).upsert(eq(FIELDS), ids.capture(), anyList(), eq(true));
+        Assertions.assertEquals(List.of(artifact(0)), ids.getValue());
+        verify(db).batchUpdateUnresolvedTable(List.of(artifact(1)), List.of("missing"));
+        verify(db, times(1)).transaction(any());
+    }
+
+    @Test
+    public void test_flushed_after_interval() throws Exception {
+        try (BatchingSink sink = new BatchingSink(db, Throttle.unlimited("database"), 100, 50, new Metrics())) {
+            sink.write(artifact(0), FIELDS, new Object[] {"v"});
+
+            verify(db, timeout(5000)).upsert(eq(FIELDS), anyList(), anyList(), eq(true));
+        }
+    }
+
+    @Test
+    public void test_timed_flush_waits_for_throttle() throws Exception {
+        Throttle database = new Throttle("database", 1);
+        CountDownLatch taken = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            try {
+                database.<InterruptedException>run(() -> {
+                    taken.countDown();
+                    release.await();
+                });
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        holder.start();
+        Assertions.assertTrue(taken.await(5, TimeUnit.SECONDS));
+
+        try (BatchingSink sink = new BatchingSink(db, database, 100, 50, new Metrics())) {
+            sink.write(artifact(0), FIELDS, new Object[] {"v"});
+
+            // Expired several times over, but the only permit is taken
+            Thread.sleep(300);
+            verify(db, never()).upsert(any(), anyList(), anyList(), eq(true));
+
+            release.countDown();
+            verify(db, timeout(5000)).upsert(eq(FIELDS), anyList(), anyList(), eq(true));
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+    }
+
+    @Test
+    public void test_failed_batch_written_one_at_a_time() throws Exception {
+        doThrow(new SQLException("batch")).when(db).upsert(any(), anyList(), anyList(), eq(true));
+        doThrow(new SQLException("row")).when(db).update(eq(artifact(1)), any(), any(), eq(true));
+
+        try (BatchingSink sink = new BatchingSink(db, Throttle.unlimited("database"), 10, 60000, new Metrics())) {
+            for (int i = 0; i < 3; i++) {
+                sink.write(artifact(i), FIELDS, new Object[] {"v" + i});
+            }
+        }
+
+        verify(db, times(3)).update(any(), eq(FIELDS), any(), eq(true));
+        verify(db).updateUnresolvedTable(eq(artifact(1)), any());
+    }
+
+    @BeforeEach
+    public void setup() throws Exception {
+        db = mock(Database.class);
+        doAnswer(invocation -> {
+            Throttle.Action<SQLException> action = invocation.getArgument(0);
+            action.run();
+            return null;
+        }).when(db).transaction(any());
+    }
+
+    private static ArtifactId artifact(int i) {
+        return new ArtifactId("g", "a" + i, "1.0", "jar");
+    }
+}
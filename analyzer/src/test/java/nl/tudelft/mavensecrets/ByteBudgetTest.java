@@ -0,0 +1,106 @@
+package nl.tudelft.mavensecrets;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ByteBudgetTest {
+
+    @Test
+    public void test_blocks_until_released() throws Exception {
+        ByteBudget budget = new ByteBudget("test", 100);
+        budget.acquire(60);
+
+        Thread thread = start(budget, 50, new CopyOnWriteArrayList<>());
+        thread.join(100);
+        Assertions.assertTrue(thread.isAlive());
+
+        budget.release(60);
+        thread.join(1000);
+        Assertions.assertFalse(thread.isAlive());
+        Assertions.assertEquals(50, budget.getUsed());
+        Assertions.assertEquals(60, budget.getPeak());
+    }
+
+    @Test
+    public void test_oversized_alone() throws Exception {
+        ByteBudget budget = new ByteBudget("test", 100);
+        budget.acquire(500);
+        Assertions.assertEquals(500, budget.getUsed());
+
+        Thread thread = start(budget, 1, new CopyOnWriteArrayList<>());
+        thread.join(100);
+        Assertions.assertTrue(thread.isAlive());
+
+        budget.release(500);
+        thread.join(1000);
+        Assertions.assertFalse(thread.isAlive());
+    }
+
+    @Test
+    public void test_arrival_order() throws Exception {
+        ByteBudget budget = new ByteBudget("test", 100);
+        budget.acquire(60);
+
+        List<Long> admitted = new CopyOnWriteArrayList<>();
+        Thread large = start(budget, 80, admitted);
+        awaitWaiting(large);
+        // Fits, but has to wait for the large one
+        Thread small = start(budget, 10, admitted);
+        awaitWaiting(small);
+        Assertions.assertTrue(admitted.isEmpty());
+
+        budget.release(60);
+        large.join(1000);
+        small.join(1000);
+        Assertions.assertEquals(List.of(80L, 10L), admitted);
+    }
+
+    @Test
+    public void test_interrupted_waiter() throws Exception {
+        ByteBudget budget = new ByteBudget("test", 100);
+        budget.acquire(100);
+
+        List<Long> admitted = new CopyOnWriteArrayList<>();
+        Thread first = start(budget, 50, admitted);
+        awaitWaiting(first);
+        Thread second = start(budget, 50, admitted);
+        awaitWaiting(second);
+        first.interrupt();
+        first.join(1000);
+
+        budget.release(100);
+        second.join(1000);
+        Assertions.assertEquals(List.of(50L), admitted);
+        Assertions.assertEquals(50, budget.getUsed());
+    }
+
+    @Test
+    public void test_invalid_arguments() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ByteBudget("test", 0));
+        ByteBudget budget = new ByteBudget("test", 10);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> budget.acquire(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> budget.release(1));
+    }
+
+    private static Thread start(ByteBudget budget, long bytes, List<Long> admitted) {
+        Thread thread = new Thread(() -> {
+            try {
+                budget.acquire(bytes);
+                admitted.add(bytes);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package nl.tudelft.mavensecrets;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void test_opens_at_threshold() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 4, 0.5, 60000);
+        breaker.record(true);
+        breaker.record(false);
+        breaker.record(true);
+        // Window not yet full
+        Assertions.assertTrue(breaker.allow());
+        breaker.record(false);
+
+        Assertions.assertTrue(breaker.isOpen());
+        Assertions.assertFalse(breaker.allow());
+    }
+
+    @Test
+    public void test_stays_closed_below_threshold() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 4, 0.5, 60000);
+        for (int i = 0; i < 20; i++) {
+            breaker.record(i % 4 == 0);
+        }
+
+        Assertions.assertFalse(breaker.isOpen());
+        Assertions.assertTrue(breaker.allow());
+    }
+
+    @Test
+    public void test_trial_after_cooldown() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, 1, 0);
+        breaker.record(true);
+        Assertions.assertTrue(breaker.isOpen());
+
+        // One trial at a time
+        Assertions.assertTrue(breaker.allow());
+        Assertions.assertFalse(breaker.allow());
+        breaker.record(true);
+        Assertions.assertTrue(breaker.isOpen());
+
+        Assertions.assertTrue(breaker.allow());
+        breaker.record(false);
+        Assertions.assertFalse(breaker.isOpen());
+        Assertions.assertTrue(breaker.allow());
+    }
+
+    @Test
+    public void test_invalid_arguments() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker("test", 0, 0.5, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker("test", 1, 0, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker("test", 1, 0.5, -1));
+    }
+}
@@ -0,0 +1,109 @@
+package nl.tudelft.mavensecrets;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ConcurrencyControllerTest {
+
+    private AtomicLong clock;
+
+    @Test
+    public void test_grows_when_saturated() throws Exception {
+        ConcurrencyController controller = new ConcurrencyController(4, 100, clock::get);
+        tick(controller, 4, 10);
+
+        Assertions.assertEquals(6, controller.getLimit());
+    }
+
+    @Test
+    public void test_holds_when_not_saturated() throws Exception {
+        ConcurrencyController controller = new ConcurrencyController(10, 100, clock::get);
+        tick(controller, 2, 10);
+
+        Assertions.assertEquals(10, controller.getLimit());
+    }
+
+    @Test
+    public void test_shrinks_on_congestion() throws Exception {
+        ConcurrencyController controller = new ConcurrencyController(4, 100, clock::get);
+        for (int i = 0; i < 5; i++) {
+            tick(controller, controller.getLimit(), 10);
+        }
+        tick(controller, 20, 10);
+        int limit = controller.getLimit();
+
+        // Same throughput at five times the latency
+        tick(controller, 20, 50);
+        Assertions.assertEquals((int) (limit * 0.75), controller.getLimit());
+    }
+
+    @Test
+    public void test_bounds() throws Exception {
+        ConcurrencyController controller = new ConcurrencyController(4, 5, clock::get);
+        tick(controller, 4, 10);
+        tick(controller, 5, 10);
+        Assertions.assertEquals(5, controller.getLimit());
+
+        for (int i = 0; i < 10; i++) {
+            tick(controller, 4, 1000);
+        }
+        Assertions.assertEquals(4, controller.getLimit());
+    }
+
+    @Test
+    public void test_acquire_blocks_at_limit() throws Exception {
+        ConcurrencyController controller = new ConcurrencyController(1, 1, clock::get);
+        controller.acquire();
+
+        AtomicBoolean acquired = new AtomicBoolean();
+        Thread thread = new Thread(() -> {
+            try {
+                controller.acquire();
+                acquired.set(true);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        thread.join(100);
+        Assertions.assertFalse(acquired.get());
+
+        controller.release(0);
+        thread.join(1000);
+        Assertions.assertTrue(acquired.get());
+    }
+
+    @Test
+    public void test_invalid_bounds() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ConcurrencyController(0, 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ConcurrencyController(2, 1));
+    }
+
+    @BeforeEach
+    public void setup() {
+        clock = new AtomicLong();
+    }
+
+    /**
+     * Run one second worth of packages and adjust.
+     */
+    private void tick(ConcurrencyController controller, int completed, long latencyMillis) throws InterruptedException {
+        int inFlight = Math.min(completed, controller.getLimit());
+        for (int i = 0; i < inFlight; i++) {
+            controller.acquire();
+        }
+        for (int i = 0; i < completed; i++) {
+            if (i >= inFlight) {
+                controller.acquire();
+            }
+            controller.release(TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+        }
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        controller.adjust();
+    }
+}
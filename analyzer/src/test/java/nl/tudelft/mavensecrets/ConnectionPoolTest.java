@@ -0,0 +1,94 @@
+package nl.tudelft.mavensecrets;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ConnectionPoolTest {
+
+    private final List<Connection> opened = new ArrayList<>();
+
+    @Test
+    public void test_connections_reused() throws Exception {
+        try (ConnectionPool pool = new ConnectionPool(this::open, 2, 60000, 16)) {
+            Connection first = pool.acquire();
+            Connection second = pool.acquire();
+            Assertions.assertNotSame(first, second);
+            pool.release(first);
+
+            Assertions.assertSame(first, pool.acquire());
+            Assertions.assertEquals(2, opened.size());
+            Assertions.assertEquals(2, pool.getOpen());
+        }
+    }
+
+    @Test
+    public void test_acquire_waits_for_release() throws Exception {
+        try (ConnectionPool pool = new ConnectionPool(this::open, 1, 60000, 16)) {
+            Connection connection = pool.acquire();
+            CompletableFuture<Connection> waiting = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return pool.acquire();
+                } catch (SQLException exception) {
+                    throw new RuntimeException(exception);
+                }
+            });
+
+            Assertions.assertThrows(TimeoutException.class, () -> waiting.get(100, TimeUnit.MILLISECONDS));
+            pool.release(connection);
+            Assertions.assertSame(connection, waiting.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void test_broken_connections_replaced() throws Exception {
+        try (ConnectionPool pool = new ConnectionPool(this::open, 1, 0, 16)) {
+            Connection broken = pool.acquire();
+            when(broken.isValid(anyInt())).thenReturn(false);
+            pool.release(broken);
+
+            Connection replacement = pool.acquire();
+            Assertions.assertNotSame(broken, replacement);
+            verify(broken).close();
+
+            pool.discard(replacement);
+            verify(replacement).close();
+            Assertions.assertEquals(0, pool.getOpen());
+        }
+    }
+
+    @Test
+    public void test_close() throws Exception {
+        ConnectionPool pool = new ConnectionPool(this::open, 2, 60000, 16);
+        Connection idle = pool.acquire();
+        Connection used = pool.acquire();
+        pool.release(idle);
+
+        pool.close();
+        verify(idle).close();
+        verify(used, never()).close();
+        pool.release(used);
+        verify(used).close();
+        Assertions.assertThrows(SQLException.class, pool::acquire);
+    }
+
+    private Connection open() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        opened.add(connection);
+        return connection;
+    }
+}
@@ -0,0 +1,77 @@
+package nl.tudelft.mavensecrets;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.copy.CopyIn;
+
+public class CopyWriterTest {
+
+    private CopyIn copy;
+    private ByteArrayOutputStream written;
+
+    @Test
+    public void test_text_format() throws Exception {
+        when(copy.endCopy()).thenReturn(2L);
+
+        try (CopyWriter writer = new CopyWriter(copy)) {
+            writer.write("a\tb", "c\\d", null);
+            writer.write("line\nbreak", "\r", "é");
+            Assertions.assertEquals(0, written.size());
+            Assertions.assertEquals(2L, writer.finish());
+        }
+
+        Assertions.assertEquals("a\\tb\tc\\\\d\t\\N\nline\\nbreak\t\\r\té\n", written.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void test_buffer_flushed_when_full() throws Exception {
+        String value = "x".repeat(1 << 10);
+
+        try (CopyWriter writer = new CopyWriter(copy)) {
+            for (int i = 0; i < 100; i++) {
+                writer.write(value);
+            }
+            Assertions.assertEquals(100, writer.getRows());
+            writer.finish();
+        }
+
+        Assertions.assertEquals(100 * (value.length() + 1), written.size());
+        verify(copy, times(2)).writeToCopy(any(), eq(0), anyInt());
+    }
+
+    @Test
+    public void test_unfinished_copy_cancelled() throws Exception {
+        when(copy.isActive()).thenReturn(true);
+
+        try (CopyWriter writer = new CopyWriter(copy)) {
+            writer.write("a");
+        }
+
+        verify(copy).cancelCopy();
+        verify(copy, never()).endCopy();
+    }
+
+    @BeforeEach
+    public void setup() throws Exception {
+        copy = mock(CopyIn.class);
+        written = new ByteArrayOutputStream();
+        doAnswer(invocation -> {
+            written.write(invocation.<byte[]>getArgument(0), invocation.<Integer>getArgument(1), invocation.<Integer>getArgument(2));
+            return null;
+        }).when(copy).writeToCopy(any(byte[].class), anyInt(), anyInt());
+    }
+}
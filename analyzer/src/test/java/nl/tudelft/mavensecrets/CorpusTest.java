@@ -0,0 +1,71 @@
+package nl.tudelft.mavensecrets;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import nl.tudelft.mavensecrets.testutils.JarUtil;
+
+public class CorpusTest {
+
+    @TempDir
+    private Path dir;
+
+    @TempDir
+    private Path staging;
+
+    @Test
+    public void test_repository_layout() throws Exception {
+        Path version = Files.createDirectories(dir.resolve("org/example/lib/1.0"));
+        Files.writeString(version.resolve("lib-1.0.pom"), pom("org.example", "lib", "1.0"));
+        JarUtil.createJar(version.resolve("lib-1.0.jar").toFile(), JarUtil.DEFAULT_MANIFEST, JarUtil.DEFAULT_CONTENT);
+        Path parent = Files.createDirectories(dir.resolve("org/example/parent/2"));
+        Files.writeString(parent.resolve("parent-2.pom"), pom("org.example", "parent", "2"));
+
+        Corpus corpus = Corpus.scan(dir, staging);
+
+        Assertions.assertEquals(dir.toFile(), corpus.getRepository());
+        Assertions.assertEquals(List.of(
+                new ArtifactId("org.example", "lib", "1.0", "jar"),
+                new ArtifactId("org.example", "parent", "2", "pom")), corpus.getArtifacts());
+    }
+
+    @Test
+    public void test_loose_files() throws Exception {
+        Files.writeString(dir.resolve("child.pom"), """
+                <project>
+                  <modelVersion>4.0.0</modelVersion>
+                  <parent><groupId>org.example</groupId><artifactId>parent</artifactId><version>2</version></parent>
+                  <artifactId>child</artifactId>
+                </project>
+                """);
+        File jar = dir.resolve("lib-1.0.jar").toFile();
+        JarUtil.createJar(jar, JarUtil.DEFAULT_MANIFEST, JarUtil.DEFAULT_CONTENT.andThen(jos -> {
+            jos.putNextEntry(new ZipEntry("META-INF/maven/org.example/lib/pom.xml"));
+            jos.write(pom("org.example", "lib", "1.0").getBytes(StandardCharsets.UTF_8));
+            jos.closeEntry();
+        }));
+        JarUtil.createJar(dir.resolve("unknown.jar").toFile(), JarUtil.DEFAULT_MANIFEST, JarUtil.DEFAULT_CONTENT);
+
+        Corpus corpus = Corpus.scan(dir, staging);
+
+        Assertions.assertEquals(staging.toFile(), corpus.getRepository());
+        Assertions.assertEquals(List.of(
+                new ArtifactId("org.example", "child", "2", "pom"),
+                new ArtifactId("org.example", "lib", "1.0", "jar")), corpus.getArtifacts());
+        Assertions.assertTrue(Files.isRegularFile(staging.resolve("org/example/child/2/child-2.pom")));
+        Assertions.assertEquals(pom("org.example", "lib", "1.0"), Files.readString(staging.resolve("org/example/lib/1.0/lib-1.0.pom")));
+        Assertions.assertEquals(Files.size(jar.toPath()), Files.size(staging.resolve("org/example/lib/1.0/lib-1.0.jar")));
+    }
+
+    private static String pom(String group, String artifact, String version) {
+        return "<project><modelVersion>4.0.0</modelVersion><groupId>" + group + "</groupId><artifactId>" + artifact + "</artifactId><version>" + version + "</version></project>";
+    }
+}
@@ -0,0 +1,55 @@
+package nl.tudelft.mavensecrets;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+
+import org.apache.http.client.HttpResponseException;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
+import org.eclipse.aether.transfer.ArtifactTransferException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class FailureClassifierTest {
+
+    private static final ArtifactId ID = new ArtifactId("g", "a", "1.0", "jar");
+    private static final DefaultArtifact ARTIFACT = new DefaultArtifact("g:a:pom:1.0");
+
+    @Test
+    public void test_network_failures_transient() {
+        Assertions.assertTrue(FailureClassifier.isTransient(wrap(new SocketTimeoutException("Read timed out"))));
+        Assertions.assertTrue(FailureClassifier.isTransient(wrap(new HttpResponseException(503, "Service Unavailable"))));
+        Assertions.assertTrue(FailureClassifier.isTransient(wrap(new HttpResponseException(429, "Too Many Requests"))));
+        Assertions.assertTrue(FailureClassifier.isTransient(resolution(new ArtifactTransferException(ARTIFACT, null, "Connection reset"))));
+    }
+
+    @Test
+    public void test_missing_and_broken_permanent() {
+        Assertions.assertFalse(FailureClassifier.isTransient(resolution(new ArtifactNotFoundException(ARTIFACT, null))));
+        Assertions.assertFalse(FailureClassifier.isTransient(wrap(new HttpResponseException(404, "Not Found"))));
+        Assertions.assertFalse(FailureClassifier.isTransient(wrap(new IOException("Malformed archive"))));
+        Assertions.assertFalse(FailureClassifier.isTransient(new PackageException(ID, "missing")));
+    }
+
+    @Test
+    public void test_permanent_wins() {
+        ArtifactResult result = new ArtifactResult(new ArtifactRequest(ARTIFACT, List.of(), null));
+        result.addException(new ArtifactTransferException(ARTIFACT, null, new SocketTimeoutException()));
+        result.addException(new ArtifactNotFoundException(ARTIFACT, null));
+        Assertions.assertFalse(FailureClassifier.isTransient(wrap(new ArtifactResolutionException(List.of(result)))));
+    }
+
+    private static PackageException wrap(Exception cause) {
+        return new PackageException(ID, "Could not fetch POM", cause);
+    }
+
+    private static PackageException resolution(Exception cause) {
+        ArtifactResult result = new ArtifactResult(new ArtifactRequest(ARTIFACT, List.of(), null));
+        result.addException(cause);
+        return wrap(new ArtifactResolutionException(List.of(result)));
+    }
+}
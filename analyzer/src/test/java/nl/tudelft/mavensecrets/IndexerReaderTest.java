@@ -0,0 +1,31 @@
+package nl.tudelft.mavensecrets;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class IndexerReaderTest {
+
+    @Test
+    public void test_rows_of_main_artifacts() {
+        List<Map<String, String>> chunks = List.of(
+                Map.of("DESCRIPTOR", "NexusIndex"),
+                Map.of("u", "org.example|lib|1.0|NA|jar", "i", "jar|1600000000000|123|0|0|0|jar", "m", "1600000000001"),
+                Map.of("u", "org.example|lib|1.0|sources|jar", "i", "jar|1600000000000|123|0|0|0|jar", "m", "1600000000002"),
+                Map.of("u", "org.example|lib|1.0|NA|jar.asc", "i", "jar|1600000000000|123|0|0|0|jar.asc", "m", "1600000000003"),
+                Map.of("u", "org.example|parent|2|NA", "i", "pom|1600000000000|-1|0|0|0|pom", "m", "1600000000004"));
+
+        Iterator<String[]> rows = IndexerReader.rows(chunks.iterator());
+        List<List<String>> result = new ArrayList<>();
+        rows.forEachRemaining(row -> result.add(List.of(row)));
+
+        Assertions.assertEquals(List.of(
+                List.of("org.example", "lib", "1.0", "1600000000001", "jar"),
+                List.of("org.example", "parent", "2", "1600000000004", "pom")), result);
+        Assertions.assertFalse(rows.hasNext());
+    }
+}
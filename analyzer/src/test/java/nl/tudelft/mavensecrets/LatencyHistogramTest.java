@@ -0,0 +1,48 @@
+package nl.tudelft.mavensecrets;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void test_buckets_cover_values() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextLong(Long.MAX_VALUE >>> random.nextInt(63));
+            int index = LatencyHistogram.index(value);
+            Assertions.assertTrue(LatencyHistogram.upperBound(index) >= value);
+            Assertions.assertTrue(index == 0 || LatencyHistogram.upperBound(index - 1) < value);
+        }
+        Assertions.assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBound(LatencyHistogram.index(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void test_percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1_000_000);
+        }
+
+        Assertions.assertEquals(1000, histogram.getCount());
+        Assertions.assertEquals(1_000_000_000L, histogram.getMax());
+        Assertions.assertEquals(500.5e6, histogram.getMean(), 1);
+        assertClose(500e6, histogram.getPercentile(50));
+        assertClose(990e6, histogram.getPercentile(99));
+        Assertions.assertEquals(histogram.getMax(), histogram.getPercentile(100));
+    }
+
+    @Test
+    public void test_empty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assertions.assertEquals(0, histogram.getPercentile(99));
+        Assertions.assertEquals(0, histogram.getMean());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(101));
+    }
+
+    private static void assertClose(double expected, long actual) {
+        Assertions.assertTrue(actual >= expected && actual <= expected * 1.04, "Expected about " + expected + " but was " + actual);
+    }
+}
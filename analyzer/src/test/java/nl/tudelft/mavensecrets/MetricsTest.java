@@ -0,0 +1,73 @@
+package nl.tudelft.mavensecrets;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MetricsTest {
+
+    @Test
+    public void test_prometheus_format() throws Exception {
+        Metrics metrics = new Metrics();
+        metrics.record("extract.Test", 2_000_000);
+        metrics.time("database.update", () -> {
+            // Nothing
+        });
+        metrics.artifact();
+        metrics.failure();
+        metrics.read(1024);
+
+        StringBuilder sb = new StringBuilder();
+        metrics.writePrometheus(sb);
+        String text = sb.toString();
+        Assertions.assertTrue(text.contains("mavensecrets_artifacts_total 1\n"));
+        Assertions.assertTrue(text.contains("mavensecrets_failures_total 1\n"));
+        Assertions.assertTrue(text.contains("mavensecrets_read_bytes_total 1024\n"));
+        Assertions.assertTrue(text.contains("# TYPE mavensecrets_latency_seconds summary\n"));
+        Assertions.assertTrue(text.contains("mavensecrets_latency_seconds_count{operation=\"extract.Test\"} 1\n"));
+        Assertions.assertTrue(text.contains("mavensecrets_latency_seconds{operation=\"extract.Test\",quantile=\"0.99\"} 0.002000\n"));
+        Assertions.assertTrue(text.contains("mavensecrets_latency_seconds_count{operation=\"database.update\"} 1\n"));
+        Assertions.assertTrue(metrics.summary().contains("extract.Test"));
+    }
+
+    @Test
+    public void test_time_records_failures() {
+        Metrics metrics = new Metrics();
+        Assertions.assertThrows(IllegalStateException.class, () -> metrics.time("failing", () -> {
+            throw new IllegalStateException();
+        }));
+        Assertions.assertEquals(1, metrics.latency("failing").getCount());
+    }
+
+    @Test
+    public void test_jmx() throws Exception {
+        Metrics metrics = new Metrics();
+        metrics.registerMBeans();
+        metrics.record("jmx.test", 5_000_000);
+
+        ObjectName name = new ObjectName("nl.tudelft.mavensecrets:type=Latency,name=" + ObjectName.quote("jmx.test"));
+        Assertions.assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Count"));
+    }
+
+    @Test
+    public void test_server() throws Exception {
+        Metrics metrics = new Metrics();
+        metrics.artifact();
+
+        try (MetricsServer server = MetricsServer.start(metrics, null, 0)) {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + "/metrics").openConnection();
+            Assertions.assertEquals(200, connection.getResponseCode());
+            Assertions.assertTrue(connection.getContentType().startsWith("text/plain"));
+            try (InputStream in = connection.getInputStream()) {
+                Assertions.assertTrue(new String(in.readAllBytes(), StandardCharsets.UTF_8).contains("mavensecrets_artifacts_total 1\n"));
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package nl.tudelft.mavensecrets;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import nl.tudelft.mavensecrets.extractors.ArtifactExistsExtractor;
+import nl.tudelft.mavensecrets.extractors.EmbedExtractor;
+import nl.tudelft.mavensecrets.extractors.JavaModuleExtractor;
+import nl.tudelft.mavensecrets.extractors.JavaVersionExtractor;
+import nl.tudelft.mavensecrets.extractors.MismatchedPackagesExtractor;
+import nl.tudelft.mavensecrets.resolver.DefaultResolver;
+import nl.tudelft.mavensecrets.selection.PackageSelector;
+import nl.tudelft.mavensecrets.testutils.JarUtil;
+
+/**
+ * Compares stage configurations of the {@link Runner} against a <code>file://</code> repository.
+ * Run with <code>mvn test -Dtest=RunnerBenchmarkTest -Dbenchmark=true</code>.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class RunnerBenchmarkTest {
+
+    private static final int ARTIFACTS = 500;
+    private static final int PAGE_SIZE = 128;
+    private static final long DATABASE_LATENCY_MS = 2;
+
+    private static List<ArtifactId> artifacts = null;
+
+    @TempDir
+    private static File dir;
+
+    @Test
+    public void benchmark_uniform_stages() throws Exception {
+        report("uniform stages (12)", benchmark("uniform", new Runner.StageConcurrency(12, 12, 12, 12, 64)));
+    }
+
+    @Test
+    public void benchmark_wide_resolve() throws Exception {
+        report("wide resolve (128)", benchmark("wide", new Runner.StageConcurrency(128, 4, 12, 4, 256)));
+    }
+
+    private long benchmark(String name, Runner.StageConcurrency concurrency) throws Exception {
+        Database db = mock(Database.class);
+        doAnswer(invocation -> {
+            Thread.sleep(DATABASE_LATENCY_MS);
+            return null;
+        }).when(db).update(any(), any(), any(), anyBoolean());
+
+        // Fresh local repository so every artifact is transferred
+        File local = new File(dir, "local-" + name);
+        Maven maven = new Maven(new DefaultResolver(local, new File(dir, "remote").toURI().toString()), new Throttle("network", 64));
+        RunnerBuilder builder = new RunnerBuilder()
+                .setStageConcurrency(concurrency)
+                .setDiskThrottle(new Throttle("disk", 16))
+                .setDatabaseThrottle(new Throttle("database", 8))
+                .addExtractor(new ArtifactExistsExtractor())
+                .addExtractor(new EmbedExtractor())
+                .addExtractor(new JavaModuleExtractor())
+                .addExtractor(new JavaVersionExtractor())
+                .addExtractor(new MismatchedPackagesExtractor());
+
+        long start = System.nanoTime();
+        try (Runner runner = builder.build(db)) {
+            runner.run(maven, pages(), PAGE_SIZE);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Assertions.assertTrue(new File(local, "bench/a0/1.0/a0-1.0.jar").isFile());
+        return elapsed;
+    }
+
+    private static void report(String mode, long nanos) {
+        double seconds = nanos / 1e9D;
+        System.out.printf("%-24s %8.2f s %10.1f artifacts/s%n", mode, seconds, ARTIFACTS / seconds);
+    }
+
+    private static PackageSelector pages() {
+        return (page, pageSize) -> {
+            int from = Math.min(page * pageSize, artifacts.size());
+            int to = Math.min(from + pageSize, artifacts.size());
+            return artifacts.subList(from, to);
+        };
+    }
+
+    @BeforeAll
+    public static void setup() throws IOException, NoSuchAlgorithmException {
+        artifacts = new ArrayList<>();
+        for (int i = 0; i < ARTIFACTS; i++) {
+            String artifactId = "a" + i;
+            File version = new File(dir, "remote/bench/" + artifactId + "/1.0");
+            version.mkdirs();
+
+            File pom = new File(version, artifactId + "-1.0.pom");
+            Files.writeString(pom.toPath(), "<project><modelVersion>4.0.0</modelVersion><groupId>bench</groupId><artifactId>" + artifactId + "</artifactId><version>1.0</version></project>");
+            writeChecksum(pom);
+
+            File jar = new File(version, artifactId + "-1.0.jar");
+            JarUtil.createJar(jar, JarUtil.DEFAULT_MANIFEST, JarUtil.DEFAULT_CONTENT);
+            writeChecksum(jar);
+
+            artifacts.add(new ArtifactId("bench", artifactId, "1.0", "jar"));
+        }
+    }
+
+    private static void writeChecksum(File file) throws IOException, NoSuchAlgorithmException {
+        byte[] digest = MessageDigest.getInstance("SHA-1").digest(Files.readAllBytes(file.toPath()));
+        Files.writeString(new File(file.getParentFile(), file.getName() + ".sha1").toPath(), HexFormat.of().formatHex(digest), StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,688 @@
+package nl.tudelft.mavensecrets;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import nl.tudelft.mavensecrets.events.ExtractEvent;
+import nl.tudelft.mavensecrets.events.StageEvent;
+import nl.tudelft.mavensecrets.extractors.Extractor;
+import nl.tudelft.mavensecrets.selection.ListSelector;
+import nl.tudelft.mavensecrets.selection.PackageSelector;
+
+public class RunnerTest {
+
+    private Database db;
+    private Maven maven;
+    private Set<PackageId> seen;
+    private List<PackageId> order;
+    private CountDownLatch stuck;
+
+    @TempDir
+    private File dir;
+
+    @Test
+    public void test_all_pages_processed() throws Exception {
+        List<ArtifactId> artifacts = createArtifacts(37);
+        try (Runner runner = createRunner(4)) {
+            runner.run(maven, pages(artifacts), 5);
+        }
+
+        Assertions.assertEquals(Set.copyOf(artifacts), seen);
+        verify(db, times(artifacts.size())).update(any(), any(), any(), eq(true));
+    }
+
+    @Test
+    public void test_metrics() throws Exception {
+        ArtifactId missing = new ArtifactId("g", "missing", "1.0", "jar");
+        when(maven.resolve(missing)).thenThrow(new PackageException(missing, "missing"));
+        List<ArtifactId> artifacts = new ArrayList<>(createArtifacts(9));
+        artifacts.add(missing);
+
+        Metrics metrics = new Metrics();
+        try (Runner runner = new RunnerBuilder()
+                .setThreads(2)
+                .setMetrics(metrics)
+                .addExtractor(new RecordingExtractor())
+                .build(db)) {
+            runner.run(maven, pages(artifacts), 4);
+        }
+
+        Assertions.assertEquals(10, metrics.getArtifacts());
+        Assertions.assertEquals(1, metrics.getFailures());
+        Assertions.assertEquals(10, metrics.latency("resolve").getCount());
+        Assertions.assertEquals(9, metrics.latency("open").getCount());
+        Assertions.assertEquals(9, metrics.latency("extract.RecordingExtractor").getCount());
+        Assertions.assertEquals(9, metrics.latency("sink.write").getCount());
+        Assertions.assertEquals(1, metrics.latency("sink.unresolved").getCount());
+    }
+
+    @Test
+    public void test_sink_without_database() throws Exception {
+        List<ArtifactId> artifacts = createArtifacts(6);
+        NopSink sink = new NopSink();
+        Metrics metrics = new Metrics();
+        try (Runner runner = new RunnerBuilder()
+                .setThreads(2)
+                .setMetrics(metrics)
+                .setSink(sink)
+                .setAllocationTracking(true)
+                .addExtractor(new RecordingExtractor())
+                .build(null)) {
+            runner.run(maven, new ListSelector(artifacts), 4);
+        }
+
+        Assertions.assertEquals(Set.copyOf(artifacts), seen);
+        Assertions.assertEquals(6, sink.getWritten());
+        Assertions.assertEquals(0, sink.getUnresolved());
+        Assertions.assertTrue(metrics.getAllocated("extract.RecordingExtractor") > 0);
+        Assertions.assertThrows(IllegalStateException.class, () -> new RunnerBuilder().build(null));
+    }
+
+    @Test
+    public void test_stop_drains_in_flight() throws Exception {
+        List<ArtifactId> artifacts = createArtifacts(40);
+        AtomicReference<Runner> reference = new AtomicReference<>();
+        when(maven.resolve(any())).thenAnswer(invocation -> {
+            ArtifactId id = invocation.getArgument(0);
+            if (id.artifact().equals("a12")) {
+                reference.get().stop();
+            }
+            return new ResolvedPackage(id, null, null);
+        });
+
+        try (Runner runner = new RunnerBuilder()
+                .setThreads(1)
+                .setCheckpoint("run", false)
+                .addExtractor(new RecordingExtractor())
+                .build(db)) {
+            reference.set(runner);
+            runner.run(maven, pages(artifacts), 5);
+        }
+
+        // The artifact being resolved when stopping is finished, the queued ones are left for a resumed run
+        Assertions.assertEquals(Set.copyOf(artifacts.subList(0, 13)), seen);
+        verify(db, times(13)).update(any(), any(), any(), eq(true));
+        verify(db, never()).updateUnresolvedTable(any(), any());
+        verify(db).checkpoint("run", 0, 5);
+        verify(db).checkpoint("run", 1, 5);
+        verify(db, never()).checkpoint(eq("run"), eq(2), anyInt());
+    }
+
+    @Test
+    public void test_flight_recorder_events() throws Exception {
+        List<ArtifactId> artifacts = createArtifacts(3);
+        File file = new File(dir, "run.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(StageEvent.class);
+            recording.enable(ExtractEvent.class);
+            recording.start();
+            try (Runner runner = createRunner(2)) {
+                runner.run(maven, pages(artifacts), 5);
+            }
+            recording.stop();
+            recording.dump(file.toPath());
+        }
+
+        Map<String, Set<String>> stages = new HashMap<>();
+        Set<String> extracted = new HashSet<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+            switch (event.getEventType().getName()) {
+                case "nl.tudelft.mavensecrets.Stage" -> stages.computeIfAbsent(event.getString("stage"), x -> new HashSet<>()).add(event.getString("artifact"));
+                case "nl.tudelft.mavensecrets.Extract" -> {
+                    Assertions.assertEquals(RecordingExtractor.class.getName(), event.getString("extractor"));
+                    extracted.add(event.getString("artifact"));
+                }
+                default -> {
+                    // Nothing
+                }
+            }
+        }
+
+        Set<String> expected = new HashSet<>();
+        artifacts.forEach(id -> expected.add(id.toString()));
+        Assertions.assertEquals(Map.of("resolve", expected, "open", expected, "extract", expected, "persist", expected), stages);
+        Assertions.assertEquals(expected, extracted);
+    }
+
+    @Test
+    public void test_empty_selector() throws Exception {
+        try (Runner runner = createRunner(4)) {
+            runner.run(maven, pages(Collections.emptyList()), 5);
+        }
+
+        Assertions.assertTrue(seen.isEmpty());
+        verify(db, never()).update(any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    public void test_unresolved_package() throws Exception {
+        ArtifactId id = new ArtifactId("g", "missing", "1.0", "jar");
+        when(maven.resolve(id)).thenThrow(new PackageException(id, "missing"));
+
+        try (Runner runner = createRunner(2)) {
+            runner.run(maven, pages(List.of(id)), 5);
+        }
+
+        verify(db).updateUnresolvedTable(eq(id), any());
+        verify(db, never()).update(any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    public void test_uneven_stages() throws Exception {
+        List<ArtifactId> artifacts = createArtifacts(50);
+        try (Runner runner = new RunnerBuilder()
+                .setStageConcurrency(new Runner.StageConcurrency(3, 1, 2, 1, 1))
+                .addExtractor(new RecordingExtractor())
+                .build(db)) {
+            runner.run(maven, pages(artifacts), 7);
+        }
+
+        Assertions.assertEquals(Set.copyOf(artifacts), seen);
+        verify(db, times(artifacts.size())).update(any(), any(), any(), eq(true));
+    }
+
+    @Test
+    public void test_parallel_extract() throws Exception {
+        File archive = new File(dir, "large.jar");
+        Files.write(archive.toPath(), new byte[1 << 10]);
+        when(maven.resolve(any())).thenAnswer(invocation -> new ResolvedPackage(invocation.getArgument(0), archive, null));
+
+        List<ArtifactId> artifacts = createArtifacts(10);
+        try (Runner runner = new RunnerBuilder()
+                .setThreads(2)
+                .setParallelExtractThreshold(1)
+                .addExtractor(new RecordingExtractor())
+                .addExtractor(new ConstantExtractor())
+                .build(db)) {
+            runner.run(maven, pages(artifacts), 4);
+        }
+
+        Assertions.assertEquals(Set.copyOf(artifacts), seen);
+        ArgumentCaptor<Field[]> fields = ArgumentCaptor.forClass(Field[].class);
+        ArgumentCaptor<Object[]> values = ArgumentCaptor.forClass(Object[].class);
+        verify(db, times(artifacts.size())).update(any(), fields.capture(), values.capture(), eq(true));
+        for (int i = 0; i < artifacts.size(); i++) {
+            Map<String, Object> row = new HashMap<>();
+            for (int j = 0; j < fields.getAllValues().get(i).length; j++) {
+                row.put(fields.getAllValues().get(i)[j].name(), values.getAllValues().get(i)[j]);
+            }
+            Assertions.assertEquals(Map.of("recorded", true, "first", "a", "second", "b"), row);
+        }
+    }
+
+    @Test
+    public void test_longest_first() throws Exception {
+        List<ArtifactId> artifacts = createArtifacts(4);
+        when(maven.getLocalArchiveSize(any())).thenReturn(-1L);
+        when(maven.getLocalArchiveSize(artifacts.get(0))).thenReturn(10L);
+        when(maven.getLocalArchiveSize(artifacts.get(1))).thenReturn(30L);
+        when(db.getArchiveSizes(any())).thenReturn(Map.of(new PackageId("g", "a2", "1.0"), 20L));
+
+        try (Runner runner = new RunnerBuilder()
+                .setThreads(1)
+                .setLongestFirst(true)
+                .addExtractor(new RecordingExtractor())
+                .build(db)) {
+            runner.run(maven, pages(artifacts), 4);
+        }
+
+        // Unknown size first, then descending
+        Assertions.assertEquals(List.of(artifacts.get(3), artifacts.get(1), artifacts.get(2), artifacts.get(0)), order);
+    }
+
+    @Test
+    public void test_extractor_timeout() throws Exception {
+        List<ArtifactId> artifacts = createArtifacts(5);
+        try (Runner runner = new RunnerBuilder()
+                .setThreads(1)
+                .setTimeout(HangingExtractor.class.getName(), 50)
+                .setCircuitBreaker(2, 0.5, 60000)
+                .addExtractor(new RecordingExtractor())
+                .addExtractor(new HangingExtractor())
+                .build(db)) {
+            runner.run(maven, pages(artifacts), 5);
+        }
+
+        // The other extractors still ran
+        Assertions.assertEquals(Set.copyOf(artifacts), seen);
+        ArgumentCaptor<String> reasons = ArgumentCaptor.forClass(String.class);
+        verify(db, times(artifacts.size())).updateUnresolvedTable(any(), reasons.capture());
+        // Two timeouts fill the window and open the breaker
+        Assertions.assertTrue(reasons.getAllValues().get(0).startsWith("Timeout in HangingExtractor"));
+        Assertions.assertTrue(reasons.getAllValues().get(1).startsWith("Timeout in HangingExtractor"));
+        for (var reason : reasons.getAllValues().subList(2, artifacts.size())) {
+            Assertions.assertTrue(reason.startsWith("Skipped HangingExtractor"));
+        }
+        ArgumentCaptor<Field[]> fields = ArgumentCaptor.forClass(Field[].class);
+        ArgumentCaptor<Object[]> values = ArgumentCaptor.forClass(Object[].class);
+        verify(db, times(artifacts.size())).update(any(), fields.capture(), values.capture(), eq(true));
+        for (int i = 0; i < artifacts.size(); i++) {
+            for (int j = 0; j < fields.getAllValues().get(i).length; j++) {
+                Object value = values.getAllValues().get(i)[j];
+                Assertions.assertEquals(fields.getAllValues().get(i)[j].name().equals("recorded") ? true : null, value);
+            }
+        }
+    }
+
+    @Test
+    public void test_abandoned_extractor_releases_permits() throws Exception {
+        // A single permit each, which the stuck extractors never give back themselves
+        when(maven.getNetworkThrottle()).thenReturn(new Throttle("network", 1));
+        List<ArtifactId> artifacts = createArtifacts(5);
+        try {
+            Assertions.assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+                try (Runner runner = new RunnerBuilder()
+                        .setThreads(1)
+                        .setDiskThrottle(new Throttle("disk", 1))
+                        .setTimeout(StuckExtractor.class.getName(), 50)
+                        .setCircuitBreaker(10, 1, 60000)
+                        .addExtractor(new RecordingExtractor())
+                        .addExtractor(new StuckExtractor())
+                        .build(db)) {
+                    runner.run(maven, pages(artifacts), 5);
+                }
+            });
+        } finally {
+            stuck.countDown();
+        }
+
+        Assertions.assertEquals(Set.copyOf(artifacts), seen);
+        verify(db, times(artifacts.size())).updateUnresolvedTable(any(), startsWith("Timeout in StuckExtractor"));
+    }
+
+    @Test
+    public void test_hung_extractor_does_not_trip_others() throws Exception {
+        when(maven.getNetworkThrottle()).thenReturn(Throttle.unlimited("network"));
+        List<ArtifactId> artifacts = createArtifacts(10);
+        try {
+            Assertions.assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+                try (Runner runner = new RunnerBuilder()
+                        .setThreads(1)
+                        .setTimeout(StuckExtractor.class.getName(), 50)
+                        .setTimeout(RecordingExtractor.class.getName(), 1000)
+                        .setCircuitBreaker(2, 1, 60000)
+                        .addExtractor(new RecordingExtractor())
+                        .addExtractor(new StuckExtractor())
+                        .build(db)) {
+                    runner.run(maven, pages(artifacts), 5);
+                }
+            });
+        } finally {
+            stuck.countDown();
+        }
+
+        // The stuck extractor holds on to its threads, the fast one still runs on every artifact
+        Assertions.assertEquals(Set.copyOf(artifacts), seen);
+        verify(db, never()).updateUnresolvedTable(any(), contains("RecordingExtractor"));
+        verify(db, times(artifacts.size())).updateUnresolvedTable(any(), contains("StuckExtractor"));
+    }
+
+    @Test
+    public void test_adaptive_concurrency() throws Exception {
+        List<ArtifactId> artifacts = createArtifacts(30);
+        try (Runner runner = new RunnerBuilder()
+                .setThreads(4)
+                .setAdaptiveConcurrency(1, 4, 10)
+                .addExtractor(new RecordingExtractor())
+                .build(db)) {
+            runner.run(maven, pages(artifacts), 8);
+        }
+
+        Assertions.assertEquals(Set.copyOf(artifacts), seen);
+        verify(db, times(artifacts.size())).update(any(), any(), any(), eq(true));
+    }
+
+    @Test
+    public void test_archive_budget() throws Exception {
+        File archive = new File(dir, "large.jar");
+        Files.write(archive.toPath(), new byte[1 << 10]);
+        when(maven.resolve(any())).thenAnswer(invocation -> new ResolvedPackage(invocation.getArgument(0), archive, null));
+
+        // Room for one archive at a time
+        List<ArtifactId> artifacts = createArtifacts(10);
+        try (Runner runner = new RunnerBuilder()
+                .setThreads(4)
+                .setArchiveBudget(1 << 10)
+                .addExtractor(new RecordingExtractor())
+                .build(db)) {
+            runner.run(maven, pages(artifacts), 4);
+        }
+
+        Assertions.assertEquals(Set.copyOf(artifacts), seen);
+    }
+
+    @Test
+    public void test_checkpoint() throws Exception {
+        List<ArtifactId> artifacts = createArtifacts(12);
+        try (Runner runner = new RunnerBuilder()
+                .setThreads(2)
+                .setCheckpoint("run", false)
+                .addExtractor(new RecordingExtractor())
+                .build(db)) {
+            runner.run(maven, pages(artifacts), 5);
+        }
+
+        Assertions.assertEquals(Set.copyOf(artifacts), seen);
+        verify(db).clearCheckpoints("run");
+        verify(db).checkpoint("run", 0, 5);
+        verify(db).checkpoint("run", 1, 5);
+        verify(db).checkpoint("run", 2, 2);
+    }
+
+    @Test
+    public void test_resume() throws Exception {
+        List<ArtifactId> artifacts = createArtifacts(12);
+        when(db.getCheckpoints("run")).thenReturn(Set.of(0));
+        ArtifactId processed = artifacts.get(6);
+        when(db.getProcessed(any())).thenReturn(Set.of(new PackageId(processed.group(), processed.artifact(), processed.version())));
+
+        List<Integer> fetched = Collections.synchronizedList(new ArrayList<>());
+        PackageSelector selector = pages(artifacts);
+        try (Runner runner = new RunnerBuilder()
+                .setThreads(2)
+                .setCheckpoint("run", true)
+                .addExtractor(new RecordingExtractor())
+                .build(db)) {
+            runner.run(maven, (page, pageSize) -> {
+                fetched.add(page);
+                return selector.getArtifacts(page, pageSize);
+            }, 5);
+        }
+
+        Set<ArtifactId> expected = new HashSet<>(artifacts.subList(5, 12));
+        expected.remove(processed);
+        Assertions.assertEquals(expected, seen);
+        Assertions.assertEquals(List.of(1, 2, 3), fetched);
+        verify(db, never()).clearCheckpoints(any());
+        verify(db, never()).checkpoint(any(), eq(0), anyInt());
+        verify(db).checkpoint("run", 1, 4);
+        verify(db).checkpoint("run", 2, 2);
+    }
+
+    @Test
+    public void test_transient_failure_retried() throws Exception {
+        ArtifactId id = new ArtifactId("g", "flaky", "1.0", "jar");
+        when(maven.resolve(id))
+                .thenThrow(new PackageException(id, "Could not fetch POM", new SocketTimeoutException("Read timed out")))
+                .thenReturn(new ResolvedPackage(id, null, null));
+
+        try (Runner runner = new RunnerBuilder()
+                .setThreads(2)
+                .setRetry(3, 1, 10, 1)
+                .addExtractor(new RecordingExtractor())
+                .build(db)) {
+            runner.run(maven, pages(List.of(id)), 5);
+        }
+
+        Assertions.assertEquals(Set.of(id), seen);
+        verify(maven, times(2)).resolve(id);
+        verify(db, never()).updateUnresolvedTable(any(), any());
+    }
+
+    @Test
+    public void test_retries_exhausted() throws Exception {
+        ArtifactId id = new ArtifactId("g", "down", "1.0", "jar");
+        when(maven.resolve(id)).thenThrow(new PackageException(id, "Could not fetch POM", new ConnectException("Connection refused")));
+
+        try (Runner runner = new RunnerBuilder()
+                .setThreads(2)
+                .setRetry(2, 1, 10, 1)
+                .addExtractor(new RecordingExtractor())
+                .build(db)) {
+            runner.run(maven, pages(List.of(id)), 5);
+        }
+
+        verify(maven, times(3)).resolve(id);
+        verify(db).updateUnresolvedTable(eq(id), contains("after 2 retries"));
+        verify(db, never()).update(any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    public void test_permanent_failure_not_retried() throws Exception {
+        ArtifactId id = new ArtifactId("g", "missing", "1.0", "jar");
+        when(maven.resolve(id)).thenThrow(new PackageException(id, "missing"));
+
+        try (Runner runner = new RunnerBuilder()
+                .setThreads(2)
+                .setRetry(3, 1, 10, 1)
+                .addExtractor(new RecordingExtractor())
+                .build(db)) {
+            runner.run(maven, pages(List.of(id)), 5);
+        }
+
+        verify(maven, times(1)).resolve(id);
+        verify(db).updateUnresolvedTable(eq(id), any());
+    }
+
+    @Test
+    public void test_pages_carry_last_key() throws Exception {
+        List<ArtifactId> artifacts = createArtifacts(12);
+        when(db.getCheckpoints("run")).thenReturn(Set.of(1));
+
+        List<ArtifactId> keys = Collections.synchronizedList(new ArrayList<>());
+        PackageSelector pages = pages(artifacts);
+        PackageSelector selector = new PackageSelector() {
+
+            @Override
+            public Collection<? extends ArtifactId> getArtifacts(int page, int pageSize) throws IOException, SQLException {
+                throw new AssertionError("Paged without key");
+            }
+
+            @Override
+            public Collection<? extends ArtifactId> getArtifacts(int page, int pageSize, ArtifactId after) throws IOException, SQLException {
+                keys.add(after);
+                return pages.getArtifacts(page, pageSize);
+            }
+        };
+        try (Runner runner = new RunnerBuilder()
+                .setThreads(2)
+                .setCheckpoint("run", true)
+                .addExtractor(new RecordingExtractor())
+                .build(db)) {
+            runner.run(maven, selector, 5);
+        }
+
+        // The page after a skipped one has no key
+        Assertions.assertEquals(Arrays.asList(null, null, artifacts.get(11)), keys);
+    }
+
+    @Test
+    public void test_stage_failure_completes_page() throws Exception {
+        File archive = new File(dir, "large.jar");
+        Files.write(archive.toPath(), new byte[1 << 10]);
+        when(maven.resolve(any())).thenAnswer(invocation -> new ResolvedPackage(invocation.getArgument(0), archive, null));
+        List<ArtifactId> artifacts = createArtifacts(5);
+        ArtifactId broken = artifacts.get(1);
+        doAnswer(invocation -> {
+            ResolvedPackage resolved = invocation.getArgument(0);
+            if (resolved.id().equals(broken)) {
+                throw new IllegalStateException("broken");
+            }
+            return new Package(resolved.id(), null, null);
+        }).when(maven).open(any());
+
+        // One slot and room for one archive, so a leaked slot or reservation stalls the run
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            try (Runner runner = new RunnerBuilder()
+                    .setThreads(2)
+                    .setAdaptiveConcurrency(1, 1, 10)
+                    .setArchiveBudget(1 << 10)
+                    .setCheckpoint("run", false)
+                    .addExtractor(new RecordingExtractor())
+                    .build(db)) {
+                runner.run(maven, pages(artifacts), 5);
+            }
+        });
+
+        verify(db).updateUnresolvedTable(eq(broken), contains("broken"));
+        verify(db, times(4)).update(any(), any(), any(), eq(true));
+        verify(db).checkpoint("run", 0, 5);
+    }
+
+    @Test
+    public void test_invalid_page_size() throws Exception {
+        try (Runner runner = createRunner(1)) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> runner.run(maven, pages(Collections.emptyList()), 0));
+        }
+    }
+
+    @BeforeEach
+    public void setup() throws Exception {
+        stuck = new CountDownLatch(1);
+        db = mock(Database.class);
+        maven = mock(Maven.class);
+        seen = ConcurrentHashMap.newKeySet();
+        order = Collections.synchronizedList(new ArrayList<>());
+        when(maven.resolve(any())).thenAnswer(invocation -> {
+            ArtifactId id = invocation.getArgument(0);
+            return new ResolvedPackage(id, null, null);
+        });
+        when(maven.open(any())).thenAnswer(invocation -> {
+            ResolvedPackage resolved = invocation.getArgument(0);
+            return new Package(resolved.id(), null, null);
+        });
+    }
+
+    private Runner createRunner(int threads) throws Exception {
+        return new RunnerBuilder()
+                .setThreads(threads)
+                .addExtractor(new RecordingExtractor())
+                .build(db);
+    }
+
+    private static List<ArtifactId> createArtifacts(int count) {
+        List<ArtifactId> list = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            list.add(new ArtifactId("g", "a" + i, "1.0", "jar"));
+        }
+        return list;
+    }
+
+    private static PackageSelector pages(List<ArtifactId> artifacts) {
+        return (page, pageSize) -> {
+            int from = Math.min(page * pageSize, artifacts.size());
+            int to = Math.min(from + pageSize, artifacts.size());
+            return artifacts.subList(from, to);
+        };
+    }
+
+    /**
+     * An {@link Extractor} returning constant values.
+     */
+    private static class ConstantExtractor implements Extractor {
+
+        @Override
+        public Field[] fields() {
+            return new Field[] {new Field("first", "VARCHAR"), new Field("second", "VARCHAR")};
+        }
+
+        @Override
+        public Object[] extract(Maven mvn, Package pkg, String pkgType, Database db) {
+            return new Object[] {"a", "b"};
+        }
+    }
+
+    /**
+     * An {@link Extractor} that never finishes.
+     */
+    private static class HangingExtractor implements Extractor {
+
+        @Override
+        public Field[] fields() {
+            return new Field[] {new Field("hanging", "VARCHAR")};
+        }
+
+        @Override
+        public Object[] extract(Maven mvn, Package pkg, String pkgType, Database db) {
+            try {
+                Thread.sleep(Long.MAX_VALUE);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            return new Object[] {"late"};
+        }
+    }
+
+    /**
+     * An {@link Extractor} taking a network permit and ignoring interrupts until the test is over.
+     */
+    private class StuckExtractor implements Extractor {
+
+        @Override
+        public Field[] fields() {
+            return new Field[] {new Field("stuck", "VARCHAR")};
+        }
+
+        @Override
+        public Object[] extract(Maven mvn, Package pkg, String pkgType, Database db) {
+            return mvn.getNetworkThrottle().call(() -> {
+                while (true) {
+                    try {
+                        stuck.await();
+                        return new Object[] {"late"};
+                    } catch (InterruptedException exception) {
+                        // Ignored on purpose
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * An {@link Extractor} remembering which packages it was run on.
+     */
+    private class RecordingExtractor implements Extractor {
+
+        @Override
+        public Field[] fields() {
+            return new Field[] {new Field("recorded", "BOOLEAN")};
+        }
+
+        @Override
+        public Object[] extract(Maven mvn, Package pkg, String pkgType, Database db) {
+            seen.add(pkg.id());
+            order.add(pkg.id());
+            return new Object[] {true};
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package nl.tudelft.mavensecrets;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class StatementCacheTest {
+
+    private Connection connection;
+
+    @Test
+    public void test_statements_reused() throws Exception {
+        try (StatementCache cache = new StatementCache(connection, 4)) {
+            PreparedStatement first = cache.prepare("SELECT ?");
+            Assertions.assertSame(first, cache.prepare("SELECT ?"));
+            Assertions.assertNotSame(first, cache.prepare("SELECT ?, ?"));
+
+            Assertions.assertEquals(1, cache.getHits());
+            Assertions.assertEquals(2, cache.getMisses());
+            verify(connection, times(1)).prepareStatement("SELECT ?");
+        }
+    }
+
+    @Test
+    public void test_least_recently_used_evicted() throws Exception {
+        try (StatementCache cache = new StatementCache(connection, 2)) {
+            PreparedStatement a = cache.prepare("a");
+            PreparedStatement b = cache.prepare("b");
+            cache.prepare("a");
+            cache.prepare("c");
+
+            Assertions.assertEquals(2, cache.size());
+            verify(b).close();
+            verify(a, never()).close();
+            Assertions.assertSame(a, cache.prepare("a"));
+        }
+    }
+
+    @Test
+    public void test_closed_statement_prepared_again() throws Exception {
+        try (StatementCache cache = new StatementCache(connection, 2)) {
+            PreparedStatement first = cache.prepare("a");
+            when(first.isClosed()).thenReturn(true);
+
+            Assertions.assertNotSame(first, cache.prepare("a"));
+            Assertions.assertEquals(1, cache.size());
+        }
+    }
+
+    @Test
+    public void test_close() throws Exception {
+        StatementCache cache = new StatementCache(connection, 2);
+        PreparedStatement a = cache.prepare("a");
+        PreparedStatement b = cache.prepare("b");
+
+        cache.close();
+
+        verify(a).close();
+        verify(b).close();
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @BeforeEach
+    public void setup() throws Exception {
+        connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation -> mock(PreparedStatement.class));
+    }
+}
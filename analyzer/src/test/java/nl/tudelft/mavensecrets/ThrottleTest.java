@@ -0,0 +1,64 @@
+package nl.tudelft.mavensecrets;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ThrottleTest {
+
+    private ExecutorService executor;
+
+    @Test
+    public void test_abandon_releases_held_permit() throws Exception {
+        Throttle throttle = new Throttle("test", 1);
+        Throttle.Holder holder = new Throttle.Holder();
+        CountDownLatch taken = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        executor.submit(holder.wrap(() -> throttle.call(() -> {
+            taken.countDown();
+            done.await();
+            return null;
+        })));
+        Assertions.assertTrue(taken.await(5, TimeUnit.SECONDS));
+
+        holder.abandon();
+        Assertions.assertEquals("free", executor.submit(() -> throttle.call(() -> "free")).get(5, TimeUnit.SECONDS));
+
+        // Finishing late does not hand back the permit a second time
+        done.countDown();
+        executor.submit(() -> throttle.call(() -> null)).get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(1, throttle.getPermits());
+        Assertions.assertEquals(0, throttle.getWaiting());
+    }
+
+    @Test
+    public void test_abandoned_task_cannot_take_permits() throws Exception {
+        Throttle throttle = new Throttle("test", 1);
+        Throttle.Holder holder = new Throttle.Holder();
+        holder.abandon();
+
+        Future<Object> future = executor.submit(holder.wrap(() -> throttle.call(() -> "taken")));
+        var exception = Assertions.assertThrows(Exception.class, () -> future.get(5, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(CancellationException.class, exception.getCause());
+        // Outside the holder the permit is still there
+        Assertions.assertEquals("free", throttle.call(() -> "free"));
+    }
+
+    @BeforeEach
+    public void setup() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    public void teardown() {
+        executor.shutdownNow();
+    }
+}
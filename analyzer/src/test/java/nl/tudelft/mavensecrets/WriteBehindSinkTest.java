@@ -0,0 +1,101 @@
+package nl.tudelft.mavensecrets;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class WriteBehindSinkTest {
+
+    private static final Field[] FIELDS = {new Field("first", "VARCHAR")};
+
+    private ResultSink delegate;
+
+    @Test
+    public void test_writes_do_not_wait_for_database() throws Exception {
+        var blocked = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            blocked.await();
+            return null;
+        }).when(delegate).write(eq(artifact(0)), any(), any());
+
+        try (WriteBehindSink sink = new WriteBehindSink(delegate, Throttle.unlimited("database"), 16, 1, 0, new Metrics())) {
+            for (int i = 0; i < 5; i++) {
+                sink.write(artifact(i), FIELDS, new Object[] {"v" + i});
+            }
+            var durable = sink.durable().toCompletableFuture();
+            Assertions.assertFalse(durable.isDone());
+
+            blocked.countDown();
+            durable.get(5, TimeUnit.SECONDS);
+            verify(delegate, times(5)).write(any(), eq(FIELDS), any());
+        }
+    }
+
+    @Test
+    public void test_group_written_then_flushed() throws Exception {
+        try (WriteBehindSink sink = new WriteBehindSink(delegate, Throttle.unlimited("database"), 16, 3, 60000, new Metrics())) {
+            sink.write(artifact(0), FIELDS, new Object[] {"v"});
+            sink.unresolved(artifact(1), "missing");
+            sink.write(artifact(2), FIELDS, new Object[] {"v"});
+
+            verify(delegate, timeout(5000)).flush();
+            var order = inOrder(delegate);
+            order.verify(delegate).write(artifact(0), FIELDS, new Object[] {"v"});
+            order.verify(delegate).unresolved(artifact(1), "missing");
+            order.verify(delegate).write(artifact(2), FIELDS, new Object[] {"v"});
+            order.verify(delegate).flush();
+        }
+    }
+
+    @Test
+    public void test_failed_flush_fails_durable() throws Exception {
+        doThrow(new SQLException("flush")).when(delegate).flush();
+
+        try (WriteBehindSink sink = new WriteBehindSink(delegate, Throttle.unlimited("database"), 16, 10, 60000, new Metrics())) {
+            sink.write(artifact(0), FIELDS, new Object[] {"v"});
+
+            var exception = Assertions.assertThrows(ExecutionException.class, () -> sink.durable().toCompletableFuture().get(5, TimeUnit.SECONDS));
+            Assertions.assertInstanceOf(SQLException.class, exception.getCause());
+            // Acknowledged once, later rows start with a clean slate
+            doAnswer(invocation -> null).when(delegate).flush();
+            sink.write(artifact(1), FIELDS, new Object[] {"v"});
+            sink.flush();
+        }
+    }
+
+    @Test
+    public void test_close_writes_waiting_rows() throws Exception {
+        var sink = new WriteBehindSink(delegate, Throttle.unlimited("database"), 16, 100, 60000, new Metrics());
+        sink.write(artifact(0), FIELDS, new Object[] {"v"});
+        sink.write(artifact(1), FIELDS, new Object[] {"v"});
+        sink.close();
+
+        verify(delegate, times(2)).write(any(), eq(FIELDS), any());
+        verify(delegate).close();
+        Assertions.assertThrows(SQLException.class, () -> sink.write(artifact(2), FIELDS, new Object[] {"v"}));
+    }
+
+    @BeforeEach
+    public void setup() {
+        delegate = mock(ResultSink.class);
+    }
+
+    private static ArtifactId artifact(int i) {
+        return new ArtifactId("g", "a" + i, "1.0", "jar");
+    }
+}
@@ -0,0 +1,99 @@
+package nl.tudelft.mavensecrets.extractors;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import nl.tudelft.mavensecrets.Database;
+import nl.tudelft.mavensecrets.Field;
+import nl.tudelft.mavensecrets.Maven;
+import nl.tudelft.mavensecrets.Package;
+import nl.tudelft.mavensecrets.PackageId;
+import nl.tudelft.mavensecrets.testutils.JarUtil;
+import nl.tudelft.mavensecrets.testutils.NopResolver;
+
+public class MismatchedPackagesExtractorTest {
+
+    private static Extractor extractor = null;
+    private static Maven maven = null;
+    private static File file = null;
+    private static String pkgName = null;
+    private static Database db = null;
+
+    @TempDir
+    private static File dir;
+
+    @Test
+    public void test_fields_are_arrays() {
+        for (Field field : extractor.fields()) {
+            Assertions.assertTrue(field.isArray(), field.name());
+        }
+    }
+
+    @Test
+    public void test_no_jar() throws IOException, SQLException {
+        try (Package pkg = createPackage(null)) {
+            Object[] results = extractor.extract(maven, pkg, pkgName, db);
+            Assertions.assertArrayEquals(new Object[] {null}, results);
+        }
+    }
+
+    @Test
+    public void test_mismatched_packages_distinct_and_sorted() throws IOException, SQLException {
+        JarUtil.createJar(file, JarUtil.DEFAULT_MANIFEST, JarUtil.DEFAULT_RESOURCES.andThen(jos -> {
+            for (String name : new String[] {"org/other/B.class", "com/example/A.class", "org/other/A.class", "com/example/nested/C.class"}) {
+                jos.putNextEntry(new ZipEntry(name));
+                JarUtil.writeBytes(jos);
+                jos.closeEntry();
+            }
+        }));
+        try (Package pkg = createPackage(new JarFile(file))) {
+            Object[] results = extractor.extract(maven, pkg, pkgName, db);
+            Assertions.assertArrayEquals(new Object[] {new String[] {"org.other"}}, results);
+        }
+    }
+
+    @Test
+    public void test_no_mismatched_packages() throws IOException, SQLException {
+        JarUtil.createJar(file, JarUtil.DEFAULT_MANIFEST, JarUtil.DEFAULT_RESOURCES.andThen(jos -> {
+            jos.putNextEntry(new ZipEntry("com/example/A.class"));
+            JarUtil.writeBytes(jos);
+            jos.closeEntry();
+        }));
+        try (Package pkg = createPackage(new JarFile(file))) {
+            Object[] results = extractor.extract(maven, pkg, pkgName, db);
+            Assertions.assertArrayEquals(new Object[] {null}, results);
+        }
+    }
+
+    @BeforeAll
+    public static void setup() {
+        extractor = new MismatchedPackagesExtractor();
+        maven = new Maven(NopResolver.getInstance());
+        file = new File(dir, "my-jar.jar");
+        pkgName = "";
+        db = Mockito.mock(Database.class);
+    }
+
+    @AfterAll
+    public static void teardown() {
+        extractor = null;
+        maven = null;
+        file = null;
+        pkgName = null;
+        db = null;
+    }
+
+    private static Package createPackage(JarFile jar) {
+        return new Package(new PackageId("com.example", "example", "1.0"), jar, null);
+    }
+}
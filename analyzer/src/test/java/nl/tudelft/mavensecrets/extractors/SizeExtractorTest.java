@@ -2,10 +2,13 @@ package nl.tudelft.mavensecrets.extractors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Map;
@@ -63,7 +66,7 @@ public class SizeExtractorTest {
     public void test_no_jar() throws IOException, SQLException {
         try (Package pkg = createPackage(null)) {
             Object[] results = extractor.extract(maven, pkg, pkgName, db);
-            Assertions.assertArrayEquals(new Object[] {null, null}, results);
+            Assertions.assertArrayEquals(new Object[] {null, null, null}, results);
         }
     }
 
@@ -81,7 +84,7 @@ public class SizeExtractorTest {
             while (files.hasMoreElements()) {
                 size += files.nextElement().getCompressedSize();
             }
-            Assertions.assertArrayEquals(new Object[] {size, (pkg.jar().size() - countDirectories(pkg.jar()))}, results);
+            Assertions.assertArrayEquals(new Object[] {size, (pkg.jar().size() - countDirectories(pkg.jar()))}, Arrays.copyOf(results, 2));
         }
 
 
@@ -111,6 +114,25 @@ public class SizeExtractorTest {
         }
     }
 
+    @Test
+    public void test_extensions_returned_with_results() throws Exception {
+        JarUtil.createJar(file, JarUtil.DEFAULT_MANIFEST, JarUtil.DEFAULT_CONTENT.andThen(jos -> {
+            jos.putNextEntry(new ZipEntry("pom.xml"));
+            jos.putNextEntry(new ZipEntry("hello.ending"));
+            JarUtil.writeBytes(jos);
+            jos.closeEntry();
+        }));
+        Database database = mock(Database.class);
+        try (Package pkg = createPackage(new JarFile(file))) {
+            Object[] results = extractor.extract(maven, pkg, pkgName, database);
+
+            Collection<?> stats = Assertions.assertInstanceOf(Collection.class, results[2]);
+            assertEquals(extractor.getExtensionsTesting().size(), stats.size());
+            // Left to the sink, which writes them together with the package's row
+            verifyNoInteractions(database);
+        }
+    }
+
     public static int countDirectories(JarFile jar) {
         int count = 0;
         Enumeration<JarEntry> entries = jar.entries();
@@ -0,0 +1,57 @@
+package nl.tudelft.mavensecrets.selection;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import nl.tudelft.mavensecrets.ArtifactId;
+import nl.tudelft.mavensecrets.Database;
+import nl.tudelft.mavensecrets.PackageId;
+
+public class AllPackageSelectorTest {
+
+    @Test
+    public void test_seeks_after_key() throws Exception {
+        Database db = mock(Database.class);
+        ArtifactId first = new ArtifactId("g", "a", "1", "jar");
+        ArtifactId second = new ArtifactId("g", "b", "1", "jar");
+        when(db.getArtifactIds((PackageId) null, 1)).thenReturn(List.of(first));
+        when(db.getArtifactIds(first, 1)).thenReturn(List.of(second));
+        when(db.getArtifactIds(2, 1)).thenReturn(List.of());
+        PackageSelector selector = new AllPackageSelector(db);
+
+        Assertions.assertEquals(List.of(first), List.copyOf(selector.getArtifacts(0, 1, null)));
+        Assertions.assertEquals(List.of(second), List.copyOf(selector.getArtifacts(1, 1, first)));
+        // Without the previous key, it has to skip the preceding pages
+        Assertions.assertTrue(selector.getArtifacts(2, 1, null).isEmpty());
+        verify(db).getArtifactIds(2, 1);
+    }
+
+    @Test
+    public void test_count_pages_with_keys() throws Exception {
+        List<ArtifactId> artifacts = List.of(new ArtifactId("g", "a", "1", "jar"), new ArtifactId("g", "b", "1", "jar"), new ArtifactId("g", "c", "1", "jar"));
+        PackageSelector selector = new PackageSelector() {
+
+            @Override
+            public List<ArtifactId> getArtifacts(int page, int pageSize) {
+                throw new AssertionError("Paged without key");
+            }
+
+            @Override
+            public List<ArtifactId> getArtifacts(int page, int pageSize, ArtifactId after) {
+                if (page > 0 && after == null) {
+                    return getArtifacts(page, pageSize);
+                }
+                int from = after == null ? 0 : artifacts.indexOf(after) + 1;
+                return artifacts.subList(from, Math.min(from + pageSize, artifacts.size()));
+            }
+        };
+
+        Assertions.assertEquals(3, selector.count(2));
+    }
+}
@@ -0,0 +1,71 @@
+package nl.tudelft.mavensecrets.selection;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import nl.tudelft.mavensecrets.ArtifactId;
+import nl.tudelft.mavensecrets.Database;
+
+public class CursorSelectorTest {
+
+    private static final List<ArtifactId> ARTIFACTS = createArtifacts(7);
+
+    @Test
+    public void test_pages_streamed_from_one_cursor() throws Exception {
+        Database db = mock(Database.class);
+        Database.ArtifactCursor cursor = cursor();
+        when(db.streamArtifactIds(100)).thenReturn(cursor);
+
+        try (CursorSelector selector = new CursorSelector(db, 100)) {
+            Assertions.assertEquals(ARTIFACTS.subList(0, 3), List.copyOf(selector.getArtifacts(0, 3)));
+            Assertions.assertEquals(ARTIFACTS.subList(3, 6), List.copyOf(selector.getArtifacts(1, 3)));
+            Assertions.assertEquals(ARTIFACTS.subList(6, 7), List.copyOf(selector.getArtifacts(2, 3)));
+            Assertions.assertTrue(selector.getArtifacts(3, 3).isEmpty());
+        }
+
+        verify(db, times(1)).streamArtifactIds(100);
+        verify(cursor).close();
+    }
+
+    @Test
+    public void test_skipped_pages_read() throws Exception {
+        Database db = mock(Database.class);
+        Database.ArtifactCursor cursor = cursor();
+        when(db.streamArtifactIds(100)).thenReturn(cursor);
+
+        try (CursorSelector selector = new CursorSelector(db, 100)) {
+            Assertions.assertEquals(ARTIFACTS.subList(4, 6), List.copyOf(selector.getArtifacts(2, 2)));
+            Assertions.assertThrows(IllegalStateException.class, () -> selector.getArtifacts(1, 2));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> selector.getArtifacts(3, 3));
+        }
+    }
+
+    private static Database.ArtifactCursor cursor() throws Exception {
+        Database.ArtifactCursor cursor = mock(Database.ArtifactCursor.class);
+        List<ArtifactId> remaining = new ArrayList<>(ARTIFACTS);
+        when(cursor.next(anyInt())).thenAnswer(invocation -> {
+            int count = Math.min(invocation.<Integer>getArgument(0), remaining.size());
+            List<ArtifactId> next = new ArrayList<>(remaining.subList(0, count));
+            remaining.subList(0, count).clear();
+            return next;
+        });
+        return cursor;
+    }
+
+    private static List<ArtifactId> createArtifacts(int count) {
+        List<ArtifactId> list = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            list.add(new ArtifactId("g", "a" + i, "1.0", "jar"));
+        }
+        return list;
+    }
+}
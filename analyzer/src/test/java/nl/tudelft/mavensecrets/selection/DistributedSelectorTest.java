@@ -0,0 +1,181 @@
+package nl.tudelft.mavensecrets.selection;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import nl.tudelft.mavensecrets.ArtifactId;
+import nl.tudelft.mavensecrets.Database;
+
+public class DistributedSelectorTest {
+
+    private static final List<ArtifactId> ARTIFACTS = createArtifacts(25);
+
+    @Test
+    public void test_first_worker_queues_batches() throws Exception {
+        Database db = database();
+        when(db.getWorkQueueStatus("run")).thenReturn(Map.of()).thenReturn(Map.of("pending", 3L));
+        when(db.claimBatch("run", "w", 60)).thenReturn(OptionalInt.of(1), OptionalInt.empty());
+
+        try (DistributedSelector selector = new DistributedSelector(db, pages(ARTIFACTS), "run", "w", 60)) {
+            Assertions.assertEquals(ARTIFACTS.subList(10, 20), List.copyOf(selector.getArtifacts(0, 10)));
+            selector.completed(0, 10);
+        }
+
+        verify(db).lockWorkQueue("run");
+        verify(db).enqueueBatches("run", 3);
+        verify(db).unlockWorkQueue("run");
+        verify(db).completeBatch("run", 1, "w", 10);
+    }
+
+    @Test
+    public void test_joining_worker_attaches() throws Exception {
+        Database db = database();
+        when(db.getWorkQueueStatus("run")).thenReturn(Map.of("done", 3L));
+        when(db.claimBatch("run", "w", 60)).thenReturn(OptionalInt.empty());
+        AttachingSelector delegate = new AttachingSelector();
+
+        try (DistributedSelector selector = new DistributedSelector(db, delegate, "run", "w", 60)) {
+            Assertions.assertTrue(selector.getArtifacts(0, 10).isEmpty());
+        }
+
+        Assertions.assertTrue(delegate.attached);
+        verify(db, never()).enqueueBatches(any(), anyInt());
+    }
+
+    @Test
+    public void test_waits_for_other_workers() throws Exception {
+        Database db = database();
+        when(db.getWorkQueueStatus("run")).thenReturn(Map.of()).thenReturn(Map.of("leased", 1L)).thenReturn(Map.of("done", 3L));
+        // The other worker's lease expires while waiting
+        when(db.claimBatch("run", "w", 1)).thenReturn(OptionalInt.empty(), OptionalInt.of(2), OptionalInt.empty());
+
+        try (DistributedSelector selector = new DistributedSelector(db, pages(ARTIFACTS), "run", "w", 1)) {
+            Assertions.assertEquals(ARTIFACTS.subList(20, 25), List.copyOf(selector.getArtifacts(0, 10)));
+            selector.completed(0, 5);
+            Assertions.assertTrue(selector.getArtifacts(1, 10).isEmpty());
+        }
+
+        verify(db).completeBatch("run", 2, "w", 5);
+    }
+
+    @Test
+    public void test_completed_unknown_page() throws Exception {
+        Database db = database();
+        try (DistributedSelector selector = new DistributedSelector(db, pages(ARTIFACTS), "run", "w", 60)) {
+            selector.completed(5, 10);
+        }
+
+        verify(db, never()).completeBatch(any(), anyInt(), any(), anyInt());
+    }
+
+    /**
+     * Several workers with their own connection share one queue.
+     * An approximation of several analyzer processes within one JVM: every worker connects on its own with a single connection,
+     * so it has a session of its own and the advisory lock and <code>SKIP LOCKED</code> work across sessions as they would across processes.
+     * Run with <code>-Dpostgres.url=jdbc:postgresql://localhost:5432/postgres -Dpostgres.user=postgres -Dpostgres.password=...</code>.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "postgres.url", matches = ".+")
+    public void test_workers_share_queue() throws Exception {
+        String run = "test:" + System.nanoTime();
+        int workers = 4;
+        Set<ArtifactId> seen = ConcurrentHashMap.newKeySet();
+        List<Integer> counts = new ArrayList<>();
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            String worker = "worker-" + i;
+            futures.add(pool.submit(() -> {
+                try (Database db = Database.connect(System.getProperty("postgres.url"), System.getProperty("postgres.user"), System.getProperty("postgres.password"), 1);
+                        DistributedSelector selector = new DistributedSelector(db, pages(ARTIFACTS), run, worker, 5)) {
+                    int count = 0;
+                    Collection<? extends ArtifactId> artifacts;
+                    for (int page = 0; !(artifacts = selector.getArtifacts(page, 2)).isEmpty(); page++) {
+                        for (ArtifactId id : artifacts) {
+                            Assertions.assertTrue(seen.add(id), "Processed twice: " + id);
+                        }
+                        selector.completed(page, artifacts.size());
+                        count += artifacts.size();
+                    }
+                    return count;
+                }
+            }));
+        }
+        for (Future<Integer> future : futures) {
+            counts.add(future.get());
+        }
+        pool.shutdown();
+
+        Assertions.assertEquals(new HashSet<>(ARTIFACTS), seen);
+        Assertions.assertEquals(ARTIFACTS.size(), counts.stream().mapToInt(Integer::intValue).sum());
+    }
+
+    /**
+     * A mock that runs the statements of a session.
+     */
+    private static Database database() throws Exception {
+        Database db = mock(Database.class);
+        doAnswer(invocation -> {
+            Database.Statements<?> statements = invocation.getArgument(0);
+            statements.run();
+            return null;
+        }).when(db).session(any());
+        return db;
+    }
+
+    private static List<ArtifactId> createArtifacts(int count) {
+        List<ArtifactId> list = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            list.add(new ArtifactId("g", "a" + i, "1.0", "jar"));
+        }
+        return list;
+    }
+
+    private static PackageSelector pages(List<ArtifactId> artifacts) {
+        return (page, pageSize) -> {
+            int from = Math.min(page * pageSize, artifacts.size());
+            int to = Math.min(from + pageSize, artifacts.size());
+            return artifacts.subList(from, to);
+        };
+    }
+
+    /**
+     * A {@link PackageSelector} remembering it was attached.
+     */
+    private static class AttachingSelector implements PackageSelector {
+
+        private boolean attached = false;
+
+        @Override
+        public Collection<? extends ArtifactId> getArtifacts(int page, int pageSize) {
+            return List.of();
+        }
+
+        @Override
+        public void attach() {
+            attached = true;
+        }
+    }
+}
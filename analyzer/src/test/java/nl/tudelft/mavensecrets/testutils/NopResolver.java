@@ -38,6 +38,11 @@ public class NopResolver implements Resolver {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public File getLocalJar(Artifact artifact, String pkgType) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public Model loadPom(Artifact artifact) throws ArtifactResolutionException, IOException {
         throw new UnsupportedOperationException();
@@ -82,11 +82,10 @@ def print_packaging_from_pom(cur):
 
 
 def print_frequency_from_repo(cur):
-    cur.execute("SELECT allpackagingtypefromrepo FROM packages")
+    cur.execute('SELECT packaging_type, COUNT(*) FROM packages, unnest(allpackagingtypefromrepo) AS packaging_type '
+                'GROUP BY packaging_type')
 
-    all_packagingtype_list = [row['allpackagingtypefromrepo'] for row in cur.fetchall()]
-
-    sorted_frequencies = frequency_of_each_word(all_packagingtype_list)
+    sorted_frequencies = frequency_of_each_word(cur.fetchall())
 
     unique_words_count = len(sorted_frequencies)
 
@@ -139,29 +138,26 @@ def print_frequency_from_index(cur):
 
 def print_frequency_of_packages_with_frequency_packaging_types(cur):
     # Execute a query to fetch all values from the 'allpackagingtype' column in the table
-    cur.execute("SELECT allpackagingtypefromrepo FROM packages")
+    cur.execute("SELECT allpackagingtypefromrepo FROM packages WHERE allpackagingtypefromrepo IS NOT NULL")
 
     # Create a dictionary to store the frequency of packaging types for each row
     row_frequency = collections.defaultdict(int)
 
     # Iterate over the rows and count the distinct packaging types for each row
     for row in cur.fetchall():
-        allpackagingtype = row['allpackagingtypefromrepo']
-        if allpackagingtype is not None:
-            packaging_types = set(allpackagingtype.strip('[]').split(','))
-            filtered_packaging_types = set()
-            for packaging_type in packaging_types:
-                packaging_type = packaging_type.strip()
-                if len(packaging_type) > 2 \
-                        and not packaging_type.endswith('.xml') \
-                        and not packaging_type.endswith('.jar') \
-                        and not packaging_type.endswith('.pom') \
-                        and not packaging_type.endswith('.asc') \
-                        and not packaging_type.startswith('.'):
-                    filtered_packaging_types.add(packaging_type)
-
-            num_packaging_types = len(filtered_packaging_types)
-            row_frequency[num_packaging_types] += 1
+        # TEXT[] columns arrive as Python lists
+        filtered_packaging_types = set()
+        for packaging_type in row['allpackagingtypefromrepo']:
+            if len(packaging_type) > 2 \
+                    and not packaging_type.endswith('.xml') \
+                    and not packaging_type.endswith('.jar') \
+                    and not packaging_type.endswith('.pom') \
+                    and not packaging_type.endswith('.asc') \
+                    and not packaging_type.startswith('.'):
+                filtered_packaging_types.add(packaging_type)
+
+        num_packaging_types = len(filtered_packaging_types)
+        row_frequency[num_packaging_types] += 1
 
     with open('Frequency_of_packaging_types.txt', 'w') as file:
 
@@ -206,26 +202,10 @@ def print_difference_with_individual_freq(cur):
 
 
 def print_frequency_index_packaging_different_repo(cur):
-    # Execute a query to fetch the values from the 'allpackagingtype' and 'packagingtypefromrepo' columns
-    cur.execute("SELECT allpackagingtypefromrepo, packagingtypefromindex FROM packages")
-
-    count = 0
-
-    # Iterate over the rows and check if the values are the same
-    for row in cur.fetchall():
-        allpackagingtype = row['allpackagingtypefromrepo']
-        packagingtypefromindex = row['packagingtypefromindex']
-
-        if allpackagingtype is not None:
-            # Remove the square brackets and split the 'allpackagingtype' string into a list
-            allpackagingtype_list = allpackagingtype.strip('[]').split(',')
+    # Count the packages whose packaging types on the repo are not exactly the one in the index
+    cur.execute(different_packaging_type_query('packagingtypefromindex'))
 
-            # Remove any leading or trailing whitespaces from each value in the 'allpackagingtype_list'
-            allpackagingtype_list = [val.strip() for val in allpackagingtype_list]
-
-            # Check if 'packagingtypefromindex' does not match all the values in 'allpackagingtype_list'
-            if set(allpackagingtype_list) != {packagingtypefromindex}:
-                count += 1
+    count = cur.fetchone()[0]
 
     with open('Difference_packaging_type_index_repo.txt', 'w') as file:
 
@@ -235,26 +215,10 @@ def print_frequency_index_packaging_different_repo(cur):
 
 
 def print_frequency_pom_packaging_different_repo(cur):
-    # Execute a query to fetch the values from the 'allpackagingtype' and 'packagingtypefromrepo' columns
-    cur.execute("SELECT allpackagingtypefromrepo, packagingtypefrompom FROM packages")
-
-    count = 0
-
-    # Iterate over the rows and check if the values are the same
-    for row in cur.fetchall():
-        allpackagingtype = row['allpackagingtypefromrepo']
-        packagingtypefrompom = row['packagingtypefrompom']
+    # Count the packages whose packaging types on the repo are not exactly the one in the pom
+    cur.execute(different_packaging_type_query('packagingtypefrompom'))
 
-        if allpackagingtype is not None:
-            # Remove the square brackets and split the 'allpackagingtype' string into a list
-            allpackagingtype_list = allpackagingtype.strip('[]').split(',')
-
-            # Remove any leading or trailing whitespaces from each value in the 'allpackagingtype_list'
-            allpackagingtype_list = [val.strip() for val in allpackagingtype_list]
-
-            # Check if 'packagingtypefrompom' does not match all the values in 'allpackagingtype_list'
-            if set(allpackagingtype_list) != {packagingtypefrompom}:
-                count += 1
+    count = cur.fetchone()[0]
 
     with open('Difference_packaging_type_pom_repo.txt', 'w') as file:
 
@@ -263,6 +227,14 @@ def print_frequency_pom_packaging_different_repo(cur):
             f'is not same as packaging type(s) on repo: {count}')
 
 
+def different_packaging_type_query(column):
+    # The packaging types on the repo match if there is at least one and all of them equal the column
+    return f"""
+    SELECT COUNT(*) FROM packages WHERE allpackagingtypefromrepo IS NOT NULL
+    AND NOT (cardinality(allpackagingtypefromrepo) > 0 AND allpackagingtypefromrepo <@ ARRAY[{column}::text])
+    """
+
+
 def checksum_analysis(cur):
     # Frequency of each checksum
     print_frequency_of_checksums(cur)
@@ -275,13 +247,10 @@ def checksum_analysis(cur):
 
 
 def print_frequency_of_checksums(cur):
-    # Execute a query to fetch all values from the 'allchecksum' column in the 'packages' table
-    cur.execute("SELECT allchecksumfromrepo FROM packages")
-
-    # Fetch all the values and store them into the 'all_checksums_list' list
-    all_checksums_list = [row['allchecksumfromrepo'] for row in cur.fetchall()]
+    # Execute a query to count every value of the 'allchecksum' column in the 'packages' table
+    cur.execute('SELECT checksum, COUNT(*) FROM packages, unnest(allchecksumfromrepo) AS checksum GROUP BY checksum')
 
-    sorted_frequencies = frequency_of_each_word_checksum(all_checksums_list)
+    sorted_frequencies = frequency_of_each_word_checksum(cur.fetchall())
 
     with open('Frequency_of_each_checksum.txt', 'w') as file:
         file.write('CHECKSUM\n')
@@ -297,7 +266,8 @@ def print_frequency_of_checksums(cur):
 
 
 def print_frequency_number_of_checksum(cursor):
-    query = "SELECT allchecksumfromrepo FROM packages WHERE packages.allpackagingtypefromrepo != '[]'"
+    query = 'SELECT allchecksumfromrepo FROM packages WHERE cardinality(packages.allpackagingtypefromrepo) > 0 ' \
+            'AND allchecksumfromrepo IS NOT NULL'
     cursor.execute(query)
 
     # Fetch all rows from the result
@@ -311,13 +281,7 @@ def print_frequency_number_of_checksum(cursor):
 
     # Iterate through each row and count the distinct number of types
     for row in rows:
-        input_string = row[0]  # Retrieve the input string from the database
-
-        if input_string is None:
-            continue
-
-        # Evaluate the input string as a literal list
-        checksum_list = input_string[1:-1].split(", ")
+        checksum_list = row[0]  # TEXT[] columns arrive as Python lists
 
         # Exclude the specified words from the checksum types
         filtered_checksum_list = [checksum_type for checksum_type in checksum_list if
@@ -335,11 +299,13 @@ def print_frequency_number_of_checksum(cursor):
 
 def print_frequency_of_checksums_over_years(cur):
     cur.execute("""
-    SELECT EXTRACT(YEAR FROM pl.lastmodified) AS year, p.allchecksumfromrepo
+    SELECT EXTRACT(YEAR FROM pl.lastmodified) AS year, checksum, COUNT(*) AS count
     FROM package_list pl
     JOIN packages p ON pl.groupid = p.groupid
     AND pl.artifactid = p.artifactid
-    AND pl.version = p.version;
+    AND pl.version = p.version
+    CROSS JOIN unnest(p.allchecksumfromrepo) AS checksum
+    GROUP BY year, checksum;
     """)
 
     # Fetch all the rows from the result
@@ -350,14 +316,11 @@ def print_frequency_of_checksums_over_years(cur):
     # Iterate over the query result
     for row in result:
         year = int(row['year'])
-        checksums = row['allchecksumfromrepo']
-        if checksums is not None:
-            checksums = checksums.strip('[]').split(',')
-            for checksum in checksums:
-                checksum_type = checksum.strip().split('.')[-1]
-                if checksum_type in ['md5', 'sha1', 'sha256', 'sha512']:
-                    # Increment the frequency count for the checksum in the corresponding year
-                    frequency[year][checksum.strip()] += 1
+        checksum = row['checksum']
+        checksum_type = checksum.split('.')[-1]
+        if checksum_type in ['md5', 'sha1', 'sha256', 'sha512']:
+            # Add the frequency count for the checksum in the corresponding year
+            frequency[year][checksum] += row['count']
 
     with open('Frequency_of_checksum_over_years.txt', 'w') as file:
 
@@ -373,13 +336,11 @@ def print_frequency_of_checksums_over_years(cur):
 
 
 def qualifier_analysis(cur):
-    # Execute a query to fetch all values from the 'allqualifiers' column in the 'packages' table
-    cur.execute("SELECT allqualifiersfromrepo FROM packages")
+    # Execute a query to count every value of the 'allqualifiers' column in the 'packages' table
+    cur.execute('SELECT qualifier, COUNT(*) FROM packages, unnest(allqualifiersfromrepo) AS qualifier '
+                'GROUP BY qualifier')
 
-    # Fetch all the values and store them into the 'all_qualifiers_list' list
-    all_qualifiers_list = [row['allqualifiersfromrepo'] for row in cur.fetchall()]
-
-    sorted_frequencies = frequency_of_each_word(all_qualifiers_list)
+    sorted_frequencies = frequency_of_each_word(cur.fetchall())
 
     unique_words_count = len(sorted_frequencies)
 
@@ -403,13 +364,10 @@ def qualifier_analysis(cur):
 
 
 def executable_analysis(cur):
-    # Execute a query to fetch all values from the 'typeoffile' column in the 'packages' table
-    cur.execute("SELECT typesoffile FROM packages")
-
-    # Fetch all the values and store them into the 'all_qualifiers_list' list
-    all_file_type_list = [row['typesoffile'] for row in cur.fetchall()]
+    # Execute a query to count every value of the 'typeoffile' column in the 'packages' table
+    cur.execute('SELECT file_type, COUNT(*) FROM packages, unnest(typesoffile) AS file_type GROUP BY file_type')
 
-    sorted_frequencies = frequency_of_each_word(all_file_type_list)
+    sorted_frequencies = frequency_of_each_word(cur.fetchall())
 
     unique_words_count = len(sorted_frequencies)
 
@@ -428,27 +386,20 @@ def executable_analysis(cur):
         file.write(f'Total count:{total_count}\n')
 
 
-def frequency_of_each_word(word_list):
+def frequency_of_each_word(word_counts):
     # Create an empty dictionary to store word frequencies
     word_frequencies = {}
 
-    # Iterate through each 'list' value
-    for qualifiers_string in word_list:
-        if qualifiers_string is not None:
-            # Remove the square brackets and split the string into words
-            qualifiers_list = qualifiers_string.strip('[]').split(',')
-
-            # Iterate through each word and update the frequencies
-            for word in qualifiers_list:
-                word = word.strip()  # Remove leading/trailing whitespaces
-                # Exclude one-letter words, empty words, and words ending with ".xml"
-                if len(word) > 2 and word != "" \
-                        and not word.endswith(".xml") \
-                        and not word.endswith('.jar') \
-                        and not word.endswith('.pom') \
-                        and not word.endswith('.asc') \
-                        and not word.startswith('.'):
-                    word_frequencies[word] = word_frequencies.get(word, 0) + 1
+    # Iterate through each (word, count) row of an unnested array column
+    for word, count in word_counts:
+        # Exclude one-letter words, empty words, and words ending with ".xml"
+        if len(word) > 2 \
+                and not word.endswith(".xml") \
+                and not word.endswith('.jar') \
+                and not word.endswith('.pom') \
+                and not word.endswith('.asc') \
+                and not word.startswith('.'):
+            word_frequencies[word] = word_frequencies.get(word, 0) + count
 
     # Sort the word frequencies by their values in descending order
     sorted_frequencies = collections.Counter(word_frequencies).most_common()
@@ -456,26 +407,19 @@ def frequency_of_each_word(word_list):
     return sorted_frequencies
 
 
-def frequency_of_each_word_checksum(word_list):
+def frequency_of_each_word_checksum(word_counts):
     # Create an empty dictionary to store word frequencies
     word_frequencies = {}
 
-    # Iterate through each 'list' value
-    for qualifiers_string in word_list:
-        if qualifiers_string is not None:
-            # Remove the square brackets and split the string into words
-            qualifiers_list = qualifiers_string.strip('[]').split(',')
-
-            # Iterate through each word and update the frequencies
-            for word in qualifiers_list:
-                word = word.strip()  # Remove leading/trailing whitespaces
-                # Exclude one-letter words, empty words, and words ending with ".xml"
-                if len(word) > 2 and word != "" \
-                        and not word.endswith(".xml") \
-                        and not word.endswith('.jar') \
-                        and not word.endswith('.pom') \
-                        and not word.endswith('.asc'):
-                    word_frequencies[word] = word_frequencies.get(word, 0) + 1
+    # Iterate through each (word, count) row of an unnested array column
+    for word, count in word_counts:
+        # Exclude one-letter words, empty words, and words ending with ".xml"
+        if len(word) > 2 \
+                and not word.endswith(".xml") \
+                and not word.endswith('.jar') \
+                and not word.endswith('.pom') \
+                and not word.endswith('.asc'):
+            word_frequencies[word] = word_frequencies.get(word, 0) + count
 
     # Sort the word frequencies by their values in descending order
     sorted_frequencies = collections.Counter(word_frequencies).most_common()